@@ -0,0 +1,3 @@
+-- 对话滚动摘要水位：已折叠进 last_message_summary 的最新消息ID
+-- 重启或换节点后据此跳过已折叠的消息，未生成过摘要时为NULL
+ALTER TABLE vocata_conversations ADD COLUMN IF NOT EXISTS summary_until_message_id BIGINT;
@@ -0,0 +1,30 @@
+-- 角色搜索、标签筛选与列表游标分页索引
+--
+-- CREATE INDEX CONCURRENTLY 不阻塞角色表写入，但不能在事务块中执行：
+-- 用 psql -f 逐条执行，不要加 -1/--single-transaction。
+-- 创建中断会留下无效索引（pg_index.indisvalid = false），IF NOT EXISTS 会跳过它，
+-- 需先 DROP INDEX CONCURRENTLY 再重新执行本脚本。
+
+-- pg_trgm 需要建扩展权限，由DBA执行；没有该扩展时搜索回退LIKE查询
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- 全文搜索：与 CharacterMapper.SEARCH_DOCUMENT 的表达式一致
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_search_trgm ON vocata_character
+  USING gin ((coalesce(name, '') || ' ' || coalesce(description, '') || ' ' || coalesce(search_keywords, '')) gin_trgm_ops)
+  WHERE is_private = false AND is_delete = 0;
+
+-- 标签筛选与标签分面统计
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_tag_ids ON vocata_character
+  USING gin (tag_ids) WHERE is_private = false AND is_delete = 0;
+
+-- 公开角色列表游标分页：与 CharacterMapper.LISTING_SORT_KEY 的排序键一一对应
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_list_chat_count ON vocata_character
+  (status, (coalesce(chat_count, 0)), id) WHERE is_private = false AND is_delete = 0;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_list_created_at ON vocata_character
+  (status, created_at, id) WHERE is_private = false AND is_delete = 0;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_list_updated_at ON vocata_character
+  (status, updated_at, id) WHERE is_private = false AND is_delete = 0;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_list_trending_score ON vocata_character
+  (status, (coalesce(trending_score, 0)), id) WHERE is_private = false AND is_delete = 0;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vocata_character_list_sort_weight ON vocata_character
+  (status, (coalesce(sort_weight, 0)), id) WHERE is_private = false AND is_delete = 0;
@@ -1,6 +1,11 @@
 package com.vocata.ai.config;
 
 import com.vocata.ai.llm.LlmProvider;
+import com.vocata.ai.llm.impl.RoutingLlmProvider;
+import com.vocata.ai.resilience.BulkheadLlmProvider;
+import com.vocata.ai.resilience.BulkheadRegistry;
+import com.vocata.ai.resilience.BulkheadSttClient;
+import com.vocata.ai.resilience.BulkheadTtsClient;
 import com.vocata.ai.stt.SttClient;
 import com.vocata.ai.tts.TtsClient;
 import org.slf4j.Logger;
@@ -11,6 +16,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,6 +33,15 @@ public class AiServiceConfig {
     @Value("${ai.llm.provider:qiniu}")
     private String preferredProvider;
 
+    @Value("${ai.llm.routing.enabled:false}")
+    private boolean llmRoutingEnabled;
+
+    @Value("${ai.llm.routing.hedge-delay-ms:0}")
+    private long llmHedgeDelayMs;
+
+    @Value("${ai.llm.routing.priority-step-ms:300}")
+    private long llmPriorityStepMs;
+
     @Value("${ai.stt.provider:qiniu}")
     private String preferredSttProvider;
 
@@ -42,12 +58,16 @@ public class AiServiceConfig {
             @Qualifier("qiniuLlmProvider") LlmProvider qiniuLlmProvider,
             @Qualifier("geminiLlmProvider") LlmProvider geminiLlmProvider,
             @Qualifier("openAiLlmProvider") LlmProvider openAiLlmProvider,
-            @Qualifier("siliconFlowLlmProvider") LlmProvider siliconFlowLlmProvider) {
+            @Qualifier("siliconFlowLlmProvider") LlmProvider siliconFlowLlmProvider,
+            BulkheadRegistry bulkheadRegistry) {
 
         logger.info("开始选择LLM提供者，首选: {}", preferredProvider);
 
-        // 构建提供者列表
-        List<LlmProvider> providers = List.of(qiniuLlmProvider, geminiLlmProvider, openAiLlmProvider, siliconFlowLlmProvider);
+        // 构建提供者列表，每个提供者套上独立的舱壁（在路由之前，使被拒绝的请求可以切换到其他提供者）
+        List<LlmProvider> providers = List.of(qiniuLlmProvider, geminiLlmProvider, openAiLlmProvider, siliconFlowLlmProvider)
+                .stream()
+                .map(provider -> protect(provider, bulkheadRegistry))
+                .toList();
 
         // 记录检测到的提供者
         providers.forEach(provider -> {
@@ -57,6 +77,25 @@ public class AiServiceConfig {
 
         // 首先尝试使用配置的首选提供者
         LlmProvider preferredLlmProvider = findProviderByName(providers, preferredProvider);
+
+        // 多个提供者可用时启用路由：首选在前，其余按备用优先级排列，失败时自动切换
+        if (llmRoutingEnabled && providers.stream().filter(LlmProvider::isAvailable).count() > 1) {
+            List<LlmProvider> ordered = new ArrayList<>();
+            if (preferredLlmProvider != null) {
+                ordered.add(preferredLlmProvider);
+            }
+            for (String providerName : new String[]{"qiniu", "gemini", "openai", "siliconflow"}) {
+                LlmProvider provider = findProviderByName(providers, providerName);
+                if (provider != null && !ordered.contains(provider)) {
+                    ordered.add(provider);
+                }
+            }
+            RoutingLlmProvider routingProvider = new RoutingLlmProvider(
+                    ordered, Duration.ofMillis(llmHedgeDelayMs), llmPriorityStepMs);
+            logger.info("使用LLM路由提供者: {}，对冲延迟: {}ms", routingProvider.getProviderName(), llmHedgeDelayMs);
+            return routingProvider;
+        }
+
         if (preferredLlmProvider != null && preferredLlmProvider.isAvailable()) {
             logger.info("使用首选LLM提供者: {}", preferredLlmProvider.getProviderName());
             return preferredLlmProvider;
@@ -75,7 +114,7 @@ public class AiServiceConfig {
 
         // 如果没有找到可用的提供者，返回第一个提供者作为默认值
         logger.warn("未找到可用的LLM提供者，使用默认提供者: {}", qiniuLlmProvider.getProviderName());
-        return qiniuLlmProvider;
+        return providers.get(0);
     }
 
     /**
@@ -83,7 +122,11 @@ public class AiServiceConfig {
      */
     @Bean
     @Primary
-    public SttClient primarySttClient(List<SttClient> sttClients) {
+    public SttClient primarySttClient(List<SttClient> sttClients, BulkheadRegistry bulkheadRegistry) {
+        return protect(selectSttClient(sttClients), bulkheadRegistry);
+    }
+
+    private SttClient selectSttClient(List<SttClient> sttClients) {
         logger.info("开始选择STT提供者，首选: {}", preferredSttProvider);
         
         // 记录检测到的提供者
@@ -124,7 +167,11 @@ public class AiServiceConfig {
      */
     @Bean
     @Primary
-    public TtsClient primaryTtsClient(List<TtsClient> ttsClients) {
+    public TtsClient primaryTtsClient(List<TtsClient> ttsClients, BulkheadRegistry bulkheadRegistry) {
+        return protect(selectTtsClient(ttsClients), bulkheadRegistry);
+    }
+
+    private TtsClient selectTtsClient(List<TtsClient> ttsClients) {
         logger.info("开始选择TTS提供者，首选: {}", preferredTtsProvider);
         
         // 记录检测到的提供者
@@ -160,6 +207,28 @@ public class AiServiceConfig {
         throw new RuntimeException("未找到任何TTS提供者。请检查配置。");
     }
 
+    private LlmProvider protect(LlmProvider provider, BulkheadRegistry registry) {
+        if (!registry.isEnabled()) {
+            return provider;
+        }
+        return new BulkheadLlmProvider(provider, registry.bulkhead("llm:" + provider.getProviderName()));
+    }
+
+    private SttClient protect(SttClient client, BulkheadRegistry registry) {
+        if (!registry.isEnabled()) {
+            return client;
+        }
+        return new BulkheadSttClient(client, registry.bulkhead("stt:" + client.getProviderName()),
+                registry.streamingSttBulkhead("stt-stream:" + client.getProviderName()));
+    }
+
+    private TtsClient protect(TtsClient client, BulkheadRegistry registry) {
+        if (!registry.isEnabled()) {
+            return client;
+        }
+        return new BulkheadTtsClient(client, registry.bulkhead("tts:" + client.getProviderName()));
+    }
+
     private LlmProvider findProviderByName(List<LlmProvider> providers, String name) {
         // 尝试通过provider名称查找
         for (LlmProvider p : providers) {
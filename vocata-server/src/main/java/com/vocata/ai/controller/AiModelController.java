@@ -3,6 +3,8 @@ package com.vocata.ai.controller;
 import com.vocata.ai.dto.UnifiedAiRequest;
 import com.vocata.ai.dto.UnifiedAiStreamChunk;
 import com.vocata.ai.llm.LlmProvider;
+import com.vocata.ai.resilience.BulkheadMetrics;
+import com.vocata.ai.resilience.BulkheadRegistry;
 import com.vocata.common.result.ApiResponse;
 import com.vocata.common.exception.BizException;
 import com.vocata.common.result.ApiCode;
@@ -28,6 +30,9 @@ public class AiModelController {
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
     /**
      * 获取所有可用的AI模型列表
      */
@@ -60,6 +65,14 @@ public class AiModelController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 获取各AI提供者的舱壁指标（并发上限、在用许可、排队数、拒绝数、熔断状态）
+     */
+    @GetMapping("/bulkheads")
+    public ApiResponse<List<BulkheadMetrics>> getBulkheadMetrics() {
+        return ApiResponse.success(bulkheadRegistry.snapshot());
+    }
+
     /**
      * 使用指定模型进行AI对话
      */
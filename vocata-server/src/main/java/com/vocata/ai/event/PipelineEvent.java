@@ -0,0 +1,74 @@
+package com.vocata.ai.event;
+
+/**
+ * 对话处理链路事件
+ *
+ * 由AiStreamingService产出，原样传递到WebSocket处理器，取代逐token构建的Map；
+ * 下行时由{@link PipelineEventWriter}直接序列化为JSON文本帧
+ */
+public sealed interface PipelineEvent {
+
+    long timestamp();
+
+    /**
+     * 语音识别结果，isFinal为false时是说话过程中的中间结果
+     */
+    record SttPartial(String text, boolean isFinal, double confidence, long timestamp) implements PipelineEvent {
+
+        public SttPartial(String text, boolean isFinal, double confidence) {
+            this(text, isFinal, confidence, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * LLM增量文本
+     */
+    record LlmDelta(String text, boolean isFinal, long timestamp) implements PipelineEvent {
+
+        public LlmDelta(String text, boolean isFinal) {
+            this(text, isFinal, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 一帧合成音频
+     *
+     * @param caption 本句文字，不为null时在音频前下发tts_caption字幕消息（语音对话），文字对话为null
+     */
+    record TtsAudio(byte[] audio, String caption, String format, int sampleRate, String voiceId,
+                    long sequence, int segmentIndex, int frameIndex, boolean lastFrame,
+                    long timestamp) implements PipelineEvent {
+    }
+
+    /**
+     * 语音对话的完整回复文字，在全部句子下发后发送一次（tts_result），客户端以此作为最终回复
+     */
+    record ReplyText(String text, String voiceId, long timestamp) implements PipelineEvent {
+
+        public ReplyText(String text, String voiceId) {
+            this(text, voiceId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 一轮对话处理完成
+     *
+     * @param traceId 本轮链路追踪ID，与服务端日志和耗时指标对应
+     */
+    record Complete(String message, String traceId, long timestamp) implements PipelineEvent {
+
+        public Complete(String message, String traceId) {
+            this(message, traceId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 处理失败
+     */
+    record Error(String message, long timestamp) implements PipelineEvent {
+
+        public Error(String message) {
+            this(message, System.currentTimeMillis());
+        }
+    }
+}
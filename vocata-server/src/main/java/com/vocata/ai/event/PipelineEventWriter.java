@@ -0,0 +1,146 @@
+package com.vocata.ai.event;
+
+/**
+ * 链路事件JSON序列化
+ *
+ * 按固定字段顺序手写序列化，直接写入线程复用的StringBuilder，不经过Map与Jackson，
+ * 高token速率下每个事件只产生一个结果字符串。输出字段与原有下行消息格式保持一致：
+ * SttPartial -> stt_result，LlmDelta -> llm_text_stream，TtsAudio -> tts_caption / tts_audio_meta，
+ * ReplyText -> tts_result，Complete -> complete，Error -> error
+ */
+public final class PipelineEventWriter {
+
+    /**
+     * 超过该容量的缓冲区用完即弃，避免偶发的大消息长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String CHARACTER_NAME = "AI助手";
+
+    private PipelineEventWriter() {
+    }
+
+    /**
+     * 序列化事件，TtsAudio输出其tts_caption字幕消息
+     */
+    public static String write(PipelineEvent event) {
+        StringBuilder out = acquire();
+        if (event instanceof PipelineEvent.LlmDelta delta) {
+            out.append("{\"type\":\"llm_text_stream\",\"text\":");
+            string(out, delta.text());
+            out.append(",\"characterName\":");
+            string(out, CHARACTER_NAME);
+            out.append(",\"isComplete\":").append(delta.isFinal());
+        } else if (event instanceof PipelineEvent.TtsAudio audio) {
+            // 逐句字幕，与整轮回复的tts_result区分，客户端不能把它当作完整回复
+            out.append("{\"type\":\"tts_caption\",\"text\":");
+            // 同一句的后续帧不重复下发文字
+            string(out, audio.caption() != null && audio.frameIndex() == 0 ? audio.caption() : "");
+            out.append(",\"sequence\":").append(audio.sequence())
+                    .append(",\"segmentIndex\":").append(audio.segmentIndex())
+                    .append(",\"frameIndex\":").append(audio.frameIndex())
+                    .append(",\"lastFrame\":").append(audio.lastFrame())
+                    .append(",\"format\":");
+            string(out, audio.format());
+            out.append(",\"sampleRate\":").append(audio.sampleRate());
+            if (audio.voiceId() != null) {
+                out.append(",\"voiceId\":");
+                string(out, audio.voiceId());
+            }
+        } else if (event instanceof PipelineEvent.ReplyText reply) {
+            out.append("{\"type\":\"tts_result\",\"text\":");
+            string(out, reply.text());
+            if (reply.voiceId() != null) {
+                out.append(",\"voiceId\":");
+                string(out, reply.voiceId());
+            }
+        } else if (event instanceof PipelineEvent.SttPartial stt) {
+            out.append("{\"type\":\"stt_result\",\"text\":");
+            string(out, stt.text());
+            out.append(",\"isFinal\":").append(stt.isFinal())
+                    .append(",\"confidence\":");
+            number(out, stt.confidence());
+        } else if (event instanceof PipelineEvent.Complete complete) {
+            out.append("{\"type\":\"complete\",\"message\":");
+            string(out, complete.message());
+            if (complete.traceId() != null) {
+                out.append(",\"traceId\":");
+                string(out, complete.traceId());
+            }
+        } else if (event instanceof PipelineEvent.Error error) {
+            out.append("{\"type\":\"error\",\"error\":");
+            string(out, error.message());
+        }
+        return finish(out, event.timestamp());
+    }
+
+    /**
+     * 序列化音频元数据消息（JSON下行模式下紧跟在二进制音频之前）
+     */
+    public static String writeAudioMeta(PipelineEvent.TtsAudio audio) {
+        StringBuilder out = acquire();
+        out.append("{\"type\":\"tts_audio_meta\",\"audioSize\":").append(audio.audio().length)
+                .append(",\"format\":");
+        string(out, audio.format());
+        out.append(",\"sampleRate\":").append(audio.sampleRate())
+                .append(",\"channels\":1,\"bitDepth\":16");
+        return finish(out, audio.timestamp());
+    }
+
+    private static StringBuilder acquire() {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        return out;
+    }
+
+    private static String finish(StringBuilder out, long timestamp) {
+        out.append(",\"timestamp\":").append(timestamp).append('}');
+        String json = out.toString();
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return json;
+    }
+
+    private static void number(StringBuilder out, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append('0');
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static void string(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            // 批量写入无需转义的片段
+            out.append(value, start, i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            }
+            start = i + 1;
+        }
+        out.append(value, start, length).append('"');
+    }
+}
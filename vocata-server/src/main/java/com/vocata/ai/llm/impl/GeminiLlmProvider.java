@@ -1,14 +1,17 @@
 package com.vocata.ai.llm.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vocata.ai.dto.UnifiedAiRequest;
 import com.vocata.ai.dto.UnifiedAiStreamChunk;
 import com.vocata.ai.llm.LlmProvider;
+import com.vocata.ai.llm.support.JsonArrayStreamDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -115,22 +118,31 @@ public class GeminiLlmProvider implements LlmProvider, InitializingBean {
 
                 logger.debug("发送Gemini请求，模型: {}", model);
 
+                // 每个请求独立的累积内容
+                StringBuilder accumulated = new StringBuilder();
+                int[] chunkCount = {0};
+
                 return webClient
                         .post()
                         .uri("/v1beta/models/{model}:streamGenerateContent?key={apiKey}", model, apiKey)
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(requestBody)
                         .retrieve()
-                        .bodyToFlux(String.class)
+                        .bodyToFlux(DataBuffer.class)
                         .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .reduce("", (accumulated, chunk) -> accumulated + chunk)  // 累积所有数据块
-                        .flatMapMany(this::parseGeminiStreamResponse)
+                        // 增量解析JSON数组，每个响应元素闭合后立即下发
+                        .transform(body -> JsonArrayStreamDecoder.decode(body, objectMapper))
+                        .concatMap(response -> parseGeminiStreamElement(response, accumulated))
+                        .doOnNext(chunk -> chunk.setChunkIndex(chunkCount[0]++))
+                        .doOnComplete(() -> logger.info("Gemini流式响应解析完成，生成{}个chunk，总内容长度: {}",
+                                chunkCount[0], accumulated.length()))
                         .doOnError(error -> logger.error("Gemini API调用失败: {}", error.getMessage()))
                         .onErrorResume(error -> {
                             UnifiedAiStreamChunk errorChunk = new UnifiedAiStreamChunk();
                             errorChunk.setContent("抱歉，AI服务暂时不可用，请稍后再试。");
                             errorChunk.setAccumulatedContent("抱歉，AI服务暂时不可用，请稍后再试。");
                             errorChunk.setIsFinal(true);
+                            errorChunk.setType(UnifiedAiStreamChunk.ChunkType.ERROR);
                             return Flux.just(errorChunk);
                         });
 
@@ -140,6 +152,7 @@ public class GeminiLlmProvider implements LlmProvider, InitializingBean {
                 errorChunk.setContent("请求构建失败");
                 errorChunk.setAccumulatedContent("请求构建失败");
                 errorChunk.setIsFinal(true);
+                errorChunk.setType(UnifiedAiStreamChunk.ChunkType.ERROR);
                 return Flux.just(errorChunk);
             }
         });
@@ -221,122 +234,30 @@ public class GeminiLlmProvider implements LlmProvider, InitializingBean {
         return requestBody;
     }
 
-    private Flux<UnifiedAiStreamChunk> parseGeminiStreamResponse(String completeJson) {
-        try {
-            logger.debug("开始解析Gemini流式响应，数据长度: {}", completeJson.length());
-
-            List<UnifiedAiStreamChunk> chunks = new ArrayList<>();
-            String accumulatedContent = "";
-
-            // Gemini API 返回数组格式的多个响应块
-            if (completeJson.startsWith("[")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> responseArray = objectMapper.readValue(completeJson, List.class);
-
-                for (Map<String, Object> responseObj : responseArray) {
-                    String textContent = extractTextFromResponse(responseObj);
-                    if (textContent != null && !textContent.trim().isEmpty()) {
-                        accumulatedContent += textContent;
-
-                        UnifiedAiStreamChunk chunk = new UnifiedAiStreamChunk();
-                        chunk.setContent(textContent);
-                        chunk.setAccumulatedContent(accumulatedContent);
-
-                        // 检查是否为最后一个响应
-                        boolean isLast = isLastResponse(responseObj) ||
-                            (responseArray.indexOf(responseObj) == responseArray.size() - 1);
-                        chunk.setIsFinal(isLast);
-
-                        chunks.add(chunk);
-                        logger.debug("解析到文本内容: {} (累积长度: {})", textContent, accumulatedContent.length());
-                    }
-                }
-            } else {
-                // 单个对象格式
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseObj = objectMapper.readValue(completeJson, Map.class);
-                String textContent = extractTextFromResponse(responseObj);
-                if (textContent != null && !textContent.trim().isEmpty()) {
-                    UnifiedAiStreamChunk chunk = new UnifiedAiStreamChunk();
-                    chunk.setContent(textContent);
-                    chunk.setAccumulatedContent(textContent);
-                    chunk.setIsFinal(isLastResponse(responseObj));
-                    chunks.add(chunk);
-                }
-            }
-
-            logger.info("Gemini流式响应解析完成，生成{}个chunk，总内容长度: {}", chunks.size(), accumulatedContent.length());
-            return Flux.fromIterable(chunks);
-
-        } catch (Exception e) {
-            logger.error("解析Gemini流式响应失败: {}", e.getMessage());
-            logger.debug("失败的响应内容: {}", completeJson);
-            UnifiedAiStreamChunk errorChunk = new UnifiedAiStreamChunk();
-            errorChunk.setContent("抱歉，AI服务暂时不可用，请稍后再试。");
-            errorChunk.setAccumulatedContent("抱歉，AI服务暂时不可用，请稍后再试。");
-            errorChunk.setIsFinal(true);
-            return Flux.just(errorChunk);
-        }
-    }
-
     /**
-     * 从响应对象中提取文本内容
+     * 解析流式数组中的单个响应元素
      */
-    private String extractTextFromResponse(Map<String, Object> response) {
-        try {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.get("candidates");
-
-            if (candidates == null || candidates.isEmpty()) {
-                return null;
-            }
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> candidate = candidates.get(0);
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> content = (Map<String, Object>) candidate.get("content");
-
-            if (content == null) {
-                return null;
-            }
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
-
-            if (parts == null || parts.isEmpty()) {
-                return null;
-            }
-
-            return (String) parts.get(0).get("text");
-
-        } catch (Exception e) {
-            logger.debug("提取文本内容失败: {}", e.getMessage());
-            return null;
+    private Flux<UnifiedAiStreamChunk> parseGeminiStreamElement(JsonNode response, StringBuilder accumulated) {
+        JsonNode candidate = response.path("candidates").path(0);
+        String textContent = candidate.path("content").path("parts").path(0).path("text").asText(null);
+        if (textContent == null || textContent.trim().isEmpty()) {
+            return Flux.empty();
         }
-    }
-
-    /**
-     * 检查是否为最后一个响应
-     */
-    private boolean isLastResponse(Map<String, Object> response) {
-        try {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.get("candidates");
 
-            if (candidates == null || candidates.isEmpty()) {
-                return false;
-            }
+        accumulated.append(textContent);
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> candidate = candidates.get(0);
-
-            String finishReason = (String) candidate.get("finishReason");
-            return "STOP".equals(finishReason) || "MAX_TOKENS".equals(finishReason);
+        UnifiedAiStreamChunk chunk = new UnifiedAiStreamChunk();
+        chunk.setContent(textContent);
+        chunk.setAccumulatedContent(accumulated.toString());
 
-        } catch (Exception e) {
-            return false;
+        String finishReason = candidate.path("finishReason").asText(null);
+        chunk.setIsFinal("STOP".equals(finishReason) || "MAX_TOKENS".equals(finishReason));
+        if (finishReason != null) {
+            chunk.setFinishReason(finishReason);
         }
+
+        logger.debug("解析到文本内容: {} (累积长度: {})", textContent, accumulated.length());
+        return Flux.just(chunk);
     }
 
     private UnifiedAiStreamChunk parseGeminiSingleResponse(Map<String, Object> response) {
@@ -0,0 +1,88 @@
+package com.vocata.ai.llm.impl;
+
+/**
+ * 单个LLM提供者的健康评分
+ *
+ * 基于请求中实际观测到的首token延迟与失败率做指数加权移动平均（EWMA），
+ * 分数越低越健康，供{@link RoutingLlmProvider}对提供者排序
+ */
+public class LlmProviderHealth {
+
+    /**
+     * EWMA平滑系数，越大越偏重最近的观测
+     */
+    private static final double ALPHA = 0.2;
+
+    /**
+     * 尚无观测数据时假定的首token延迟（毫秒）
+     */
+    private static final double INITIAL_LATENCY_MS = 1000;
+
+    /**
+     * 失败率折算为延迟惩罚的系数：失败率100%相当于额外10秒延迟
+     */
+    private static final double ERROR_PENALTY_MS = 10_000;
+
+    private final String providerName;
+
+    private double latencyEwmaMs = INITIAL_LATENCY_MS;
+    private double errorRateEwma;
+    private long successCount;
+    private long failureCount;
+
+    public LlmProviderHealth(String providerName) {
+        this.providerName = providerName;
+    }
+
+    /**
+     * 记录一次成功请求的首token延迟
+     */
+    public synchronized void recordFirstToken(long latencyMs) {
+        latencyEwmaMs = ALPHA * latencyMs + (1 - ALPHA) * latencyEwmaMs;
+        errorRateEwma = (1 - ALPHA) * errorRateEwma;
+        successCount++;
+    }
+
+    /**
+     * 记录一次在首token前被放弃的请求（如对冲请求中落败被取消）
+     * 已等待的时长是首token延迟的下界，只计入延迟，不计入失败率
+     */
+    public synchronized void recordAbandoned(long elapsedMs) {
+        latencyEwmaMs = ALPHA * Math.max(elapsedMs, latencyEwmaMs) + (1 - ALPHA) * latencyEwmaMs;
+    }
+
+    /**
+     * 记录一次失败请求（出错或超时，未产出任何token）
+     */
+    public synchronized void recordFailure() {
+        errorRateEwma = ALPHA + (1 - ALPHA) * errorRateEwma;
+        failureCount++;
+    }
+
+    /**
+     * 健康分数（毫秒量纲），越低越好
+     */
+    public synchronized double score() {
+        return latencyEwmaMs + errorRateEwma * ERROR_PENALTY_MS;
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public synchronized double getLatencyEwmaMs() {
+        return latencyEwmaMs;
+    }
+
+    public synchronized double getErrorRate() {
+        return errorRateEwma;
+    }
+
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+}
@@ -3,11 +3,13 @@ package com.vocata.ai.llm.impl;
 import com.vocata.ai.dto.UnifiedAiRequest;
 import com.vocata.ai.dto.UnifiedAiStreamChunk;
 import com.vocata.ai.llm.LlmProvider;
+import com.vocata.ai.llm.support.SseDataDecoder;
 import com.vocata.common.exception.BizException;
 import com.vocata.common.result.ApiCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -102,17 +104,16 @@ public class OpenAiLlmProvider implements LlmProvider {
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .bodyValue(openAiRequest)
                 .retrieve()
-                .bodyToFlux(String.class)
+                .bodyToFlux(DataBuffer.class)
+                // 增量解析SSE，每个完整的data事件立即下发
+                .transform(SseDataDecoder::decode)
                 .timeout(Duration.ofSeconds(timeoutSeconds))
                 .onErrorMap(WebClientResponseException.class, ex -> {
                     logger.error("OpenAI API调用失败: {}", ex.getResponseBodyAsString());
                     return new BizException(ApiCode.AI_SERVICE_ERROR,
                         "AI服务调用失败: " + ex.getMessage());
                 })
-                .filter(line -> line.startsWith("data: "))
-                .map(line -> line.substring(6)) // 移除 "data: " 前缀
-                .filter(data -> !data.trim().isEmpty() && !"[DONE]".equals(data.trim()))
-                .flatMap(this::parseOpenAiResponse)
+                .concatMap(this::parseOpenAiResponse)
                 .map(chunk -> {
                     // 更新累积内容
                     if (chunk.getContent() != null) {
@@ -5,18 +5,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vocata.ai.dto.UnifiedAiRequest;
 import com.vocata.ai.dto.UnifiedAiStreamChunk;
 import com.vocata.ai.llm.LlmProvider;
+import com.vocata.ai.llm.support.SseDataDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 
@@ -115,6 +114,10 @@ public class QiniuLlmProvider implements LlmProvider, InitializingBean {
 
                 logger.debug("发送七牛云AI请求，模型: {}", model);
 
+                // 每个请求独立的累积内容
+                StringBuilder accumulated = new StringBuilder();
+                int[] chunkCount = {0};
+
                 return webClient
                         .post()
                         .uri("/chat/completions")
@@ -123,47 +126,26 @@ public class QiniuLlmProvider implements LlmProvider, InitializingBean {
                         .bodyValue(requestBody)
                         .retrieve()
                         .bodyToFlux(DataBuffer.class)
-                        .map(dataBuffer -> {
-                            byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                            dataBuffer.read(bytes);
-                            DataBufferUtils.release(dataBuffer);
-                            return new String(bytes, StandardCharsets.UTF_8);
-                        })
-                        .buffer() // 缓冲数据以处理不完整的SSE消息
-                        .flatMap(lines -> {
-                            String combined = String.join("", lines);
-                            return Flux.fromArray(combined.split("\n"))
-                                    .filter(line -> line.startsWith("data: ") && !line.equals("data: [DONE]"))
-                                    .map(line -> line.substring(6).trim())
-                                    .filter(data -> !data.isEmpty());
-                        })
+                        // 增量解析SSE，每个完整的data事件立即下发
+                        .transform(SseDataDecoder::decode)
                         .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .flatMap(this::parseQiniuStreamChunk)
-                        .collectList() // 收集所有chunk
-                        .flatMapMany(chunks -> {
-                            // 手动处理累积内容
-                            StringBuilder accumulated = new StringBuilder();
-                            List<UnifiedAiStreamChunk> updatedChunks = new ArrayList<>();
-
-                            for (UnifiedAiStreamChunk chunk : chunks) {
-                                if (chunk.getContent() != null && !chunk.getContent().isEmpty()) {
-                                    accumulated.append(chunk.getContent());
-                                }
-                                chunk.setAccumulatedContent(accumulated.toString());
-                                updatedChunks.add(chunk);
+                        .concatMap(this::parseQiniuStreamChunk)
+                        .doOnNext(chunk -> {
+                            if (chunk.getContent() != null && !chunk.getContent().isEmpty()) {
+                                accumulated.append(chunk.getContent());
                             }
-
-                            logger.info("七牛云AI响应解析完成，生成{}个chunk，总内容长度: {}",
-                                updatedChunks.size(), accumulated.length());
-
-                            return Flux.fromIterable(updatedChunks);
+                            chunk.setAccumulatedContent(accumulated.toString());
+                            chunk.setChunkIndex(chunkCount[0]++);
                         })
+                        .doOnComplete(() -> logger.info("七牛云AI响应解析完成，生成{}个chunk，总内容长度: {}",
+                                chunkCount[0], accumulated.length()))
                         .doOnError(error -> logger.error("七牛云AI API调用失败: {}", error.getMessage()))
                         .onErrorResume(error -> {
                             UnifiedAiStreamChunk errorChunk = new UnifiedAiStreamChunk();
                             errorChunk.setContent("抱歉，AI服务暂时不可用，请稍后再试。");
                             errorChunk.setAccumulatedContent("抱歉，AI服务暂时不可用，请稍后再试。");
                             errorChunk.setIsFinal(true);
+                            errorChunk.setType(UnifiedAiStreamChunk.ChunkType.ERROR);
                             return Flux.just(errorChunk);
                         });
 
@@ -173,6 +155,7 @@ public class QiniuLlmProvider implements LlmProvider, InitializingBean {
                 errorChunk.setContent("请求构建失败");
                 errorChunk.setAccumulatedContent("请求构建失败");
                 errorChunk.setIsFinal(true);
+                errorChunk.setType(UnifiedAiStreamChunk.ChunkType.ERROR);
                 return Flux.just(errorChunk);
             }
         });
@@ -252,6 +235,7 @@ public class QiniuLlmProvider implements LlmProvider, InitializingBean {
                 errorChunk.setContent("服务暂时不可用: " + errorMessage);
                 errorChunk.setAccumulatedContent("服务暂时不可用: " + errorMessage);
                 errorChunk.setIsFinal(true);
+                errorChunk.setType(UnifiedAiStreamChunk.ChunkType.ERROR);
                 return Flux.just(errorChunk);
             }
 
@@ -0,0 +1,273 @@
+package com.vocata.ai.llm.impl;
+
+import com.vocata.ai.dto.UnifiedAiRequest;
+import com.vocata.ai.dto.UnifiedAiStreamChunk;
+import com.vocata.ai.llm.LlmProvider;
+import com.vocata.common.exception.BizException;
+import com.vocata.common.result.ApiCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 路由型LLM提供者（组合模式）
+ *
+ * 在多个LLM提供者之间按请求动态路由：
+ * 1. 按健康分数（首token延迟EWMA + 失败率惩罚 + 配置优先级）对可用提供者排序
+ * 2. 首选提供者在产出首个token前失败时，自动切换到下一个提供者
+ * 3. 可选对冲：首选提供者在截止时间内未产出token（或提前失败），立即并行发起次选请求，
+ *    先产出token的一方胜出，另一方被取消（底层HTTP连接随之关闭）
+ *
+ * 一旦某个提供者已经向下游输出内容，就不再切换，避免回复内容拼接错乱
+ */
+public class RoutingLlmProvider implements LlmProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingLlmProvider.class);
+
+    private static final String UNAVAILABLE_MESSAGE = "抱歉，AI服务暂时不可用，请稍后再试。";
+
+    /**
+     * 按配置优先级排列的提供者
+     */
+    private final List<LlmProvider> providers;
+
+    private final Map<LlmProvider, LlmProviderHealth> healthByProvider = new IdentityHashMap<>();
+
+    /**
+     * 对冲截止时间，为null时不启用对冲
+     */
+    private final Duration hedgeDelay;
+
+    /**
+     * 配置优先级每降一位增加的分数（毫秒），使健康状况接近时仍倾向首选提供者
+     */
+    private final long priorityStepMs;
+
+    public RoutingLlmProvider(List<LlmProvider> providers, Duration hedgeDelay, long priorityStepMs) {
+        this.providers = List.copyOf(providers);
+        this.hedgeDelay = hedgeDelay != null && !hedgeDelay.isZero() && !hedgeDelay.isNegative() ? hedgeDelay : null;
+        this.priorityStepMs = priorityStepMs;
+        for (LlmProvider provider : this.providers) {
+            healthByProvider.put(provider, new LlmProviderHealth(provider.getProviderName()));
+        }
+    }
+
+    @Override
+    public String getProviderName() {
+        return providers.stream()
+                .map(LlmProvider::getProviderName)
+                .collect(Collectors.joining(", ", "Routing[", "]"));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return providers.stream().anyMatch(LlmProvider::isAvailable);
+    }
+
+    @Override
+    public Flux<UnifiedAiStreamChunk> streamChat(UnifiedAiRequest request) {
+        return Flux.defer(() -> {
+            List<LlmProvider> ranked = rankProviders();
+            if (ranked.isEmpty()) {
+                logger.error("没有可用的LLM提供者");
+                return Flux.just(unavailableChunk());
+            }
+            logger.debug("LLM路由顺序: {}", ranked.stream().map(LlmProvider::getProviderName).toList());
+
+            return attempt(ranked, 0, request)
+                    .onErrorResume(error -> {
+                        logger.error("LLM路由调用失败: {}", error.getMessage());
+                        return Flux.just(unavailableChunk());
+                    });
+        });
+    }
+
+    /**
+     * 从ranked[index]开始尝试，失败且尚未输出内容时顺延到后续提供者
+     */
+    private Flux<UnifiedAiStreamChunk> attempt(List<LlmProvider> ranked, int index, UnifiedAiRequest request) {
+        if (index >= ranked.size()) {
+            return Flux.error(new BizException(ApiCode.AI_SERVICE_UNAVAILABLE, "所有LLM提供者均调用失败"));
+        }
+
+        LlmProvider primary = ranked.get(index);
+        boolean hedged = hedgeDelay != null && index + 1 < ranked.size();
+        final int nextIndex = hedged ? index + 2 : index + 1;
+
+        Flux<UnifiedAiStreamChunk> stream;
+        if (hedged) {
+            LlmProvider hedge = ranked.get(index + 1);
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+
+            Flux<UnifiedAiStreamChunk> primaryFlux = tracked(primary, request)
+                    .doOnError(error -> primaryFailed.tryEmitEmpty());
+
+            // 截止时间到达或首选提前失败时，发起对冲请求
+            Flux<UnifiedAiStreamChunk> hedgeFlux = Mono.firstWithSignal(Mono.delay(hedgeDelay).then(), primaryFailed.asMono())
+                    .thenMany(Flux.defer(() -> {
+                        logger.info("LLM对冲请求启动: {} -> {}", primary.getProviderName(), hedge.getProviderName());
+                        return tracked(hedge, request);
+                    }));
+
+            stream = Flux.firstWithValue(primaryFlux, hedgeFlux);
+        } else {
+            stream = tracked(primary, request);
+        }
+
+        AtomicBoolean emitted = new AtomicBoolean(false);
+        return stream
+                .doOnNext(chunk -> emitted.set(true))
+                .onErrorResume(error -> {
+                    if (emitted.get()) {
+                        // 已输出部分内容，无法无缝切换
+                        return Flux.error(error);
+                    }
+                    logger.warn("LLM提供者{}调用失败，尝试下一个提供者: {}", primary.getProviderName(), error.getMessage());
+                    return attempt(ranked, nextIndex, request);
+                });
+    }
+
+    /**
+     * 调用单个提供者并记录健康数据
+     * 首个有效token前的空块被丢弃，ERROR块与空回复转换为异常以触发切换
+     */
+    private Flux<UnifiedAiStreamChunk> tracked(LlmProvider provider, UnifiedAiRequest request) {
+        LlmProviderHealth health = healthByProvider.get(provider);
+
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            AtomicBoolean firstToken = new AtomicBoolean(false);
+
+            return provider.streamChat(adaptRequest(provider, request))
+                    .<UnifiedAiStreamChunk>handle((chunk, sink) -> {
+                        if (firstToken.get()) {
+                            sink.next(chunk);
+                            return;
+                        }
+                        if (chunk.getType() == UnifiedAiStreamChunk.ChunkType.ERROR) {
+                            sink.error(new BizException(ApiCode.AI_SERVICE_ERROR,
+                                    provider.getProviderName() + "返回错误: " + chunk.getContent()));
+                            return;
+                        }
+                        if (chunk.getContent() != null && !chunk.getContent().isEmpty()) {
+                            firstToken.set(true);
+                            health.recordFirstToken(System.currentTimeMillis() - startTime);
+                            sink.next(chunk);
+                        }
+                    })
+                    .concatWith(Mono.defer(() -> firstToken.get()
+                            ? Mono.<UnifiedAiStreamChunk>empty()
+                            : Mono.<UnifiedAiStreamChunk>error(new BizException(ApiCode.AI_SERVICE_ERROR,
+                                    provider.getProviderName() + "未返回任何内容"))))
+                    .doOnError(error -> {
+                        if (!firstToken.get()) {
+                            health.recordFailure();
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (!firstToken.get()) {
+                            health.recordAbandoned(System.currentTimeMillis() - startTime);
+                            logger.debug("LLM提供者{}在首token前被取消", provider.getProviderName());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 按健康分数排序当前可用的提供者
+     */
+    private List<LlmProvider> rankProviders() {
+        List<LlmProvider> available = new ArrayList<>();
+        Map<LlmProvider, Double> scores = new IdentityHashMap<>();
+        for (int i = 0; i < providers.size(); i++) {
+            LlmProvider provider = providers.get(i);
+            if (provider.isAvailable()) {
+                available.add(provider);
+                scores.put(provider, healthByProvider.get(provider).score() + (double) i * priorityStepMs);
+            }
+        }
+        available.sort(Comparator.comparingDouble(scores::get));
+        return available;
+    }
+
+    /**
+     * 请求中的模型不被目标提供者支持时（如切换到其他厂商），改用该提供者的默认模型
+     */
+    private UnifiedAiRequest adaptRequest(LlmProvider provider, UnifiedAiRequest request) {
+        UnifiedAiRequest.ModelConfig config = request.getModelConfig();
+        if (config == null || config.getModelName() == null
+                || Arrays.asList(provider.getSupportedModels()).contains(config.getModelName())) {
+            return request;
+        }
+
+        UnifiedAiRequest.ModelConfig adaptedConfig = new UnifiedAiRequest.ModelConfig();
+        adaptedConfig.setTemperature(config.getTemperature());
+        adaptedConfig.setMaxTokens(config.getMaxTokens());
+        adaptedConfig.setTopP(config.getTopP());
+        adaptedConfig.setContextWindow(config.getContextWindow());
+
+        UnifiedAiRequest adapted = new UnifiedAiRequest();
+        adapted.setSystemPrompt(request.getSystemPrompt());
+        adapted.setUserMessage(request.getUserMessage());
+        adapted.setContextMessages(request.getContextMessages());
+        adapted.setMetadata(request.getMetadata());
+        adapted.setModelConfig(adaptedConfig);
+        return adapted;
+    }
+
+    private UnifiedAiStreamChunk unavailableChunk() {
+        UnifiedAiStreamChunk errorChunk = new UnifiedAiStreamChunk();
+        errorChunk.setContent(UNAVAILABLE_MESSAGE);
+        errorChunk.setAccumulatedContent(UNAVAILABLE_MESSAGE);
+        errorChunk.setIsFinal(true);
+        errorChunk.setType(UnifiedAiStreamChunk.ChunkType.ERROR);
+        return errorChunk;
+    }
+
+    /**
+     * 获取各提供者的健康状态快照
+     */
+    public List<LlmProviderHealth> getHealthSnapshot() {
+        return providers.stream().map(healthByProvider::get).toList();
+    }
+
+    @Override
+    public int getMaxContextLength() {
+        // 可能切换到任一提供者，取最小值保证上下文不会超出
+        return providers.stream()
+                .filter(LlmProvider::isAvailable)
+                .mapToInt(LlmProvider::getMaxContextLength)
+                .min()
+                .orElse(providers.isEmpty() ? 4096 : providers.get(0).getMaxContextLength());
+    }
+
+    @Override
+    public String[] getSupportedModels() {
+        return providers.stream()
+                .flatMap(provider -> Arrays.stream(provider.getSupportedModels()))
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public int estimateTokens(String text) {
+        // 取各提供者估算的最大值，保守估计
+        return providers.stream()
+                .filter(LlmProvider::isAvailable)
+                .mapToInt(provider -> provider.estimateTokens(text))
+                .max()
+                .orElse(text == null ? 0 : text.length() / 3);
+    }
+
+    @Override
+    public boolean validateModelConfig(UnifiedAiRequest.ModelConfig config) {
+        return providers.stream().anyMatch(provider -> provider.validateModelConfig(config));
+    }
+}
@@ -0,0 +1,165 @@
+package com.vocata.ai.llm.support;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式JSON数组增量解码器
+ *
+ * 基于Jackson非阻塞解析器，适用于Gemini streamGenerateContent这类返回一个逐步写出的JSON数组的接口：
+ * 每当数组中的一个元素完整到达就立即产出对应的JsonNode，而不必等待整个响应结束。
+ * 内存中只保留当前未闭合元素的token，单个请求的内存占用与响应总长度无关。
+ *
+ * 顶层如果不是数组而是单个对象，则把该对象整体作为一个元素产出。
+ * 解码器是有状态的，每个响应流需要独立实例，推荐通过{@link #decode(Flux, ObjectMapper)}使用；
+ * 直接使用时需在结束后调用{@link #close()}
+ */
+public class JsonArrayStreamDecoder {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean rootSeen;
+    private TokenBuffer current;
+    private int depth;
+
+    public JsonArrayStreamDecoder(ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 将字节流解码为顶层数组元素流
+     */
+    public static Flux<JsonNode> decode(Flux<DataBuffer> body, ObjectMapper objectMapper) {
+        return Flux.defer(() -> {
+            JsonArrayStreamDecoder decoder;
+            try {
+                decoder = new JsonArrayStreamDecoder(objectMapper);
+            } catch (IOException e) {
+                return Flux.<JsonNode>error(e);
+            }
+            return body
+                    .concatMap(buffer -> {
+                        try {
+                            return Flux.fromIterable(decoder.feed(buffer));
+                        } catch (IOException e) {
+                            return Flux.<JsonNode>error(e);
+                        }
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        try {
+                            return Flux.fromIterable(decoder.endOfInput());
+                        } catch (IOException e) {
+                            return Flux.<JsonNode>error(e);
+                        }
+                    }))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    // 正常结束、出错或下游取消时都释放解析器与未闭合元素的缓冲
+                    .doFinally(signal -> decoder.close());
+        });
+    }
+
+    /**
+     * 输入一个数据块，返回其中闭合的全部元素；数据块在方法内释放
+     */
+    public List<JsonNode> feed(DataBuffer buffer) throws IOException {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return feed(bytes);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * 输入一段字节，返回其中闭合的全部元素
+     */
+    public List<JsonNode> feed(byte[] bytes) throws IOException {
+        feeder.feedInput(bytes, 0, bytes.length);
+        return drain();
+    }
+
+    /**
+     * 标记输入结束，返回剩余的元素
+     */
+    public List<JsonNode> endOfInput() throws IOException {
+        feeder.endOfInput();
+        List<JsonNode> rest = drain();
+        if (current != null) {
+            throw new IOException("JSON流在元素未闭合时结束");
+        }
+        return rest;
+    }
+
+    /**
+     * 关闭解析器并丢弃未闭合的元素，可重复调用
+     */
+    public void close() {
+        try {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            parser.close();
+        } catch (IOException e) {
+            // 关闭内存中的解析器不涉及IO，异常无需处理
+        }
+    }
+
+    private List<JsonNode> drain() throws IOException {
+        List<JsonNode> elements = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (!rootSeen) {
+                rootSeen = true;
+                if (token == JsonToken.START_ARRAY) {
+                    // 顶层数组本身不产出，只产出其中的元素
+                    continue;
+                }
+            }
+            if (current == null) {
+                if (token == JsonToken.END_ARRAY) {
+                    // 顶层数组结束
+                    continue;
+                }
+                current = new TokenBuffer(parser);
+            }
+
+            current.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+
+            if (depth == 0) {
+                JsonNode element;
+                try (TokenBuffer completed = current; JsonParser elementParser = completed.asParser(objectMapper)) {
+                    current = null;
+                    element = objectMapper.readTree(elementParser);
+                }
+                if (elements == null) {
+                    elements = new ArrayList<>(2);
+                }
+                elements.add(element);
+            }
+        }
+        return elements != null ? elements : Collections.emptyList();
+    }
+}
@@ -0,0 +1,153 @@
+package com.vocata.ai.llm.support;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * OpenAI兼容格式SSE响应的增量解码器
+ *
+ * 直接在DataBuffer上按字节查找换行进行分帧，只有完整的data行才会被解码为字符串：
+ * 1. 换行符0x0A不会出现在UTF-8多字节序列内部，按字节分帧天然不会截断中文字符
+ * 2. 完整落在单个DataBuffer内的行直接从缓冲区解码，不经过byte[]中转
+ * 3. 跨DataBuffer的半行暂存在内部字节缓冲中，与后续数据拼接后再解码
+ * 4. 非data行（注释、event、空行）只做字节比较，不产生任何字符串
+ *
+ * 解码器是有状态的，每个响应流需要独立实例，推荐通过{@link #decode(Flux)}使用
+ */
+public class SseDataDecoder {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte SPACE = ' ';
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final String DONE_MARKER = "[DONE]";
+
+    private byte[] pending = new byte[256];
+    private int pendingLength;
+
+    /**
+     * 将SSE字节流解码为data事件内容流（不含"data:"前缀，已过滤[DONE]结束标记）
+     */
+    public static Flux<String> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            SseDataDecoder decoder = new SseDataDecoder();
+            return body
+                    .concatMapIterable(decoder::feed)
+                    .concatWith(Mono.fromCallable(decoder::flush))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * 输入一个数据块，返回其中闭合的全部data事件；数据块在方法内释放
+     */
+    public List<String> feed(DataBuffer buffer) {
+        try {
+            List<String> events = null;
+            int end = buffer.writePosition();
+            int lineStart = buffer.readPosition();
+
+            for (int i = lineStart; i < end; i++) {
+                if (buffer.getByte(i) != LF) {
+                    continue;
+                }
+
+                String data;
+                if (pendingLength > 0) {
+                    appendPending(buffer, lineStart, i - lineStart);
+                    data = decodeLine(pending, pendingLength);
+                    pendingLength = 0;
+                } else {
+                    data = decodeLine(buffer, lineStart, i - lineStart);
+                }
+
+                if (data != null) {
+                    if (events == null) {
+                        events = new ArrayList<>(4);
+                    }
+                    events.add(data);
+                }
+                lineStart = i + 1;
+            }
+
+            if (lineStart < end) {
+                appendPending(buffer, lineStart, end - lineStart);
+            }
+            return events != null ? events : Collections.emptyList();
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * 流结束时处理没有以换行结尾的最后一行
+     */
+    public String flush() {
+        if (pendingLength == 0) {
+            return null;
+        }
+        String data = decodeLine(pending, pendingLength);
+        pendingLength = 0;
+        return data;
+    }
+
+    private String decodeLine(DataBuffer buffer, int offset, int length) {
+        if (length > 0 && buffer.getByte(offset + length - 1) == CR) {
+            length--;
+        }
+        if (length < DATA_PREFIX.length) {
+            return null;
+        }
+        for (int k = 0; k < DATA_PREFIX.length; k++) {
+            if (buffer.getByte(offset + k) != DATA_PREFIX[k]) {
+                return null;
+            }
+        }
+        int payload = offset + DATA_PREFIX.length;
+        if (payload < offset + length && buffer.getByte(payload) == SPACE) {
+            payload++;
+        }
+        return toEvent(buffer.toString(payload, offset + length - payload, StandardCharsets.UTF_8));
+    }
+
+    private String decodeLine(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == CR) {
+            length--;
+        }
+        if (length < DATA_PREFIX.length
+                || !Arrays.equals(line, 0, DATA_PREFIX.length, DATA_PREFIX, 0, DATA_PREFIX.length)) {
+            return null;
+        }
+        int payload = DATA_PREFIX.length;
+        if (payload < length && line[payload] == SPACE) {
+            payload++;
+        }
+        return toEvent(new String(line, payload, length - payload, StandardCharsets.UTF_8));
+    }
+
+    private String toEvent(String data) {
+        if (data.isEmpty() || DONE_MARKER.equals(data)) {
+            return null;
+        }
+        return data;
+    }
+
+    private void appendPending(DataBuffer buffer, int offset, int length) {
+        int required = pendingLength + length;
+        if (required > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(required, pending.length * 2));
+        }
+        for (int k = 0; k < length; k++) {
+            pending[pendingLength + k] = buffer.getByte(offset + k);
+        }
+        pendingLength = required;
+    }
+}
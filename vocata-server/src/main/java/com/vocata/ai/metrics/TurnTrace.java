@@ -0,0 +1,128 @@
+package com.vocata.ai.metrics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单轮对话的阶段打点
+ *
+ * 各阶段起点：
+ * 1. stt：客户端结束录音（音频流结束）到最终识别结果；识别结果先于录音结束给出时从轮次开始算起
+ * 2. llm_first_token / llm_complete：发起LLM请求到首个非空token / 回复结束；复用推测请求时按推测请求的实际发起与生成时刻计算
+ * 3. tts_first_byte / tts_complete：第一句送入TTS到首段音频 / 全部音频合成完成
+ * 另外记录用户说完（音频流结束，文字对话为轮次开始）到首段回复音频的耗时，按是否命中推测执行分开统计
+ *
+ * 打点可能来自不同线程，首次类事件用原子标志保证只记录一次
+ */
+public final class TurnTrace {
+
+    private final VoiceTurnMetrics metrics;
+    private final String traceId;
+    private final String mode;
+    private final long startNanos;
+
+    private volatile long audioEndNanos;
+    private volatile long llmStartNanos;
+    private volatile long ttsStartNanos;
+    private volatile String speculation = VoiceTurnMetrics.SPECULATION_OFF;
+
+    private final AtomicBoolean sttRecorded = new AtomicBoolean();
+    private final AtomicBoolean firstTokenRecorded = new AtomicBoolean();
+    private final AtomicBoolean ttsStarted = new AtomicBoolean();
+    private final AtomicBoolean firstAudioRecorded = new AtomicBoolean();
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    TurnTrace(VoiceTurnMetrics metrics, String traceId, String mode, long startNanos) {
+        this.metrics = metrics;
+        this.traceId = traceId;
+        this.mode = mode;
+        this.startNanos = startNanos;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * 标记本轮推测执行的结果，影响首段音频耗时的标签
+     */
+    public void setSpeculation(String speculation) {
+        this.speculation = speculation;
+    }
+
+    public void audioEnded() {
+        audioEndNanos = System.nanoTime();
+    }
+
+    public void sttFinal(String provider) {
+        if (sttRecorded.compareAndSet(false, true)) {
+            long now = System.nanoTime();
+            long from = audioEndNanos > 0 ? audioEndNanos : startNanos;
+            metrics.recordStage(VoiceTurnMetrics.STAGE_STT, provider, VoiceTurnMetrics.NO_MODEL, now - from);
+        }
+    }
+
+    public void llmStarted() {
+        llmStarted(System.nanoTime());
+    }
+
+    /**
+     * 请求早于链路订阅发起时（复用推测请求），传入实际发起时刻
+     */
+    public void llmStarted(long startNanos) {
+        llmStartNanos = startNanos;
+    }
+
+    public void llmToken(String provider, String model) {
+        llmToken(provider, model, System.nanoTime());
+    }
+
+    /**
+     * @param tokenNanos 首个token实际生成的时刻，回放缓存的输出时早于链路收到的时刻
+     */
+    public void llmToken(String provider, String model, long tokenNanos) {
+        if (llmStartNanos > 0 && firstTokenRecorded.compareAndSet(false, true)) {
+            metrics.recordStage(VoiceTurnMetrics.STAGE_LLM_FIRST_TOKEN, provider, model, tokenNanos - llmStartNanos);
+        }
+    }
+
+    public void llmCompleted(String provider, String model) {
+        llmCompleted(provider, model, System.nanoTime());
+    }
+
+    public void llmCompleted(String provider, String model, long completedNanos) {
+        if (llmStartNanos > 0) {
+            metrics.recordStage(VoiceTurnMetrics.STAGE_LLM_COMPLETE, provider, model, completedNanos - llmStartNanos);
+        }
+    }
+
+    public void ttsStarted() {
+        if (ttsStarted.compareAndSet(false, true)) {
+            ttsStartNanos = System.nanoTime();
+        }
+    }
+
+    public void ttsAudio(String provider) {
+        if (ttsStartNanos > 0 && firstAudioRecorded.compareAndSet(false, true)) {
+            long now = System.nanoTime();
+            metrics.recordStage(VoiceTurnMetrics.STAGE_TTS_FIRST_BYTE, provider, VoiceTurnMetrics.NO_MODEL,
+                    now - ttsStartNanos);
+            metrics.recordFirstAudio(mode, speculation, now - (audioEndNanos > 0 ? audioEndNanos : startNanos));
+        }
+    }
+
+    public void ttsCompleted(String provider) {
+        if (ttsStartNanos > 0) {
+            metrics.recordStage(VoiceTurnMetrics.STAGE_TTS_COMPLETE, provider, VoiceTurnMetrics.NO_MODEL,
+                    System.nanoTime() - ttsStartNanos);
+        }
+    }
+
+    /**
+     * 整轮完成，只记录一次
+     */
+    public void completed() {
+        if (completed.compareAndSet(false, true)) {
+            metrics.recordTurn(mode, System.nanoTime() - startNanos);
+        }
+    }
+}
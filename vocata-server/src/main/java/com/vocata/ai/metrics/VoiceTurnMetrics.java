@@ -0,0 +1,165 @@
+package com.vocata.ai.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语音对话链路耗时指标
+ *
+ * 每个阶段记录为vocata.voice.stage计时器（带百分位直方图），标签：
+ * stage 阶段名、provider 服务提供者、model 模型（无模型概念的阶段为none）。
+ * 整轮耗时记录为vocata.voice.turn，标签mode区分语音与文字对话
+ */
+@Component
+public class VoiceTurnMetrics {
+
+    public static final String STAGE_TIMER = "vocata.voice.stage";
+
+    public static final String TURN_TIMER = "vocata.voice.turn";
+
+    public static final String LLM_SPEED_SUMMARY = "vocata.llm.tokens.per.second";
+
+    public static final String FIRST_AUDIO_TIMER = "vocata.voice.first.audio";
+
+    public static final String SPECULATION_COUNTER = "vocata.llm.speculation";
+
+    public static final String SPECULATION_CHARS_COUNTER = "vocata.llm.speculation.chars";
+
+    public static final String SPECULATION_OFF = "off";
+    public static final String SPECULATION_NONE = "none";
+    public static final String SPECULATION_HIT = "hit";
+    public static final String SPECULATION_MISS = "miss";
+
+    public static final String STAGE_STT = "stt";
+    public static final String STAGE_LLM_FIRST_TOKEN = "llm_first_token";
+    public static final String STAGE_LLM_COMPLETE = "llm_complete";
+    public static final String STAGE_TTS_FIRST_BYTE = "tts_first_byte";
+    public static final String STAGE_TTS_COMPLETE = "tts_complete";
+    public static final String STAGE_WS_FLUSH = "ws_flush";
+
+    public static final String NO_MODEL = "none";
+
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(60);
+
+    private final MeterRegistry meterRegistry;
+
+    // 标签组合 -> 计时器，避免每次记录都重新构建Meter ID
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public VoiceTurnMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 开始一轮对话的计时，返回的轨迹对象在链路各阶段边界打点
+     *
+     * @param mode voice或text
+     */
+    public TurnTrace startTurn(String mode) {
+        String traceId = UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        return new TurnTrace(this, traceId, mode, System.nanoTime());
+    }
+
+    /**
+     * 记录一个阶段耗时
+     */
+    public void recordStage(String stage, String provider, String model, long nanos) {
+        String key = stage + '|' + provider + '|' + model;
+        timers.computeIfAbsent(key, k -> Timer.builder(STAGE_TIMER)
+                        .description("语音对话链路各阶段耗时")
+                        .tag("stage", stage)
+                        .tag("provider", provider)
+                        .tag("model", model)
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(MAX_EXPECTED)
+                        .register(meterRegistry))
+                .record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次下行写出耗时（消息进入会话出站缓冲或直接写入连接）
+     */
+    public void recordFlush(long nanos) {
+        recordStage(STAGE_WS_FLUSH, "websocket", NO_MODEL, nanos);
+    }
+
+    /**
+     * 记录LLM生成速度，数据来自提供者回传的性能指标
+     */
+    public void recordTokensPerSecond(String provider, String model, double tokensPerSecond) {
+        if (Double.isNaN(tokensPerSecond) || Double.isInfinite(tokensPerSecond) || tokensPerSecond <= 0) {
+            return;
+        }
+        summaries.computeIfAbsent(provider + '|' + model, k -> DistributionSummary.builder(LLM_SPEED_SUMMARY)
+                        .description("LLM生成速度")
+                        .baseUnit("tokens/s")
+                        .tag("provider", provider)
+                        .tag("model", model)
+                        .register(meterRegistry))
+                .record(tokensPerSecond);
+    }
+
+    /**
+     * 记录一次推测执行的结果：hit 最终结果与推测一致，miss 不一致，
+     * superseded 被更新的稳定中间结果取代，abandoned 本轮没有最终结果（取消或识别失败）
+     */
+    public void recordSpeculation(String outcome) {
+        counters.computeIfAbsent("speculation|" + outcome, k -> Counter.builder(SPECULATION_COUNTER)
+                        .description("LLM推测执行次数")
+                        .tag("outcome", outcome)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * 记录推测请求生成的字符数，浪费率 = wasted / (used + wasted)
+     */
+    public void recordSpeculativeChars(boolean wasted, long chars) {
+        if (chars <= 0) {
+            return;
+        }
+        String usage = wasted ? "wasted" : "used";
+        counters.computeIfAbsent("speculation.chars|" + usage, k -> Counter.builder(SPECULATION_CHARS_COUNTER)
+                        .description("LLM推测请求生成的字符数")
+                        .baseUnit("chars")
+                        .tag("usage", usage)
+                        .register(meterRegistry))
+                .increment(chars);
+    }
+
+    void recordFirstAudio(String mode, String speculation, long nanos) {
+        timers.computeIfAbsent("first.audio|" + mode + '|' + speculation, k -> Timer.builder(FIRST_AUDIO_TIMER)
+                        .description("用户说完到首段回复音频的耗时")
+                        .tag("mode", mode)
+                        .tag("speculation", speculation)
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(MAX_EXPECTED)
+                        .register(meterRegistry))
+                .record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+
+    void recordTurn(String mode, long nanos) {
+        timers.computeIfAbsent("turn|" + mode, k -> Timer.builder(TURN_TIMER)
+                        .description("一轮对话从开始到完成的总耗时")
+                        .tag("mode", mode)
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(MAX_EXPECTED)
+                        .register(meterRegistry))
+                .record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,548 @@
+package com.vocata.ai.resilience;
+
+import com.vocata.common.exception.BizException;
+import com.vocata.common.result.ApiCode;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 响应式舱壁（单个上游提供者）
+ *
+ * 组合三种保护手段，防止突发流量把无限量的并发请求压到上游后集体超时：
+ * 1. 自适应并发上限（AIMD）：请求成功且首个元素延迟在目标内时加性增加上限，
+ *    失败或延迟超标时乘性减小上限
+ * 2. 等待队列：超过并发上限的请求排队，超过截止时间仍未获得许可则快速失败
+ * 3. 熔断器：最近N次调用失败率超过阈值后熔断一段时间，之后放行少量探测请求决定是否恢复
+ *
+ * 被拒绝的请求以{@link BizException}（{@link ApiCode#AI_SERVICE_UNAVAILABLE}）结束
+ */
+public class AdaptiveBulkhead {
+
+    /**
+     * 熔断器状态
+     */
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * 拒绝原因
+     */
+    public enum RejectReason {
+        CIRCUIT_OPEN,
+        QUEUE_FULL,
+        QUEUE_TIMEOUT
+    }
+
+    private final String name;
+    private final BulkheadProperties properties;
+    private final Scheduler timer;
+
+    // ---- 以下状态均由this保护 ----
+    private double limit;
+    private int inFlight;
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int outcomeIndex;
+    private int failuresInWindow;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    // ---- 指标 ----
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong rejectedCircuitOpen = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedQueueTimeout = new AtomicLong();
+
+    public AdaptiveBulkhead(String name, BulkheadProperties properties) {
+        this(name, properties, Schedulers.parallel());
+    }
+
+    AdaptiveBulkhead(String name, BulkheadProperties properties, Scheduler timer) {
+        this.name = name;
+        this.properties = properties;
+        this.timer = timer;
+        this.limit = clamp(properties.getInitialLimit());
+        this.outcomes = new boolean[Math.max(1, properties.getWindowSize())];
+    }
+
+    /**
+     * 在舱壁保护下执行上游调用
+     *
+     * @param source 上游调用（冷流，获得许可后才会订阅）
+     * @param failedElement 判断元素是否表示失败（如提供者吞掉异常后返回的错误块），可为null
+     */
+    public <T> Flux<T> execute(Flux<T> source, Predicate<T> failedElement) {
+        return execute(source, failedElement, true);
+    }
+
+    /**
+     * 在舱壁保护下执行上游调用
+     *
+     * @param source 上游调用（冷流，获得许可后才会订阅）
+     * @param failedElement 判断元素是否表示失败，可为null
+     * @param latencySensitive 调用结果是否参与并发上限调整；长连接（如流式识别）的时长与首个结果
+     *                         取决于用户何时开口、说多久，不能反映上游负载，只计入熔断统计
+     */
+    public <T> Flux<T> execute(Flux<T> source, Predicate<T> failedElement, boolean latencySensitive) {
+        return Flux.usingWhen(
+                acquire(latencySensitive),
+                permit -> source.doOnNext(element -> permit.onElement(failedElement != null && failedElement.test(element))),
+                permit -> Mono.fromRunnable(() -> permit.release(SignalType.ON_COMPLETE)),
+                (permit, error) -> Mono.fromRunnable(() -> permit.release(SignalType.ON_ERROR)),
+                permit -> Mono.fromRunnable(() -> permit.release(SignalType.CANCEL)));
+    }
+
+    /**
+     * 在舱壁保护下执行返回单个结果的上游调用
+     */
+    public <T> Mono<T> execute(Mono<T> source) {
+        return execute(source.flux(), null).next();
+    }
+
+    private Mono<Permit> acquire(boolean latencySensitive) {
+        return Mono.create(sink -> {
+            Permit granted = null;
+            RejectReason rejected = null;
+            Waiter waiter = null;
+
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                boolean probe = false;
+                if (circuitState == CircuitState.OPEN && now - openedAt >= properties.getOpenDurationMs()) {
+                    transitionTo(CircuitState.HALF_OPEN);
+                }
+                if (circuitState == CircuitState.OPEN) {
+                    rejected = RejectReason.CIRCUIT_OPEN;
+                } else if (circuitState == CircuitState.HALF_OPEN) {
+                    if (halfOpenInFlight >= properties.getHalfOpenProbes()) {
+                        rejected = RejectReason.CIRCUIT_OPEN;
+                    } else {
+                        probe = true;
+                    }
+                }
+
+                if (rejected == null) {
+                    if (inFlight < currentLimit()) {
+                        granted = grant(probe, latencySensitive);
+                    } else if (queue.size() >= properties.getMaxQueueSize()) {
+                        rejected = RejectReason.QUEUE_FULL;
+                    } else {
+                        waiter = new Waiter(sink, latencySensitive);
+                        queue.addLast(waiter);
+                    }
+                }
+            }
+
+            if (granted != null) {
+                sink.success(granted);
+            } else if (rejected != null) {
+                sink.error(reject(rejected));
+            } else {
+                Waiter queued = waiter;
+                queued.deadline = timer.schedule(() -> expire(queued),
+                        properties.getQueueTimeoutMs(), TimeUnit.MILLISECONDS);
+                sink.onCancel(() -> cancel(queued));
+            }
+        });
+    }
+
+    /**
+     * 分配一个许可，调用方需持有锁
+     */
+    private Permit grant(boolean probe, boolean latencySensitive) {
+        inFlight++;
+        if (probe) {
+            halfOpenInFlight++;
+        }
+        return new Permit(probe, latencySensitive);
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+        }
+        waiter.sink.error(reject(RejectReason.QUEUE_TIMEOUT));
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit orphan;
+        synchronized (this) {
+            if (queue.remove(waiter)) {
+                waiter.disposeDeadline();
+                return;
+            }
+            orphan = waiter.permit;
+        }
+        // 许可已分配但下游在收到前取消，归还许可
+        if (orphan != null) {
+            orphan.release(SignalType.CANCEL);
+        }
+    }
+
+    /**
+     * 归还许可后把空出的名额分给队首等待者；若因本次结果熔断，排队请求直接拒绝
+     */
+    private void onRelease(Permit permit, Boolean success, long firstElementLatencyMs) {
+        List<Waiter> toGrant = null;
+        List<Waiter> toReject = null;
+
+        synchronized (this) {
+            inFlight--;
+            if (permit.probe) {
+                halfOpenInFlight--;
+            }
+
+            if (success != null) {
+                recordOutcome(success, permit.probe);
+                if (permit.latencySensitive) {
+                    adjustLimit(success, firstElementLatencyMs);
+                }
+            }
+
+            if (circuitState == CircuitState.OPEN) {
+                if (!queue.isEmpty()) {
+                    toReject = new ArrayList<>(queue);
+                    queue.clear();
+                }
+            } else {
+                while (!queue.isEmpty() && inFlight < currentLimit()) {
+                    boolean probe = circuitState == CircuitState.HALF_OPEN;
+                    if (probe && halfOpenInFlight >= properties.getHalfOpenProbes()) {
+                        break;
+                    }
+                    Waiter next = queue.pollFirst();
+                    next.permit = grant(probe, next.latencySensitive);
+                    if (toGrant == null) {
+                        toGrant = new ArrayList<>(2);
+                    }
+                    toGrant.add(next);
+                }
+            }
+        }
+
+        if (toGrant != null) {
+            for (Waiter waiter : toGrant) {
+                waiter.disposeDeadline();
+                waiter.sink.success(waiter.permit);
+            }
+        }
+        if (toReject != null) {
+            for (Waiter waiter : toReject) {
+                waiter.disposeDeadline();
+                waiter.sink.error(reject(RejectReason.CIRCUIT_OPEN));
+            }
+        }
+    }
+
+    /**
+     * AIMD：成功且首元素延迟达标时上限加 1/limit（每轮约+1），否则乘以退避系数
+     */
+    private void adjustLimit(boolean success, long firstElementLatencyMs) {
+        boolean slow = firstElementLatencyMs > properties.getLatencyTargetMs();
+        if (success && !slow) {
+            // 并发利用率不足一半时上限并未制约吞吐，不增长，避免空闲期上限无限膨胀
+            if ((inFlight + 1) * 2 >= currentLimit()) {
+                limit = clamp(limit + 1.0 / limit);
+            }
+        } else {
+            limit = clamp(limit * properties.getBackoffRatio());
+        }
+    }
+
+    private void recordOutcome(boolean success, boolean probe) {
+        if (success) {
+            successCount.incrementAndGet();
+        } else {
+            failureCount.incrementAndGet();
+        }
+
+        if (circuitState == CircuitState.HALF_OPEN) {
+            if (!probe) {
+                return;
+            }
+            if (!success) {
+                transitionTo(CircuitState.OPEN);
+            } else if (++halfOpenSuccesses >= properties.getHalfOpenProbes()) {
+                transitionTo(CircuitState.CLOSED);
+            }
+            return;
+        }
+
+        if (outcomeCount == outcomes.length) {
+            if (!outcomes[outcomeIndex]) {
+                failuresInWindow--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = success;
+        if (!success) {
+            failuresInWindow++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+
+        if (circuitState == CircuitState.CLOSED
+                && outcomeCount >= properties.getMinimumCalls()
+                && (double) failuresInWindow / outcomeCount >= properties.getFailureRateThreshold()) {
+            transitionTo(CircuitState.OPEN);
+        }
+    }
+
+    private void transitionTo(CircuitState state) {
+        circuitState = state;
+        if (state == CircuitState.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        halfOpenSuccesses = 0;
+        if (state == CircuitState.CLOSED) {
+            outcomeCount = 0;
+            outcomeIndex = 0;
+            failuresInWindow = 0;
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+
+    private BizException reject(RejectReason reason) {
+        switch (reason) {
+            case CIRCUIT_OPEN -> rejectedCircuitOpen.incrementAndGet();
+            case QUEUE_FULL -> rejectedQueueFull.incrementAndGet();
+            case QUEUE_TIMEOUT -> rejectedQueueTimeout.incrementAndGet();
+        }
+        String message = switch (reason) {
+            case CIRCUIT_OPEN -> name + "已熔断，暂停调用";
+            case QUEUE_FULL -> name + "并发已满，等待队列已满";
+            case QUEUE_TIMEOUT -> name + "并发已满，排队超时";
+        };
+        return new BizException(ApiCode.AI_SERVICE_UNAVAILABLE, message);
+    }
+
+    /**
+     * 获取当前指标快照
+     */
+    public synchronized BulkheadMetrics snapshot() {
+        return new BulkheadMetrics(
+                name,
+                circuitState,
+                currentLimit(),
+                inFlight,
+                queue.size(),
+                successCount.get(),
+                failureCount.get(),
+                rejectedCircuitOpen.get(),
+                rejectedQueueFull.get(),
+                rejectedQueueTimeout.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final boolean latencySensitive;
+        private Disposable deadline;
+        private Permit permit;
+
+        private Waiter(MonoSink<Permit> sink, boolean latencySensitive) {
+            this.sink = sink;
+            this.latencySensitive = latencySensitive;
+        }
+
+        private void disposeDeadline() {
+            if (deadline != null) {
+                deadline.dispose();
+            }
+        }
+    }
+
+    /**
+     * 一次调用持有的许可，归还是幂等的
+     */
+    private final class Permit {
+        private final boolean probe;
+        private final boolean latencySensitive;
+        private final long acquiredAt = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long firstElementAt;
+        private volatile boolean failedElementSeen;
+
+        private Permit(boolean probe, boolean latencySensitive) {
+            this.probe = probe;
+            this.latencySensitive = latencySensitive;
+        }
+
+        private void onElement(boolean failed) {
+            if (firstElementAt == 0) {
+                firstElementAt = System.currentTimeMillis();
+            }
+            if (failed) {
+                failedElementSeen = true;
+            }
+        }
+
+        private void release(SignalType signal) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            long latency = 0;
+            if (latencySensitive) {
+                long end = firstElementAt != 0 ? firstElementAt : System.currentTimeMillis();
+                latency = end - acquiredAt;
+            }
+            Boolean success = switch (signal) {
+                case ON_COMPLETE -> !failedElementSeen;
+                case ON_ERROR -> false;
+                // 下游主动取消（如用户打断）不代表上游健康状况，不计入统计
+                default -> failedElementSeen ? Boolean.FALSE : null;
+            };
+            onRelease(this, success, latency);
+        }
+    }
+
+    /**
+     * 舱壁配置
+     */
+    public static class BulkheadProperties {
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        private double backoffRatio = 0.7;
+        private long latencyTargetMs = 5000;
+        private int maxQueueSize = 32;
+        private long queueTimeoutMs = 3000;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private long openDurationMs = 15000;
+        private int halfOpenProbes = 2;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public long getLatencyTargetMs() {
+            return latencyTargetMs;
+        }
+
+        public void setLatencyTargetMs(long latencyTargetMs) {
+            this.latencyTargetMs = latencyTargetMs;
+        }
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public long getQueueTimeoutMs() {
+            return queueTimeoutMs;
+        }
+
+        public void setQueueTimeoutMs(long queueTimeoutMs) {
+            this.queueTimeoutMs = queueTimeoutMs;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public long getOpenDurationMs() {
+            return openDurationMs;
+        }
+
+        public void setOpenDurationMs(long openDurationMs) {
+            this.openDurationMs = openDurationMs;
+        }
+
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+
+        public void setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.vocata.ai.resilience;
+
+import com.vocata.ai.dto.UnifiedAiRequest;
+import com.vocata.ai.dto.UnifiedAiStreamChunk;
+import com.vocata.ai.llm.LlmProvider;
+import reactor.core.publisher.Flux;
+
+/**
+ * 带舱壁保护的LLM提供者（装饰器）
+ * 提供者返回的ERROR块视为调用失败，计入熔断统计
+ */
+public class BulkheadLlmProvider implements LlmProvider {
+
+    private final LlmProvider delegate;
+    private final AdaptiveBulkhead bulkhead;
+
+    public BulkheadLlmProvider(LlmProvider delegate, AdaptiveBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public Flux<UnifiedAiStreamChunk> streamChat(UnifiedAiRequest request) {
+        return bulkhead.execute(Flux.defer(() -> delegate.streamChat(request)),
+                chunk -> chunk.getType() == UnifiedAiStreamChunk.ChunkType.ERROR);
+    }
+
+    @Override
+    public int getMaxContextLength() {
+        return delegate.getMaxContextLength();
+    }
+
+    @Override
+    public String[] getSupportedModels() {
+        return delegate.getSupportedModels();
+    }
+
+    @Override
+    public int estimateTokens(String text) {
+        return delegate.estimateTokens(text);
+    }
+
+    @Override
+    public boolean validateModelConfig(UnifiedAiRequest.ModelConfig config) {
+        return delegate.validateModelConfig(config);
+    }
+}
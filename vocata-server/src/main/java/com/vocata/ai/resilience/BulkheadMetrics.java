@@ -0,0 +1,35 @@
+package com.vocata.ai.resilience;
+
+/**
+ * 舱壁指标快照
+ *
+ * @param name 提供者名称
+ * @param circuitState 熔断器状态
+ * @param limit 当前自适应并发上限
+ * @param inFlight 正在使用的许可数
+ * @param queued 排队中的请求数
+ * @param successCount 成功调用数
+ * @param failureCount 失败调用数
+ * @param rejectedCircuitOpen 因熔断被拒绝的请求数
+ * @param rejectedQueueFull 因队列已满被拒绝的请求数
+ * @param rejectedQueueTimeout 因排队超时被拒绝的请求数
+ */
+public record BulkheadMetrics(
+        String name,
+        AdaptiveBulkhead.CircuitState circuitState,
+        int limit,
+        int inFlight,
+        int queued,
+        long successCount,
+        long failureCount,
+        long rejectedCircuitOpen,
+        long rejectedQueueFull,
+        long rejectedQueueTimeout) {
+
+    /**
+     * 被拒绝的请求总数
+     */
+    public long rejectedTotal() {
+        return rejectedCircuitOpen + rejectedQueueFull + rejectedQueueTimeout;
+    }
+}
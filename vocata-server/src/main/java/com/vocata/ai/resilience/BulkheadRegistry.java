@@ -0,0 +1,169 @@
+package com.vocata.ai.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 舱壁注册表
+ * 按提供者名称维护独立的舱壁实例，所有提供者共用同一套配置；
+ * 流式识别在整个会话期间占用许可，使用单独的固定并发上限。
+ * 每个舱壁创建时注册Micrometer指标（标签bulkhead为舱壁名称），可在Prometheus中告警
+ */
+@Component
+public class BulkheadRegistry {
+
+    public static final String LIMIT_GAUGE = "vocata.bulkhead.limit";
+
+    public static final String IN_FLIGHT_GAUGE = "vocata.bulkhead.in.flight";
+
+    public static final String QUEUED_GAUGE = "vocata.bulkhead.queued";
+
+    public static final String CIRCUIT_GAUGE = "vocata.bulkhead.circuit.state";
+
+    public static final String CALLS_COUNTER = "vocata.bulkhead.calls";
+
+    public static final String REJECTED_COUNTER = "vocata.bulkhead.rejected";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ai.resilience.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.resilience.initial-limit:8}")
+    private int initialLimit;
+
+    @Value("${ai.resilience.min-limit:1}")
+    private int minLimit;
+
+    @Value("${ai.resilience.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${ai.resilience.backoff-ratio:0.7}")
+    private double backoffRatio;
+
+    @Value("${ai.resilience.latency-target-ms:5000}")
+    private long latencyTargetMs;
+
+    @Value("${ai.resilience.max-queue-size:32}")
+    private int maxQueueSize;
+
+    @Value("${ai.resilience.queue-timeout-ms:3000}")
+    private long queueTimeoutMs;
+
+    @Value("${ai.resilience.circuit.window-size:20}")
+    private int windowSize;
+
+    @Value("${ai.resilience.circuit.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.resilience.circuit.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${ai.resilience.circuit.open-duration-ms:15000}")
+    private long openDurationMs;
+
+    @Value("${ai.resilience.circuit.half-open-probes:2}")
+    private int halfOpenProbes;
+
+    @Value("${ai.resilience.stt-stream.max-concurrent:512}")
+    private int sttStreamMaxConcurrent;
+
+    private final ConcurrentMap<String, AdaptiveBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取（必要时创建）指定提供者的舱壁
+     */
+    public AdaptiveBulkhead bulkhead(String providerName) {
+        return bulkheads.computeIfAbsent(providerName,
+                name -> registerMeters(meterRegistry, new AdaptiveBulkhead(name, buildProperties())));
+    }
+
+    /**
+     * 获取（必要时创建）指定提供者的流式识别舱壁
+     * 每个语音会话持有一个许可，并发上限按会话数配置且不随调用结果调整
+     */
+    public AdaptiveBulkhead streamingSttBulkhead(String providerName) {
+        return bulkheads.computeIfAbsent(providerName, name -> {
+            AdaptiveBulkhead.BulkheadProperties properties = buildProperties();
+            properties.setInitialLimit(sttStreamMaxConcurrent);
+            properties.setMinLimit(sttStreamMaxConcurrent);
+            properties.setMaxLimit(sttStreamMaxConcurrent);
+            return registerMeters(meterRegistry, new AdaptiveBulkhead(name, properties));
+        });
+    }
+
+    /**
+     * 获取所有舱壁的指标快照
+     */
+    public List<BulkheadMetrics> snapshot() {
+        return bulkheads.values().stream()
+                .map(AdaptiveBulkhead::snapshot)
+                .sorted(Comparator.comparing(BulkheadMetrics::name))
+                .toList();
+    }
+
+    /**
+     * 注册舱壁指标：并发上限、在用许可、排队数与熔断状态（0关闭，1半开，2打开）为仪表，
+     * 调用结果（outcome=success/failure）与拒绝原因（reason=circuit_open/queue_full/queue_timeout）为累计计数
+     */
+    static AdaptiveBulkhead registerMeters(MeterRegistry registry, AdaptiveBulkhead bulkhead) {
+        if (registry == null) {
+            return bulkhead;
+        }
+        String name = bulkhead.getName();
+        Gauge.builder(LIMIT_GAUGE, bulkhead, b -> b.snapshot().limit())
+                .description("舱壁当前并发上限").tag("bulkhead", name).register(registry);
+        Gauge.builder(IN_FLIGHT_GAUGE, bulkhead, b -> b.snapshot().inFlight())
+                .description("舱壁正在使用的许可数").tag("bulkhead", name).register(registry);
+        Gauge.builder(QUEUED_GAUGE, bulkhead, b -> b.snapshot().queued())
+                .description("舱壁排队中的请求数").tag("bulkhead", name).register(registry);
+        Gauge.builder(CIRCUIT_GAUGE, bulkhead, b -> switch (b.snapshot().circuitState()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                })
+                .description("熔断器状态：0关闭，1半开，2打开").tag("bulkhead", name).register(registry);
+        FunctionCounter.builder(CALLS_COUNTER, bulkhead, b -> b.snapshot().successCount())
+                .description("舱壁调用数").tag("bulkhead", name).tag("outcome", "success").register(registry);
+        FunctionCounter.builder(CALLS_COUNTER, bulkhead, b -> b.snapshot().failureCount())
+                .description("舱壁调用数").tag("bulkhead", name).tag("outcome", "failure").register(registry);
+        FunctionCounter.builder(REJECTED_COUNTER, bulkhead, b -> b.snapshot().rejectedCircuitOpen())
+                .description("舱壁拒绝的请求数").tag("bulkhead", name).tag("reason", "circuit_open").register(registry);
+        FunctionCounter.builder(REJECTED_COUNTER, bulkhead, b -> b.snapshot().rejectedQueueFull())
+                .description("舱壁拒绝的请求数").tag("bulkhead", name).tag("reason", "queue_full").register(registry);
+        FunctionCounter.builder(REJECTED_COUNTER, bulkhead, b -> b.snapshot().rejectedQueueTimeout())
+                .description("舱壁拒绝的请求数").tag("bulkhead", name).tag("reason", "queue_timeout").register(registry);
+        return bulkhead;
+    }
+
+    private AdaptiveBulkhead.BulkheadProperties buildProperties() {
+        AdaptiveBulkhead.BulkheadProperties properties = new AdaptiveBulkhead.BulkheadProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(minLimit);
+        properties.setMaxLimit(maxLimit);
+        properties.setBackoffRatio(backoffRatio);
+        properties.setLatencyTargetMs(latencyTargetMs);
+        properties.setMaxQueueSize(maxQueueSize);
+        properties.setQueueTimeoutMs(queueTimeoutMs);
+        properties.setWindowSize(windowSize);
+        properties.setMinimumCalls(minimumCalls);
+        properties.setFailureRateThreshold(failureRateThreshold);
+        properties.setOpenDurationMs(openDurationMs);
+        properties.setHalfOpenProbes(halfOpenProbes);
+        return properties;
+    }
+}
@@ -0,0 +1,43 @@
+package com.vocata.ai.resilience;
+
+import com.vocata.ai.stt.SttClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 带舱壁保护的STT客户端（装饰器）
+ * 流式识别在整个语音会话期间占用许可，使用按会话数配置的独立舱壁，
+ * 其时长与首个结果延迟不参与并发上限调整；单次识别使用常规的自适应舱壁
+ */
+public class BulkheadSttClient implements SttClient {
+
+    private final SttClient delegate;
+    private final AdaptiveBulkhead bulkhead;
+    private final AdaptiveBulkhead streamBulkhead;
+
+    public BulkheadSttClient(SttClient delegate, AdaptiveBulkhead bulkhead, AdaptiveBulkhead streamBulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.streamBulkhead = streamBulkhead;
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public Flux<SttResult> streamRecognize(Flux<byte[]> audioStream, SttConfig config) {
+        return streamBulkhead.execute(Flux.defer(() -> delegate.streamRecognize(audioStream, config)), null, false);
+    }
+
+    @Override
+    public Mono<SttResult> recognize(byte[] audioData, SttConfig config) {
+        return bulkhead.execute(Mono.defer(() -> delegate.recognize(audioData, config)));
+    }
+}
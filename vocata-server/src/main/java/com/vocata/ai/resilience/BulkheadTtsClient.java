@@ -0,0 +1,54 @@
+package com.vocata.ai.resilience;
+
+import com.vocata.ai.tts.TtsClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 带舱壁保护的TTS客户端（装饰器）
+ */
+public class BulkheadTtsClient implements TtsClient {
+
+    private final TtsClient delegate;
+    private final AdaptiveBulkhead bulkhead;
+
+    public BulkheadTtsClient(TtsClient delegate, AdaptiveBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public Flux<TtsResult> streamSynthesizeWithText(Flux<String> textStream, TtsConfig config) {
+        return bulkhead.execute(Flux.defer(() -> delegate.streamSynthesizeWithText(textStream, config)), null);
+    }
+
+    @Override
+    public Flux<byte[]> streamSynthesize(Flux<String> textStream, TtsConfig config) {
+        return bulkhead.execute(Flux.defer(() -> delegate.streamSynthesize(textStream, config)), null);
+    }
+
+    @Override
+    public Mono<TtsResult> synthesize(String text, TtsConfig config) {
+        return bulkhead.execute(Mono.defer(() -> delegate.synthesize(text, config)));
+    }
+
+    @Override
+    public String[] getSupportedVoices() {
+        return delegate.getSupportedVoices();
+    }
+
+    @Override
+    public double estimateAudioDuration(String text) {
+        return delegate.estimateAudioDuration(text);
+    }
+}
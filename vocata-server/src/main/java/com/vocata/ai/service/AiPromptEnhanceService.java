@@ -2,19 +2,26 @@ package com.vocata.ai.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.vocata.character.entity.Character;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * AI角色提示词增强服务
  *
- * 通过代码常量模板和角色信息动态构建系统级增强提示词
+ * 通过代码常量模板和角色信息动态构建系统级增强提示词。
+ * 渲染结果按角色ID缓存，并记录渲染时角色的更新时间，更新时间变化或角色被修改时重新渲染
  */
 @Service
 public class AiPromptEnhanceService {
@@ -24,6 +31,11 @@ public class AiPromptEnhanceService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Value("${ai.prompt.cache-max-size:1000}")
+    private long cacheMaxSize;
+
+    private Cache<Long, RenderedPrompt> renderedPrompts;
+
     /**
      * 系统级角色扮演提示词模板常量
      */
@@ -68,11 +80,26 @@ public class AiPromptEnhanceService {
 13. **【短期记忆原则】:** 记忆仅限于当前会话。
             """;
 
+    private static final PromptTemplate SYSTEM_PROMPT = PromptTemplate.compile(SYSTEM_PROMPT_TEMPLATE);
+
     /**
      * 默认角色人设常量
      */
     private static final String DEFAULT_PERSONA = "你是一个友好、乐于助人的AI语音助手。你会以自然、温暖的方式与用户交流，帮助解答问题并提供有用的信息。你会保持礼貌和专业，始终以用户的需求为优先。";
 
+    /**
+     * 渲染结果及渲染时角色的更新时间
+     */
+    private record RenderedPrompt(LocalDateTime version, String prompt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        renderedPrompts = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
     /**
      * 构建增强的角色提示词
      *
@@ -85,18 +112,54 @@ public class AiPromptEnhanceService {
             return DEFAULT_PERSONA;
         }
 
+        Long characterId = character.getId();
+        if (characterId != null) {
+            RenderedPrompt cached = renderedPrompts.getIfPresent(characterId);
+            if (cached != null && Objects.equals(cached.version(), character.getUpdateDate())) {
+                return cached.prompt();
+            }
+        }
+
+        String prompt = renderPrompt(character);
+        if (prompt == null) {
+            // 渲染失败不缓存，下次重试
+            return character.getPersona() != null ? character.getPersona() : DEFAULT_PERSONA;
+        }
+        // 未持久化的角色没有稳定的缓存键，不缓存
+        if (characterId != null) {
+            renderedPrompts.put(characterId, new RenderedPrompt(character.getUpdateDate(), prompt));
+        }
+        return prompt;
+    }
+
+    /**
+     * 角色信息被修改后清除其缓存的提示词
+     *
+     * 经更新时间字段的修改会自动失效，这里覆盖不改更新时间的写入路径
+     */
+    public void evict(Long characterId) {
+        if (characterId != null) {
+            renderedPrompts.invalidate(characterId);
+        }
+    }
+
+    /**
+     * 使用角色信息填充模板占位符
+     *
+     * @return 渲染后的提示词，失败时返回null
+     */
+    private String renderPrompt(Character character) {
         try {
-            // 使用角色信息替换模板占位符
-            return SYSTEM_PROMPT_TEMPLATE
-                    .replace("{CHARACTER_PERSONA}", buildPersonaText(character.getPersona()))
-                    .replace("{CHARACTER_NAME}", buildNameText(character.getName()))
-                    .replace("{CHARACTER_PERSONALITY}", buildPersonalityText(character.getPersonalityTraits()))
-                    .replace("{CHARACTER_SPEAKING_STYLE}", buildSpeakingStyleText(character.getSpeakingStyle()))
-                    .replace("{CHARACTER_DIALOGUES}", buildDialogueText(character.getExampleDialogues()));
+            return SYSTEM_PROMPT.render(Map.of(
+                    "CHARACTER_PERSONA", buildPersonaText(character.getPersona()),
+                    "CHARACTER_NAME", buildNameText(character.getName()),
+                    "CHARACTER_PERSONALITY", buildPersonalityText(character.getPersonalityTraits()),
+                    "CHARACTER_SPEAKING_STYLE", buildSpeakingStyleText(character.getSpeakingStyle()),
+                    "CHARACTER_DIALOGUES", buildDialogueText(character.getExampleDialogues())));
 
         } catch (Exception e) {
             logger.error("构建角色{}增强提示词失败，fallback到原始persona", character.getName(), e);
-            return character.getPersona() != null ? character.getPersona() : DEFAULT_PERSONA;
+            return null;
         }
     }
 
@@ -2,12 +2,15 @@ package com.vocata.ai.service;
 
 import com.vocata.ai.dto.UnifiedAiRequest;
 import com.vocata.ai.dto.UnifiedAiStreamChunk;
+import com.vocata.ai.event.PipelineEvent;
 import com.vocata.ai.llm.LlmProvider;
-import com.vocata.ai.response.AiStreamingResponse;
+import com.vocata.ai.metrics.TurnTrace;
+import com.vocata.ai.metrics.VoiceTurnMetrics;
 import com.vocata.ai.response.SttResult;
 import com.vocata.ai.response.LlmResponse;
 import com.vocata.ai.service.AiPromptEnhanceService;
 import com.vocata.ai.stt.SttClient;
+import com.vocata.ai.tts.SentenceSegmenter;
 import com.vocata.ai.tts.TtsClient;
 import com.vocata.character.entity.Character;
 import com.vocata.character.mapper.CharacterMapper;
@@ -20,7 +23,9 @@ import com.vocata.conversation.entity.Conversation;
 import com.vocata.conversation.entity.Message;
 import com.vocata.conversation.mapper.ConversationMapper;
 import com.vocata.conversation.mapper.MessageMapper;
+import com.vocata.conversation.service.ConversationContextCache;
 import com.vocata.conversation.service.ConversationService;
+import com.vocata.conversation.service.ConversationSummaryService;
 import com.vocata.file.service.FileService;
 import com.vocata.file.dto.FileUploadResponse;
 import org.slf4j.Logger;
@@ -30,9 +35,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * AI流式编排服务 - 核心编排服务
@@ -45,12 +54,41 @@ public class AiStreamingService {
 
     private static final Logger logger = LoggerFactory.getLogger(AiStreamingService.class);
 
+    private static final String SUMMARY_SECTION = "\n\n#### **四、 此前对话摘要**\n\n";
+
+    // 两轮之间最多新增的消息数（用户消息与角色回复，留有余量）
+    private static final int SUMMARY_SLACK_MESSAGES = 4;
+
     @Autowired
     private LlmProvider llmProvider;
 
     @Value("${qiniu.ai.default-model:x-ai/grok-4-fast}")
     private String defaultLlmModel;
 
+    @Value("${ai.tts.segment-max-chars:80}")
+    private int segmentMaxChars;
+
+    @Value("${ai.tts.segment-concurrency:2}")
+    private int segmentConcurrency;
+
+    @Value("${ai.context.max-tokens:4000}")
+    private int contextMaxTokens;
+
+    @Value("${ai.context.reserved-output-tokens:1024}")
+    private int contextReservedOutputTokens;
+
+    /**
+     * 推测执行：识别中间结果稳定一段时间后提前发起LLM请求
+     */
+    @Value("${ai.llm.speculative.enabled:false}")
+    private boolean speculativeEnabled;
+
+    @Value("${ai.llm.speculative.stable-ms:400}")
+    private long speculativeStableMs;
+
+    @Value("${ai.llm.speculative.min-chars:4}")
+    private int speculativeMinChars;
+
     @Autowired
     private SttClient sttClient;
 
@@ -66,6 +104,12 @@ public class AiStreamingService {
     @Autowired
     private MessageMapper messageMapper;
 
+    @Autowired
+    private ConversationContextCache conversationContextCache;
+
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
     @Autowired
     private CharacterMapper characterMapper;
 
@@ -78,6 +122,10 @@ public class AiStreamingService {
     @Autowired
     private AiPromptEnhanceService aiPromptEnhanceService;
 
+    @Autowired
+    private VoiceTurnMetrics voiceTurnMetrics;
+
+
 
     /**
      * 处理音频输入的完整AI对话链路
@@ -86,12 +134,13 @@ public class AiStreamingService {
      * @param conversationUuid 对话UUID
      * @param audioStream 音频数据流
      * @param userId 用户ID
-     * @return 包含文本流和音频流的混合响应
+     * @return 识别结果、文本流与音频流混合的链路事件
      */
-    public Flux<AiStreamingResponse> processAudioInput(UUID conversationUuid,
-                                                      Flux<byte[]> audioStream,
-                                                      Long userId) {
-        logger.info("开始处理用户{}的音频输入，对话UUID: {}", userId, conversationUuid);
+    public Flux<PipelineEvent> processAudioInput(UUID conversationUuid,
+                                                 Flux<byte[]> audioStream,
+                                                 Long userId) {
+        TurnTrace trace = voiceTurnMetrics.startTurn("voice");
+        logger.info("开始处理用户{}的音频输入，对话UUID: {}, traceId: {}", userId, conversationUuid, trace.getTraceId());
 
         return Mono.fromCallable(() -> {
             // 验证对话权限
@@ -107,52 +156,132 @@ public class AiStreamingService {
                 return Flux.error(new RuntimeException("角色不存在"));
             }
 
-            return processAudioWithCharacter(conversation, character, audioStream, userId);
+            return processAudioWithCharacter(conversation, character, audioStream, userId, trace);
         })
         .doOnError(error -> logger.error("AI流式处理失败", error))
-        .onErrorResume(error -> {
-            // 返回错误响应
-            AiStreamingResponse errorResponse = new AiStreamingResponse();
-            errorResponse.setType(AiStreamingResponse.ResponseType.ERROR);
-            errorResponse.setError("处理失败: " + error.getMessage());
-            return Flux.just(errorResponse);
-        });
+        .onErrorResume(error -> Flux.just(new PipelineEvent.Error("处理失败: " + error.getMessage())));
     }
 
     /**
      * 使用指定角色处理音频输入
      */
-    private Flux<AiStreamingResponse> processAudioWithCharacter(Conversation conversation,
-                                                              Character character,
-                                                              Flux<byte[]> audioStream,
-                                                              Long userId) {
+    private Flux<PipelineEvent> processAudioWithCharacter(Conversation conversation,
+                                                          Character character,
+                                                          Flux<byte[]> audioStream,
+                                                          Long userId,
+                                                          TurnTrace trace) {
         logger.info("使用角色{}处理音频输入", character.getName());
 
         // 第一步：STT语音识别
         SttClient.SttConfig sttConfig = new SttClient.SttConfig(character.getLanguage());
 
-        // 共享同一条STT识别流，避免对单播音频流重复订阅
-        Flux<SttClient.SttResult> sttFlux = sttClient.streamRecognize(audioStream, sttConfig)
-                .replay()
-                .autoConnect(1);
+        // 共享同一条STT识别流，避免对单播音频流重复订阅；本轮链路结束或被打断取消时断开识别连接
+        SharedUpstream<SttClient.SttResult> sharedStt = new SharedUpstream<>(
+                sttClient.streamRecognize(audioStream.doOnComplete(trace::audioEnded), sttConfig));
+        Flux<SttClient.SttResult> sttFlux = sharedStt.flux();
 
-        Flux<AiStreamingResponse> streamingStt = sttFlux
+        Flux<PipelineEvent> streamingStt = sttFlux
                 .filter(this::isValidSttResult)
                 .doOnNext(sttResult -> logger.debug("STT识别: {}", sttResult.getText()))
-                .map(sttResult -> {
-                    AiStreamingResponse response = new AiStreamingResponse();
-                    response.setType(AiStreamingResponse.ResponseType.STT_RESULT);
-                    response.setSttResult(sttResult);
-                    return response;
-                });
+                .map(sttResult -> new PipelineEvent.SttPartial(sttResult.getText(), sttResult.isFinal(),
+                        sttResult.getConfidence()));
+
+        // 推测执行：中间结果稳定后提前发起LLM请求，最终结果到达时决定复用还是重新请求
+        AtomicReference<LlmSpeculation> pending = new AtomicReference<>();
+        AtomicBoolean transcriptFinal = new AtomicBoolean();
 
-        Flux<AiStreamingResponse> llmAndTts = sttFlux
+        Flux<PipelineEvent> llmAndTts = sttFlux
                 .filter(result -> result.isFinal() && isValidSttResult(result))
                 .take(1)
+                .doOnNext(finalSttResult -> trace.sttFinal(sttClient.getProviderName()))
                 .flatMap(finalSttResult -> processLlmWithTts(conversation, character,
-                        finalSttResult.getText(), userId));
+                        finalSttResult.getText(), userId, true, trace,
+                        claimSpeculation(pending, finalSttResult.getText(), trace)));
+
+        if (!speculativeEnabled) {
+            return sharedStt.bind(streamingStt.concatWith(llmAndTts));
+        }
+        trace.setSpeculation(VoiceTurnMetrics.SPECULATION_NONE);
+
+        Mono<PipelineEvent> speculate = sttFlux
+                .doOnNext(result -> {
+                    if (result.isFinal()) {
+                        transcriptFinal.set(true);
+                    }
+                })
+                .doOnComplete(() -> transcriptFinal.set(true))
+                .takeWhile(result -> !result.isFinal())
+                .filter(this::isValidSttResult)
+                .map(result -> result.getText().trim())
+                .distinctUntilChanged()
+                // 只有在stable-ms内没有新的中间结果时才放行
+                .sampleTimeout(text -> Mono.delay(Duration.ofMillis(speculativeStableMs)))
+                // 构建请求需要查询历史消息，不占用计时线程
+                .publishOn(Schedulers.boundedElastic())
+                .filter(text -> !transcriptFinal.get() && text.length() >= speculativeMinChars)
+                .doOnNext(text -> startSpeculation(pending, transcriptFinal, conversation, character, text))
+                .then(Mono.empty());
+
+        return sharedStt.bind(Flux.merge(streamingStt.concatWith(llmAndTts), speculate))
+                .doFinally(signal -> {
+                    // 本轮结束（含打断取消）时仍未被认领的推测请求全部作废
+                    transcriptFinal.set(true);
+                    LlmSpeculation abandoned = pending.getAndSet(null);
+                    if (abandoned != null) {
+                        voiceTurnMetrics.recordSpeculation("abandoned");
+                        voiceTurnMetrics.recordSpeculativeChars(true, abandoned.cancel());
+                    }
+                });
+    }
+
+    /**
+     * 以稳定的中间结果发起推测请求，取代之前尚未认领的推测
+     */
+    private void startSpeculation(AtomicReference<LlmSpeculation> pending, AtomicBoolean transcriptFinal,
+                                  Conversation conversation, Character character, String transcript) {
+        LlmSpeculation current = pending.get();
+        if (current != null && current.matches(transcript)) {
+            return;
+        }
+        logger.debug("识别中间结果已稳定，推测发起LLM请求: {}", transcript);
+        // 推测请求可能被作废，摘要在认领后才触发
+        PreparedLlmRequest prepared = buildLlmRequest(conversation, character, transcript);
+        LlmSpeculation speculation = new LlmSpeculation(transcript, prepared.request(), prepared.droppedContext(),
+                llmProvider.streamChat(prepared.request()));
+        LlmSpeculation previous = pending.getAndSet(speculation);
+        if (previous != null) {
+            voiceTurnMetrics.recordSpeculation("superseded");
+            voiceTurnMetrics.recordSpeculativeChars(true, previous.cancel());
+        }
+        // 构建请求期间最终结果已到达或本轮已结束，且没有被认领时直接作废
+        if (transcriptFinal.get() && pending.compareAndSet(speculation, null)) {
+            voiceTurnMetrics.recordSpeculation("abandoned");
+            voiceTurnMetrics.recordSpeculativeChars(true, speculation.cancel());
+        }
+    }
 
-        return streamingStt.concatWith(llmAndTts);
+    /**
+     * 最终识别结果到达时认领推测请求：文本一致则复用其输出，否则取消
+     *
+     * @return 可复用的推测请求，没有时返回null
+     */
+    private LlmSpeculation claimSpeculation(AtomicReference<LlmSpeculation> pending, String finalTranscript,
+                                            TurnTrace trace) {
+        LlmSpeculation speculation = pending.getAndSet(null);
+        if (speculation == null) {
+            return null;
+        }
+        if (speculation.matches(finalTranscript)) {
+            logger.debug("推测请求命中，复用已生成的{}个字符", speculation.getGeneratedChars());
+            voiceTurnMetrics.recordSpeculation(VoiceTurnMetrics.SPECULATION_HIT);
+            trace.setSpeculation(VoiceTurnMetrics.SPECULATION_HIT);
+            return speculation;
+        }
+        logger.debug("推测请求未命中，最终识别结果: {}", finalTranscript);
+        voiceTurnMetrics.recordSpeculation(VoiceTurnMetrics.SPECULATION_MISS);
+        voiceTurnMetrics.recordSpeculativeChars(true, speculation.cancel());
+        trace.setSpeculation(VoiceTurnMetrics.SPECULATION_MISS);
+        return null;
     }
 
     private boolean isValidSttResult(SttClient.SttResult result) {
@@ -169,11 +298,17 @@ public class AiStreamingService {
 
     /**
      * 处理LLM和TTS链路
+     *
+     * @param captioned 音频是否附带对应句子的字幕（语音对话为true，文字对话已有文本流，为false）
+     * @param speculation 已命中的推测请求，不为null时直接复用其输出，不再发起新的LLM请求
      */
-    private Flux<AiStreamingResponse> processLlmWithTts(Conversation conversation,
-                                                       Character character,
-                                                       String userText,
-                                                       Long userId) {
+    private Flux<PipelineEvent> processLlmWithTts(Conversation conversation,
+                                                  Character character,
+                                                  String userText,
+                                                  Long userId,
+                                                  boolean captioned,
+                                                  TurnTrace trace,
+                                                  LlmSpeculation speculation) {
         logger.info("开始LLM处理，用户输入: {}", userText);
 
         // 保存用户消息
@@ -181,127 +316,176 @@ public class AiStreamingService {
                                                    SenderType.USER, userId)
                 .doOnSuccess(msg -> logger.debug("已保存用户消息: {}", msg.getId()));
 
-        // 构建LLM请求
-        UnifiedAiRequest llmRequest = buildLlmRequest(conversation, character, userText);
+        // 构建LLM请求，只有实际使用的请求才把被丢弃的历史折叠进摘要
+        UnifiedAiRequest llmRequest;
+        if (speculation != null) {
+            llmRequest = speculation.getRequest();
+            refreshSummary(conversation, speculation.getDroppedContext());
+        } else {
+            PreparedLlmRequest prepared = buildLlmRequest(conversation, character, userText);
+            llmRequest = prepared.request();
+            refreshSummary(conversation, prepared.droppedContext());
+        }
+        String llmProviderName = llmProvider.getProviderName();
+        String llmModel = llmRequest.getModelConfig().getModelName();
+        // 复用推测请求时，本轮被打断需要同时停止仍在后台生成的推测请求
+        Flux<UnifiedAiStreamChunk> llmOutput = speculation != null
+                ? speculation.getOutput().doOnCancel(speculation::cancel)
+                : llmProvider.streamChat(llmRequest);
 
         return saveUserMessage.thenMany(
-            llmProvider.streamChat(llmRequest)
-                    .replay()
-                    .autoConnect(1)
+            llmOutput
+                    // 复用推测请求时，请求在识别结束前就已发起，按实际发起时刻计时
+                    .doOnSubscribe(subscription -> trace.llmStarted(
+                            speculation != null ? speculation.getIssuedNanos() : System.nanoTime()))
                     .publish(sharedFlux -> {
                         StringBuilder fullResponseBuilder = new StringBuilder();
 
-                        Flux<AiStreamingResponse> llmStream = sharedFlux
+                        Flux<PipelineEvent> llmStream = sharedFlux
                                 .doOnNext(chunk -> {
                                     String chunkContent = chunk.getContent();
                                     if (chunkContent != null) {
                                         fullResponseBuilder.append(chunkContent);
+                                        if (!chunkContent.isEmpty()) {
+                                            trace.llmToken(llmProviderName, llmModel, speculation != null
+                                                    ? speculation.getFirstTokenNanos() : System.nanoTime());
+                                        }
+                                    }
+                                    if (chunk.getPerformance() != null && chunk.getPerformance().getTokensPerSecond() != null) {
+                                        voiceTurnMetrics.recordTokensPerSecond(llmProviderName, llmModel,
+                                                chunk.getPerformance().getTokensPerSecond());
                                     }
                                     logger.debug("LLM响应块: {}", chunkContent);
                                 })
-                                .map(chunk -> {
-                                    AiStreamingResponse response = new AiStreamingResponse();
-                                    response.setType(AiStreamingResponse.ResponseType.LLM_CHUNK);
-                                    response.setLlmChunk(chunk);
-                                    return response;
-                                });
-
-                        Flux<AiStreamingResponse> ttsStream = sharedFlux
-                                .ignoreElements()
-                                .then(Mono.fromCallable(() -> fullResponseBuilder.toString()))
-                                .map(String::trim)
-                                .filter(text -> !text.isEmpty())
-                                .flatMapMany(fullText -> {
-                                    logger.info("LLM完整回复已生成，准备执行TTS: {}", fullText);
-                                    return processTtsResponse(conversation.getId(),
-                                                             character,
-                                                             fullText,
-                                                             userId);
-                                });
-
-                        return llmStream.concatWith(ttsStream);
+                                .doOnComplete(() -> trace.llmCompleted(llmProviderName, llmModel,
+                                        speculation != null && speculation.getCompletedNanos() > 0
+                                                ? speculation.getCompletedNanos() : System.nanoTime()))
+                                .map(chunk -> new PipelineEvent.LlmDelta(chunkText(chunk),
+                                        Boolean.TRUE.equals(chunk.getIsFinal())));
+
+                        // 句级流水线：每闭合一句立即送入TTS，音频按句子顺序输出
+                        Flux<PipelineEvent> ttsStream = processTtsResponse(character,
+                                SentenceSegmenter.segment(sharedFlux.map(this::chunkText), segmentMaxChars), captioned, trace);
+
+                        return Flux.merge(llmStream, ttsStream)
+                                .concatWith(Flux.defer(() -> {
+                                    String fullText = fullResponseBuilder.toString().trim();
+                                    if (fullText.isEmpty()) {
+                                        return Flux.<PipelineEvent>empty();
+                                    }
+                                    logger.info("LLM完整回复已生成: {}", fullText);
+                                    // 语音对话逐句下发的是字幕，最后下发一次完整回复，与原有tts_result语义一致
+                                    Flux<PipelineEvent> replyText = captioned
+                                            ? Flux.just(new PipelineEvent.ReplyText(fullText, character.getVoiceId()))
+                                            : Flux.empty();
+                                    // 保存AI消息并发送完成信号
+                                    return replyText.concatWith(saveMessage(conversation.getId(), fullText,
+                                                       SenderType.CHARACTER, userId)
+                                            .doOnSuccess(msg -> logger.debug("已保存AI消息: {}", msg.getId()))
+                                            .doOnSuccess(msg -> {
+                                                trace.completed();
+                                                if (speculation != null) {
+                                                    voiceTurnMetrics.recordSpeculativeChars(false,
+                                                            speculation.getGeneratedChars());
+                                                }
+                                                logger.info("本轮对话处理完成，traceId: {}", trace.getTraceId());
+                                            })
+                                            .<PipelineEvent>map(msg -> new PipelineEvent.Complete("处理完成", trace.getTraceId())));
+                                }));
                     })
         );
     }
 
     /**
      * 处理TTS响应
+     * 逐句合成，允许少量句子并发合成以隐藏TTS延迟，但输出严格保持句子顺序
      */
-    private Flux<AiStreamingResponse> processTtsResponse(Long conversationId,
-                                                        Character character,
-                                                        String aiText,
-                                                        Long userId) {
-        logger.info("开始TTS处理，AI回复: {}", aiText);
-
-        // 保存AI消息
-        Mono<Message> saveAiMessage = saveMessage(conversationId, aiText,
-                                                SenderType.CHARACTER, userId)
-                .doOnSuccess(msg -> logger.debug("已保存AI消息: {}", msg.getId()));
-
+    private Flux<PipelineEvent> processTtsResponse(Character character, Flux<String> sentences, boolean captioned,
+                                                   TurnTrace trace) {
         // 配置TTS
         TtsClient.TtsConfig ttsConfig = new TtsClient.TtsConfig(character.getVoiceId(),
                                                                character.getLanguage());
-
-        return saveAiMessage.thenMany(
-            ttsClient.streamSynthesizeWithText(Flux.just(aiText), ttsConfig)
-                    .doOnNext(ttsResult -> logger.debug("生成TTS结果: {} bytes音频, 文字: {}",
-                        ttsResult.getAudioData().length, ttsResult.getCorrespondingText()))
-                    .map(ttsResult -> {
+        String ttsProviderName = ttsClient.getProviderName();
+
+        return sentences.index().flatMapSequential(indexedSentence -> {
+            int sentenceIndex = indexedSentence.getT1().intValue();
+            String sentence = indexedSentence.getT2();
+            logger.info("开始TTS处理，句子: {}", sentence);
+            return ttsClient.streamSynthesizeWithText(Flux.just(sentence), ttsConfig)
+                    .doOnSubscribe(subscription -> trace.ttsStarted())
+                    .doOnNext(ttsResult -> {
+                        logger.debug("生成TTS结果: {} bytes音频, 文字: {}",
+                                ttsResult.getAudioData().length, ttsResult.getCorrespondingText());
                         if (ttsResult.getCorrespondingText() == null || ttsResult.getCorrespondingText().trim().isEmpty()) {
-                            ttsResult.setCorrespondingText(aiText);
-                        }
-                        if (ttsResult.getVoiceId() == null || ttsResult.getVoiceId().trim().isEmpty()) {
-                            ttsResult.setVoiceId(character.getVoiceId());
+                            ttsResult.setCorrespondingText(sentence);
                         }
-                        if (ttsResult.getAudioFormat() == null || ttsResult.getAudioFormat().trim().isEmpty()) {
-                            ttsResult.setAudioFormat(ttsConfig.getAudioFormat());
-                        }
-                        if (ttsResult.getSampleRate() <= 0) {
-                            ttsResult.setSampleRate(ttsConfig.getSampleRate());
-                        }
-                        // 返回包含音频和文字的TTS结果流
-                        AiStreamingResponse response = new AiStreamingResponse();
-                        response.setType(AiStreamingResponse.ResponseType.TTS_RESULT);
-                        response.setTtsResult(ttsResult);
-                        // 保留原有的audioData字段以向后兼容
-                        response.setAudioData(ttsResult.getAudioData());
-                        return response;
-                    })
-                    .concatWith(Mono.fromCallable(() -> {
-                        // 发送完成信号
-                        AiStreamingResponse response = new AiStreamingResponse();
-                        response.setType(AiStreamingResponse.ResponseType.COMPLETE);
-                        return response;
-                    }))
-        );
+                        // 每句单独调用TTS，片段序号以句子序号为准
+                        ttsResult.setSegmentIndex(sentenceIndex);
+                    });
+        }, segmentConcurrency)
+        .doOnNext(ttsResult -> trace.ttsAudio(ttsProviderName))
+        .doOnComplete(() -> trace.ttsCompleted(ttsProviderName))
+        // 按下发顺序重新编号，使序号在整轮回复内连续
+        .index((sequence, ttsResult) -> new PipelineEvent.TtsAudio(
+                ttsResult.getAudioData(),
+                captioned ? ttsResult.getCorrespondingText() : null,
+                hasText(ttsResult.getAudioFormat()) ? ttsResult.getAudioFormat() : ttsConfig.getAudioFormat(),
+                ttsResult.getSampleRate() > 0 ? ttsResult.getSampleRate() : ttsConfig.getSampleRate(),
+                hasText(ttsResult.getVoiceId()) ? ttsResult.getVoiceId() : character.getVoiceId(),
+                sequence,
+                ttsResult.getSegmentIndex(),
+                ttsResult.getFrameIndex(),
+                ttsResult.isLastFrame(),
+                System.currentTimeMillis()));
+    }
+
+    private boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * 提取LLM响应块中的文本，供分句器使用
+     */
+    private String chunkText(UnifiedAiStreamChunk chunk) {
+        return chunk.getContent() != null ? chunk.getContent() : "";
+    }
+
+    /**
+     * 构建好的LLM请求，附带超出上下文预算被丢弃的历史消息
+     */
+    private record PreparedLlmRequest(UnifiedAiRequest request,
+                                      List<ConversationContextCache.ContextMessage> droppedContext) {
     }
 
     /**
-     * 构建LLM请求
+     * 构建LLM请求，没有副作用；被丢弃的历史由调用方在确定使用该请求后交给{@link #refreshSummary}
      */
-    private UnifiedAiRequest buildLlmRequest(Conversation conversation, Character character, String userText) {
+    private PreparedLlmRequest buildLlmRequest(Conversation conversation, Character character, String userText) {
         UnifiedAiRequest request = new UnifiedAiRequest();
 
-        // 使用系统级提示词增强构建增强的角色人设
-        String enhancedSystemPrompt = aiPromptEnhanceService.buildEnhancedPrompt(character);
-        request.setSystemPrompt(enhancedSystemPrompt);
+        // 使用系统级提示词增强构建增强的角色人设，附带更早对话的滚动摘要
+        String systemPrompt = aiPromptEnhanceService.buildEnhancedPrompt(character);
+        if (hasText(conversation.getLastMessageSummary())) {
+            systemPrompt = systemPrompt + SUMMARY_SECTION + conversation.getLastMessageSummary().trim();
+        }
+        request.setSystemPrompt(systemPrompt);
 
         // 设置用户消息
         request.setUserMessage(userText);
 
-        // 获取历史对话上下文 - 限制查询最近20条消息
-        List<Message> recentMessages = messageMapper.findRecentMessagesByConversationId(conversation.getId(), 20);
-        Collections.reverse(recentMessages);
-        List<UnifiedAiRequest.ChatMessage> contextMessages = new ArrayList<>();
-
-        // 限制上下文长度
-        int contextWindow = character.getContextWindow() != null ? character.getContextWindow() : 10;
-        int startIndex = Math.max(0, recentMessages.size() - contextWindow);
-
-        for (int i = startIndex; i < recentMessages.size(); i++) {
-            Message msg = recentMessages.get(i);
-            String role = (msg.getSenderType() == SenderType.USER.getCode()) ? "user" : "assistant";
-            contextMessages.add(new UnifiedAiRequest.ChatMessage(role, msg.getTextContent()));
+        // 获取历史对话上下文 - 从上下文缓存读取，按token预算从新到旧填充
+        int budget = Math.min(contextMaxTokens, llmProvider.getMaxContextLength() - contextReservedOutputTokens)
+                - llmProvider.estimateTokens(systemPrompt) - llmProvider.estimateTokens(userText);
+        // 缓冲区满时少保留几条，保证消息移出缓冲区之前已经作为被丢弃部分折叠进摘要
+        int maxMessages = conversationContextCache.getCapacity() - SUMMARY_SLACK_MESSAGES;
+        ContextAssembler.Assembly assembly = ContextAssembler.assemble(
+                conversationContextCache.recent(conversation.getId(), Integer.MAX_VALUE),
+                budget, maxMessages, llmProvider::estimateTokens);
+        List<UnifiedAiRequest.ChatMessage> contextMessages = new ArrayList<>(assembly.kept().size());
+
+        for (ConversationContextCache.ContextMessage msg : assembly.kept()) {
+            String role = (msg.senderType() == SenderType.USER.getCode()) ? "user" : "assistant";
+            contextMessages.add(new UnifiedAiRequest.ChatMessage(role, msg.text()));
         }
 
         request.setContextMessages(contextMessages);
@@ -311,11 +495,20 @@ public class AiStreamingService {
         modelConfig.setModelName(defaultLlmModel); // 使用配置的LLM模型
         modelConfig.setTemperature(character.getTemperature() != null ?
                                   character.getTemperature().doubleValue() : 0.7);
-        modelConfig.setContextWindow(contextWindow);
+        modelConfig.setContextWindow(contextMessages.size());
 
         request.setModelConfig(modelConfig);
 
-        return request;
+        return new PreparedLlmRequest(request, assembly.dropped());
+    }
+
+    /**
+     * 把构建请求时被丢弃的历史异步折叠进对话摘要
+     */
+    private void refreshSummary(Conversation conversation, List<ConversationContextCache.ContextMessage> dropped) {
+        if (!dropped.isEmpty()) {
+            conversationSummaryService.refreshSummaryAsync(conversation.getId(), dropped);
+        }
     }
 
     /**
@@ -343,6 +536,7 @@ public class AiStreamingService {
             message.setMetadata(metadata);
 
             messageMapper.insert(message);
+            conversationContextCache.append(message);
 
             // 如果是用户消息，则增加角色聊天计数
             if (senderType == SenderType.USER) {
@@ -431,7 +625,9 @@ public class AiStreamingService {
                     .subscribe(msg -> logger.debug("已保存用户消息: {}", msg.getId()));
 
             // 构建LLM请求
-            UnifiedAiRequest llmRequest = buildLlmRequest(conversation, character, text);
+            PreparedLlmRequest prepared = buildLlmRequest(conversation, character, text);
+            UnifiedAiRequest llmRequest = prepared.request();
+            refreshSummary(conversation, prepared.droppedContext());
 
             // 调用LLM并收集完整响应
             return llmProvider.streamChat(llmRequest)
@@ -475,11 +671,11 @@ public class AiStreamingService {
      * @param conversationUuidStr 对话UUID字符串（统一使用conversation_uuid）
      * @param userId 用户ID字符串
      * @param textMessage 用户输入的文字消息
-     * @return WebSocket格式的响应流（包含文字流和音频流）
+     * @return 文字流与音频流混合的链路事件
      */
-    public Flux<Map<String, Object>> processTextMessage(String conversationUuidStr,
-                                                        String userId,
-                                                        String textMessage) {
+    public Flux<PipelineEvent> processTextMessage(String conversationUuidStr,
+                                                  String userId,
+                                                  String textMessage) {
         logger.info("【文字消息处理】开始处理 - 对话UUID: {}, 用户: {}, 文字: {}", conversationUuidStr, userId, textMessage);
 
         try {
@@ -492,24 +688,14 @@ public class AiStreamingService {
                 logger.info("使用标准UUID格式查询对话: {}", conversationUuid);
             } catch (IllegalArgumentException e) {
                 logger.error("无效的对话UUID格式: {}", conversationUuidStr);
-                Map<String, Object> errorResponse = Map.of(
-                    "type", "error",
-                    "error", "无效的对话UUID格式，请提供标准UUID格式",
-                    "timestamp", System.currentTimeMillis()
-                );
-                return Flux.just(errorResponse);
+                return Flux.just(new PipelineEvent.Error("无效的对话UUID格式，请提供标准UUID格式"));
             }
 
             Conversation conversation = conversationService.getConversationByUuid(conversationUuid);
 
             if (conversation == null) {
                 logger.error("【错误】未找到对话记录: {}", conversationUuid);
-                Map<String, Object> errorResponse = Map.of(
-                    "type", "error",
-                    "error", "对话不存在",
-                    "timestamp", System.currentTimeMillis()
-                );
-                return Flux.just(errorResponse);
+                return Flux.just(new PipelineEvent.Error("对话不存在"));
             }
 
             logger.info("找到对话记录: ID={}, 用户ID={}, 角色ID={}",
@@ -519,12 +705,8 @@ public class AiStreamingService {
             if (!conversation.getUserId().equals(userIdLong)) {
                 logger.error("【权限错误】用户{}尝试访问用户{}的对话{}",
                     userIdLong, conversation.getUserId(), conversationUuid);
-                Map<String, Object> errorResponse = Map.of(
-                    "type", "error",
-                    "error", "无权限访问此对话，对话属于用户" + conversation.getUserId() + "，当前用户" + userIdLong,
-                    "timestamp", System.currentTimeMillis()
-                );
-                return Flux.just(errorResponse);
+                return Flux.just(new PipelineEvent.Error(
+                    "无权限访问此对话，对话属于用户" + conversation.getUserId() + "，当前用户" + userIdLong));
             }
 
             Character character = characterMapper.selectById(conversation.getCharacterId());
@@ -534,130 +716,38 @@ public class AiStreamingService {
 
             if (character == null) {
                 logger.error("【错误】角色不存在: ID={}", conversation.getCharacterId());
-                Map<String, Object> errorResponse = Map.of(
-                    "type", "error",
-                    "error", "角色不存在，ID: " + conversation.getCharacterId(),
-                    "timestamp", System.currentTimeMillis()
-                );
-                return Flux.just(errorResponse);
+                return Flux.just(new PipelineEvent.Error("角色不存在，ID: " + conversation.getCharacterId()));
             }
 
-            // 创建final引用供lambda使用
-            final Conversation finalConversation = conversation;
-            final Long finalUserIdLong = userIdLong;
-
             logger.info("【LLM阶段】开始处理用户文字消息: {}", textMessage);
 
-            // 保存用户消息
-            saveMessage(finalConversation.getId(), textMessage, SenderType.USER, finalUserIdLong)
-                .subscribe(msg -> logger.debug("已保存用户文字消息: {}", msg.getId()));
-
-            // 构建LLM请求
-            UnifiedAiRequest llmRequest = buildLlmRequest(finalConversation, character, textMessage);
-
-            // 收集完整的LLM响应用于TTS
-            StringBuilder fullResponseBuilder = new StringBuilder();
-
-            return llmProvider.streamChat(llmRequest)
-                .doOnNext(chunk -> {
-                    String chunkContent = chunk.getContent() != null ? chunk.getContent() : "";
-                    logger.debug("【LLM阶段】收到文字流块: {}", chunkContent);
-                    fullResponseBuilder.append(chunkContent);
-                })
-                .map(chunk -> {
-                    // 实时返回文字流
-                    Map<String, Object> textResponse = new HashMap<>();
-                    textResponse.put("type", "text_chunk");
-                    textResponse.put("timestamp", System.currentTimeMillis());
-                    Map<String, Object> payload = new HashMap<>();
-                    payload.put("text", chunk.getContent() != null ? chunk.getContent() : "");
-                    payload.put("accumulated_text", chunk.getAccumulatedContent());
-                    payload.put("is_final", chunk.getIsFinal() != null && chunk.getIsFinal());
-                    payload.put("character_name", character.getName());
-                    textResponse.put("payload", payload);
-                    return textResponse;
-                })
-                .concatWith(
-                    // LLM完成后，处理TTS
-                    Mono.fromCallable(() -> fullResponseBuilder.toString())
-                        .filter(fullText -> !fullText.trim().isEmpty())
-                        .doOnNext(fullText -> {
-                            logger.info("【TTS阶段】开始处理完整回复: {}", fullText);
-                            // 保存AI消息
-                            saveMessage(finalConversation.getId(), fullText, SenderType.CHARACTER, finalUserIdLong)
-                                .subscribe(msg -> logger.debug("已保存AI回复消息: {}", msg.getId()));
-                        })
-                        .flatMapMany(fullText -> {
-                            // TTS流式处理 - 正确的架构
-                            TtsClient.TtsConfig ttsConfig = new TtsClient.TtsConfig(
-                                character.getVoiceId(), character.getLanguage());
-
-                            logger.info("【TTS阶段】开始流式语音合成，语音ID: {}", character.getVoiceId());
-
-                            // 直接返回TTS音频流，不收集不上传
-                            return ttsClient.streamSynthesize(Flux.just(fullText), ttsConfig)
-                                .doOnNext(audioData -> logger.debug("【TTS阶段】生成音频块: {} bytes", audioData.length))
-                                .map(audioData -> {
-                                    Map<String, Object> audioResponse = new HashMap<>();
-                                    audioResponse.put("type", "audio_chunk");
-                                    audioResponse.put("timestamp", System.currentTimeMillis());
-                                    audioResponse.put("audio_data", audioData);
-                                    return audioResponse;
-                                })
-                                .doOnComplete(() -> {
-                                    logger.info("【TTS阶段】流式语音合成完成");
-                                })
-                                .concatWith(Mono.fromCallable(() -> {
-                                    // 发送音频完成标志
-                                    Map<String, Object> completeResponse = new HashMap<>();
-                                    completeResponse.put("type", "audio_complete");
-                                    completeResponse.put("timestamp", System.currentTimeMillis());
-                                    return completeResponse;
-                                }));
-                        })
-                )
-                .concatWith(Mono.fromCallable(() -> {
-                    // 发送最终完成信号
-                    Map<String, Object> finalCompleteResponse = new HashMap<>();
-                    finalCompleteResponse.put("type", "complete");
-                    finalCompleteResponse.put("timestamp", System.currentTimeMillis());
-                    finalCompleteResponse.put("message", "处理完成");
-                    logger.info("【处理完成】文字消息处理链路完成");
-                    return finalCompleteResponse;
-                }))
+            // 与语音对话共用LLM -> TTS链路，文字已通过文本流下发，音频不再附带字幕
+            TurnTrace trace = voiceTurnMetrics.startTurn("text");
+            return processLlmWithTts(conversation, character, textMessage, userIdLong, false, trace, null)
+                .doOnComplete(() -> logger.info("【处理完成】文字消息处理链路完成"))
                 .onErrorResume(error -> {
                     logger.error("文字消息处理失败", error);
-                    Map<String, Object> errorResponse = Map.of(
-                        "type", "error",
-                        "error", error.getMessage(),
-                        "timestamp", System.currentTimeMillis()
-                    );
-                    return Flux.just(errorResponse);
+                    return Flux.just(new PipelineEvent.Error(error.getMessage()));
                 });
 
         } catch (Exception e) {
             logger.error("文字消息参数解析失败", e);
-            Map<String, Object> errorResponse = Map.of(
-                "type", "error",
-                "error", "无效的参数: " + e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            );
-            return Flux.just(errorResponse);
+            return Flux.just(new PipelineEvent.Error("无效的参数: " + e.getMessage()));
         }
     }
 
     /**
      * WebSocket专用：处理语音消息的完整链路
-     * 接收音频流，执行STT → LLM → TTS处理，返回WebSocket格式的响应
+     * 接收音频流，执行STT → LLM → TTS处理，返回链路事件
      *
      * @param conversationUuid 对话UUID字符串
      * @param userId 用户ID字符串
      * @param audioStream 音频数据流
-     * @return WebSocket格式的响应流
+     * @return 链路事件流
      */
-    public Flux<Map<String, Object>> processVoiceMessage(String conversationUuid,
-                                                         String userId,
-                                                         Flux<byte[]> audioStream) {
+    public Flux<PipelineEvent> processVoiceMessage(String conversationUuid,
+                                                   String userId,
+                                                   Flux<byte[]> audioStream) {
         logger.info("WebSocket处理语音消息，对话: {}, 用户: {}", conversationUuid, userId);
 
         try {
@@ -665,87 +755,14 @@ public class AiStreamingService {
             Long userIdLong = Long.parseLong(userId);
 
             return processAudioInput(uuid, audioStream, userIdLong)
-                    .map(this::convertToWebSocketResponse)
                     .onErrorResume(error -> {
                         logger.error("语音处理失败", error);
-                        Map<String, Object> errorResponse = Map.of(
-                            "type", "error",
-                            "error", error.getMessage(),
-                            "timestamp", System.currentTimeMillis()
-                        );
-                        return Flux.just(errorResponse);
+                        return Flux.just(new PipelineEvent.Error(error.getMessage()));
                     });
         } catch (Exception e) {
             logger.error("参数解析失败", e);
-            Map<String, Object> errorResponse = Map.of(
-                "type", "error",
-                "error", "无效的参数: " + e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            );
-            return Flux.just(errorResponse);
+            return Flux.just(new PipelineEvent.Error("无效的参数: " + e.getMessage()));
         }
     }
 
-    /**
-     * 将内部AI响应转换为WebSocket响应格式
-     */
-    private Map<String, Object> convertToWebSocketResponse(AiStreamingResponse response) {
-        Map<String, Object> webSocketResponse = new HashMap<>();
-        webSocketResponse.put("timestamp", System.currentTimeMillis());
-
-        switch (response.getType()) {
-            case STT_RESULT:
-                webSocketResponse.put("type", "stt_result");
-                Map<String, Object> sttPayload = new HashMap<>();
-                sttPayload.put("text", response.getSttResult().getText());
-                sttPayload.put("confidence", response.getSttResult().getConfidence());
-                sttPayload.put("is_final", response.getSttResult().isFinal());
-                webSocketResponse.put("payload", sttPayload);
-                break;
-
-            case LLM_CHUNK:
-                webSocketResponse.put("type", "llm_chunk");
-                Map<String, Object> llmPayload = new HashMap<>();
-                llmPayload.put("text", response.getLlmChunk().getContent());
-                llmPayload.put("accumulated_text", response.getLlmChunk().getAccumulatedContent());
-                llmPayload.put("is_final", response.getLlmChunk().getIsFinal());
-                webSocketResponse.put("payload", llmPayload);
-                break;
-
-            case AUDIO_CHUNK:
-                webSocketResponse.put("type", "audio_chunk");
-                webSocketResponse.put("audio_data", response.getAudioData());
-                break;
-
-            case TTS_RESULT:
-                webSocketResponse.put("type", "tts_result");
-                if (response.getTtsResult() != null) {
-                    Map<String, Object> ttsResultMap = new HashMap<>();
-                    ttsResultMap.put("audioData", response.getTtsResult().getAudioData());
-                    ttsResultMap.put("correspondingText", response.getTtsResult().getCorrespondingText());
-                    ttsResultMap.put("audioFormat", response.getTtsResult().getAudioFormat());
-                    ttsResultMap.put("sampleRate", response.getTtsResult().getSampleRate());
-                    ttsResultMap.put("voiceId", response.getTtsResult().getVoiceId());
-                    ttsResultMap.put("startTime", response.getTtsResult().getStartTime());
-                    ttsResultMap.put("endTime", response.getTtsResult().getEndTime());
-                    ttsResultMap.put("durationSeconds", response.getTtsResult().getDurationSeconds());
-                    ttsResultMap.put("metadata", response.getTtsResult().getMetadata());
-                    webSocketResponse.put("tts_result", ttsResultMap);
-                }
-                break;
-
-            case ERROR:
-                webSocketResponse.put("type", "error");
-                webSocketResponse.put("error", response.getError());
-                break;
-
-            case COMPLETE:
-                webSocketResponse.put("type", "complete");
-                webSocketResponse.put("message", "处理完成");
-                break;
-        }
-
-        return webSocketResponse;
-    }
-
 }
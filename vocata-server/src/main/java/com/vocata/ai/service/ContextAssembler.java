@@ -0,0 +1,60 @@
+package com.vocata.ai.service;
+
+import com.vocata.conversation.service.ConversationContextCache.ContextMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * 按token预算组装历史上下文
+ *
+ * 从最新的消息开始向前填充，直到下一条放不下或达到条数上限为止，保证保留的是连续的最近对话；
+ * 更早的消息作为被丢弃部分返回，由调用方折叠进滚动摘要
+ */
+final class ContextAssembler {
+
+    /**
+     * 每条消息除正文外的固定开销（角色标记、分隔符等）
+     */
+    static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private ContextAssembler() {
+    }
+
+    /**
+     * 组装结果
+     *
+     * @param kept 保留的消息，按时间正序
+     * @param dropped 被丢弃的更早消息，按时间正序
+     * @param usedTokens 保留消息估算占用的token数
+     */
+    record Assembly(List<ContextMessage> kept, List<ContextMessage> dropped, int usedTokens) {
+    }
+
+    /**
+     * @param history 历史消息，按时间正序
+     * @param budgetTokens 可用于历史消息的token预算
+     * @param maxMessages 最多保留的条数
+     * @param estimator token估算函数
+     */
+    static Assembly assemble(List<ContextMessage> history, int budgetTokens, int maxMessages,
+                             ToIntFunction<String> estimator) {
+        int used = 0;
+        int from = history.size();
+        while (from > 0 && history.size() - from < maxMessages) {
+            int cost = estimator.applyAsInt(history.get(from - 1).text()) + MESSAGE_OVERHEAD_TOKENS;
+            if (used + cost > budgetTokens) {
+                break;
+            }
+            used += cost;
+            from--;
+        }
+        List<ContextMessage> kept = from == history.size() ? Collections.emptyList()
+                : new ArrayList<>(history.subList(from, history.size()));
+        List<ContextMessage> dropped = from == 0 ? Collections.emptyList()
+                : new ArrayList<>(history.subList(0, from));
+        return new Assembly(kept, dropped, used);
+    }
+}
@@ -0,0 +1,127 @@
+package com.vocata.ai.service;
+
+import com.vocata.ai.dto.UnifiedAiRequest;
+import com.vocata.ai.dto.UnifiedAiStreamChunk;
+import com.vocata.conversation.service.ConversationContextCache;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于识别中间结果提前发起的LLM请求
+ *
+ * 创建即在后台订阅并缓存全部输出；最终识别结果与推测文本一致时，
+ * 链路直接订阅缓存的输出（已生成的部分立即回放），不一致时取消请求，已生成的内容计为浪费。
+ * 回放时链路看到的时刻晚于实际生成，因此同时记录请求发起、首个token与生成结束的时刻供耗时统计使用
+ */
+final class LlmSpeculation {
+
+    private final String transcript;
+    private final UnifiedAiRequest request;
+    private final List<ConversationContextCache.ContextMessage> droppedContext;
+    private final Flux<UnifiedAiStreamChunk> output;
+    private final Disposable connection;
+    private final AtomicLong generatedChars = new AtomicLong();
+    private final long issuedNanos;
+    private volatile long firstTokenNanos;
+    private volatile long completedNanos;
+
+    LlmSpeculation(String transcript, UnifiedAiRequest request, Flux<UnifiedAiStreamChunk> source) {
+        this(transcript, request, List.of(), source);
+    }
+
+    /**
+     * @param droppedContext 构建请求时超出预算被丢弃的历史，推测被认领后才折叠进摘要
+     */
+    LlmSpeculation(String transcript, UnifiedAiRequest request,
+                   List<ConversationContextCache.ContextMessage> droppedContext, Flux<UnifiedAiStreamChunk> source) {
+        this.transcript = normalize(transcript);
+        this.request = request;
+        this.droppedContext = droppedContext;
+        ConnectableFlux<UnifiedAiStreamChunk> cached = source
+                .doOnNext(chunk -> {
+                    if (chunk.getContent() != null) {
+                        generatedChars.addAndGet(chunk.getContent().length());
+                        if (firstTokenNanos == 0 && !chunk.getContent().isEmpty()) {
+                            firstTokenNanos = System.nanoTime();
+                        }
+                    }
+                })
+                .doOnComplete(() -> completedNanos = System.nanoTime())
+                .replay();
+        this.output = cached;
+        this.issuedNanos = System.nanoTime();
+        this.connection = cached.connect();
+    }
+
+    /**
+     * 推测文本与最终识别结果是否一致（忽略空白与标点）
+     */
+    boolean matches(String finalTranscript) {
+        return transcript.equals(normalize(finalTranscript));
+    }
+
+    UnifiedAiRequest getRequest() {
+        return request;
+    }
+
+    List<ConversationContextCache.ContextMessage> getDroppedContext() {
+        return droppedContext;
+    }
+
+    Flux<UnifiedAiStreamChunk> getOutput() {
+        return output;
+    }
+
+    long getIssuedNanos() {
+        return issuedNanos;
+    }
+
+    /**
+     * 首个非空token生成的时刻，尚未生成时为0
+     */
+    long getFirstTokenNanos() {
+        return firstTokenNanos;
+    }
+
+    /**
+     * 推测请求生成结束的时刻，尚未结束时为0
+     */
+    long getCompletedNanos() {
+        return completedNanos;
+    }
+
+    long getGeneratedChars() {
+        return generatedChars.get();
+    }
+
+    /**
+     * 取消推测请求
+     *
+     * @return 已生成的字符数
+     */
+    long cancel() {
+        connection.dispose();
+        return generatedChars.get();
+    }
+
+    /**
+     * 识别结果归一化：最终结果通常比中间结果多出句末标点或空格，比较时忽略
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+}
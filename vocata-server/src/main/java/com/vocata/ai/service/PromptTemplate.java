@@ -0,0 +1,93 @@
+package com.vocata.ai.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的提示词模板
+ *
+ * 构造时把模板按{PLACEHOLDER}切分为文本段和占位符段，渲染时一次StringBuilder拼接完成，
+ * 不再对整个模板做多轮String.replace。未提供取值的占位符原样保留
+ */
+final class PromptTemplate {
+
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译模板，占位符格式为{NAME}，NAME由大写字母、数字和下划线组成
+     */
+    static PromptTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < template.length()) {
+            int end = template.charAt(i) == '{' ? placeholderEnd(template, i) : -1;
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            literals.add(template.substring(literalStart, i));
+            placeholders.add(template.substring(i + 1, end));
+            literalStart = end + 1;
+            i = literalStart;
+        }
+        literals.add(template.substring(literalStart));
+        return new PromptTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    private static int placeholderEnd(String template, int open) {
+        int i = open + 1;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '}') {
+                return i > open + 1 ? i : -1;
+            }
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_') {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param values 占位符名称（不含花括号）到取值的映射
+     */
+    String render(Map<String, String> values) {
+        int capacity = literalLength;
+        for (String value : values.values()) {
+            capacity += value != null ? value.length() : 0;
+        }
+        StringBuilder rendered = new StringBuilder(capacity);
+        for (int i = 0; i < placeholders.length; i++) {
+            rendered.append(literals[i]);
+            String value = values.get(placeholders[i]);
+            if (value != null) {
+                rendered.append(value);
+            } else {
+                rendered.append('{').append(placeholders[i]).append('}');
+            }
+        }
+        return rendered.append(literals[placeholders.length]).toString();
+    }
+
+    List<String> getPlaceholders() {
+        return List.of(placeholders);
+    }
+}
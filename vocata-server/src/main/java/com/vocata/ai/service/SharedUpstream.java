@@ -0,0 +1,45 @@
+package com.vocata.ai.service;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单次连接的共享上游
+ *
+ * 上游（如STT识别流）只订阅一次，结果缓存后重放给后订阅者：部分结果流结束之后才订阅的
+ * 最终结果处理也只拿到重放，不会再次建立识别连接。refCount在上游终止后会丢弃连接并重新订阅，
+ * 对单播音频流不适用，因此使用autoConnect，由bind包装的整条链路结束或被取消时主动断开上游
+ */
+final class SharedUpstream<T> {
+
+    private final AtomicReference<Disposable> connection = new AtomicReference<>();
+
+    private final Flux<T> flux;
+
+    SharedUpstream(Flux<T> source) {
+        this.flux = source.replay().autoConnect(1, connection::set);
+    }
+
+    /**
+     * 共享的上游，可被多次订阅
+     */
+    Flux<T> flux() {
+        return flux;
+    }
+
+    /**
+     * 包装最终返回的链路：链路完成、出错或被取消（如用户打断）时断开上游
+     */
+    <R> Flux<R> bind(Flux<R> pipeline) {
+        return pipeline.doFinally(signal -> disconnect());
+    }
+
+    void disconnect() {
+        Disposable current = connection.getAndSet(null);
+        if (current != null) {
+            current.dispose();
+        }
+    }
+}
@@ -19,11 +19,16 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
-
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 七牛云语音识别服务实现
@@ -50,6 +55,52 @@ public class QiniuSttClient implements SttClient {
     @Value("${qiniu.stt.model:asr}")
     private String defaultModel;
 
+    /**
+     * 音频提交方式：inline 直接随请求提交音频数据；upload 先上传到对象存储再提交URL
+     */
+    @Value("${qiniu.stt.mode:inline}")
+    private String mode;
+
+    /**
+     * 说话过程中提交中间识别的间隔，0表示只在音频结束后识别一次
+     */
+    @Value("${qiniu.stt.partial-interval-ms:1200}")
+    private long partialIntervalMs;
+
+    /**
+     * 累积音频达到该字节数后才开始中间识别
+     */
+    @Value("${qiniu.stt.partial-min-bytes:16000}")
+    private int partialMinBytes;
+
+    /**
+     * 中间识别提交的音频上限，累积超过后不再做中间识别，只等最终识别。
+     * 每次中间识别都要提交从开头起的全部音频（容器格式无法只截取尾部），
+     * 不设上限时一句话的总上传量随时长平方增长
+     */
+    @Value("${qiniu.stt.partial-max-bytes:256000}")
+    private int partialMaxBytes;
+
+    /**
+     * inline模式下是否在识别完成后把音频异步归档到对象存储
+     */
+    @Value("${qiniu.stt.archive-audio:false}")
+    private boolean archiveAudio;
+
+    /**
+     * 接口不接受inline音频时的状态码，出现后本进程后续一律改用上传模式。
+     * 400/422 也归入此类：接口不认识inline字段时返回的就是参数错误，
+     * 若只对单次请求回退，每句话都会先白白多一次失败请求
+     */
+    private static final Set<Integer> INLINE_UNSUPPORTED_STATUS = Set.of(400, 404, 405, 415, 422);
+
+    /**
+     * 只与本次音频大小有关的状态码，只对本次请求回退到上传模式
+     */
+    private static final Set<Integer> INLINE_REJECTED_STATUS = Set.of(413);
+
+    private volatile boolean inlineUnsupported;
+
     @Autowired
     private FileService fileService;
 
@@ -104,6 +155,53 @@ public class QiniuSttClient implements SttClient {
 
         logger.info("开始七牛云流式语音识别，语言: {}, 模型: {}", config.getLanguage(), getModelForLanguage(config.getLanguage()));
 
+        if (!useInlineAudio()) {
+            return recognizeAfterStreamEnds(audioStream, config);
+        }
+
+        // inline模式：边接收音频边按间隔提交已累积的音频做中间识别，音频结束后立即做最终识别
+        return Flux.defer(() -> {
+            ByteArrayOutputStream audioBuffer = new ByteArrayOutputStream();
+            Sinks.One<Boolean> audioEnded = Sinks.one();
+
+            Flux<byte[]> audio = audioStream
+                    .doOnNext(audioBuffer::writeBytes)
+                    .doOnComplete(() -> audioEnded.tryEmitValue(true));
+
+            Flux<SttClient.SttResult> partials = partialIntervalMs > 0
+                    ? audio.sample(Duration.ofMillis(partialIntervalMs))
+                            // 上一次中间识别未返回时跳过本次
+                            .onBackpressureDrop()
+                            // 超过中间识别上限后不再复制缓冲区
+                            .filter(latest -> audioBuffer.size() <= partialMaxBytes)
+                            .flatMap(latest -> recognizePartial(audioBuffer.toByteArray(), config), 1)
+                            // 音频结束后中间识别不再有意义，立即让位给最终识别
+                            .takeUntilOther(audioEnded.asMono())
+                    : audio.thenMany(Flux.empty());
+
+            return partials.concatWith(Mono.defer(() -> {
+                byte[] fullAudio = audioBuffer.toByteArray();
+                if (fullAudio.length == 0) {
+                    return Mono.empty();
+                }
+                return recognize(fullAudio, config)
+                        .doOnSuccess(result -> archiveAudioAsync(fullAudio, config));
+            }));
+        })
+        .onErrorResume(error -> {
+            logger.error("七牛云STT流式识别失败", error);
+            SttClient.SttResult errorResult = new SttClient.SttResult();
+            errorResult.setText("语音识别服务暂时不可用，请稍后再试");
+            errorResult.setConfidence(0.0);
+            errorResult.setFinal(true);
+            return Flux.just(errorResult);
+        });
+    }
+
+    /**
+     * 上传模式：收集完整音频后批量识别
+     */
+    private Flux<SttClient.SttResult> recognizeAfterStreamEnds(Flux<byte[]> audioStream, SttClient.SttConfig config) {
         // 七牛云ASR API目前主要支持批量识别，流式识别通过收集音频数据后批量处理实现
         return audioStream
                 .collectList()
@@ -176,9 +274,106 @@ public class QiniuSttClient implements SttClient {
     }
 
     /**
-     * 调用七牛云ASR API - 修正版
+     * 中间识别：提交当前已累积的音频，结果标记为非最终，失败时静默跳过
+     */
+    private Mono<SttClient.SttResult> recognizePartial(byte[] audioData, SttClient.SttConfig config) {
+        if (audioData.length < partialMinBytes || audioData.length > partialMaxBytes || !useInlineAudio()) {
+            return Mono.empty();
+        }
+        return invokeInlineAsrApi(audioData, mapAudioFormat(config.getAudioFormat()), config)
+                .map(response -> parseAsrResponse(response, config))
+                .filter(result -> StringUtils.hasText(result.getText()) && result.getConfidence() > 0)
+                .map(result -> {
+                    result.setFinal(false);
+                    result.getMetadata().put("partial", true);
+                    return result;
+                })
+                .onErrorResume(error -> {
+                    logger.debug("七牛云ASR中间识别失败: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 识别完成后异步归档音频到对象存储，不影响识别延迟
+     */
+    private void archiveAudioAsync(byte[] audioData, SttClient.SttConfig config) {
+        if (!archiveAudio || !useInlineAudio()) {
+            // 上传模式下音频已在识别前上传
+            return;
+        }
+        uploadAudioToQiniu(audioData, config)
+                .subscribe(
+                        context -> logger.debug("语音已归档: {}", context.audioUrl()),
+                        error -> logger.warn("语音归档失败: {}", error.getMessage()));
+    }
+
+    private boolean useInlineAudio() {
+        return "inline".equalsIgnoreCase(mode) && !inlineUnsupported;
+    }
+
+    /**
+     * 调用七牛云ASR API
+     * inline模式直接提交音频数据；接口不接受时回退到先上传再提交URL的方式
      */
     private Mono<Map<String, Object>> callQiniuAsrApi(byte[] audioData, SttClient.SttConfig config) {
+        if (!useInlineAudio()) {
+            return callQiniuAsrApiWithUpload(audioData, config);
+        }
+        return invokeInlineAsrApi(audioData, mapAudioFormat(config.getAudioFormat()), config)
+                .onErrorResume(WebClientResponseException.class, responseException -> {
+                    int status = responseException.getStatusCode().value();
+                    if (INLINE_UNSUPPORTED_STATUS.contains(status)) {
+                        logger.warn("七牛云ASR接口不支持inline音频，状态码: {}, 响应体: {}，后续改用上传模式",
+                                responseException.getStatusCode(), responseException.getResponseBodyAsString());
+                        inlineUnsupported = true;
+                    } else if (INLINE_REJECTED_STATUS.contains(status)) {
+                        logger.warn("七牛云ASR拒绝本次inline音频（音频过大），状态码: {}, 响应体: {}，本次改用上传模式",
+                                responseException.getStatusCode(), responseException.getResponseBodyAsString());
+                    } else {
+                        return Mono.error(responseException);
+                    }
+                    return callQiniuAsrApiWithUpload(audioData, config);
+                });
+    }
+
+    /**
+     * 直接随请求提交Base64编码的音频数据，省去对象存储上传与公网URL拉取
+     */
+    private Mono<Map<String, Object>> invokeInlineAsrApi(byte[] audioData, String format, SttClient.SttConfig config) {
+        try {
+            Map<String, Object> request = new HashMap<>();
+            request.put("model", getModelForLanguage(config.getLanguage()));
+
+            if (StringUtils.hasText(config.getLanguage())) {
+                request.put("language", config.getLanguage());
+            }
+
+            Map<String, Object> audio = new HashMap<>();
+            audio.put("format", format);
+            audio.put("data", Base64.getEncoder().encodeToString(audioData));
+            request.put("audio", audio);
+
+            String path = "/voice/asr";
+            Map<String, String> headers = buildAuthHeaders("POST", path, null);
+
+            return webClient.post()
+                    .uri(endpoint + path)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .headers(httpHeaders -> headers.forEach(httpHeaders::set))
+                    .bodyValue(request)
+                    .retrieve()
+                    .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                    .doOnNext(response -> logger.debug("七牛云ASR(inline)响应: {}", response));
+        } catch (Exception e) {
+            return Mono.error(new RuntimeException("构建七牛云inline ASR请求失败", e));
+        }
+    }
+
+    /**
+     * 先上传音频到七牛云存储，再以URL调用ASR API
+     */
+    private Mono<Map<String, Object>> callQiniuAsrApiWithUpload(byte[] audioData, SttClient.SttConfig config) {
         return uploadAudioToQiniu(audioData, config)
             .flatMap(context -> invokeVoiceAsrApi(context, config)
                 .onErrorResume(throwable -> handleAsrFallback("/voice/asr", throwable, context, config))
@@ -226,6 +421,8 @@ public class QiniuSttClient implements SttClient {
                 logger.info("音频文件上传成功，URL: {}", uploadResponse.getFileUrl());
                 return new UploadedAudioContext(format, uploadResponse.getFileUrl());
             })
+            // 上传是阻塞调用，不能占用响应式线程
+            .subscribeOn(Schedulers.boundedElastic())
             .onErrorMap(e -> {
                 logger.error("上传音频文件失败", e);
                 return new RuntimeException("上传音频文件到七牛云存储失败: " + e.getMessage(), e);
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -164,7 +165,7 @@ public class XunfeiWebSocketSttClient implements SttClient {
                 }).join();
 
                 // 订阅音频流
-                audioStream.subscribe(
+                Disposable audioSubscription = audioStream.subscribe(
                     audioData -> {
                         try {
                             if (isConnected.get() && audioData != null && audioData.length > 0) {
@@ -213,6 +214,13 @@ public class XunfeiWebSocketSttClient implements SttClient {
                     }
                 );
 
+                // 下游取消（如用户打断）时停止发送音频并立即断开识别连接
+                sink.onCancel(() -> {
+                    heartbeatActive.set(false);
+                    audioSubscription.dispose();
+                    webSocket.abort();
+                });
+
             } catch (Exception e) {
                 logger.error("🎤【科大讯飞WebSocket STT】初始化WebSocket连接失败", e);
                 sink.error(e);
@@ -0,0 +1,153 @@
+package com.vocata.ai.tts;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式分句器
+ * 将LLM逐token输出的文本流按中英文句子边界切分，每闭合一句立即下发，
+ * 使TTS无需等待LLM完整回复即可开始合成
+ *
+ * 切分规则：
+ * 1. 中文句末标点（。！？；）与换行立即切分
+ * 2. 英文句末标点（. ! ? ;）后跟空白时切分，避免误切小数和缩写
+ * 3. 累积长度达到上限仍无句末标点时，优先在逗号等软边界处切分，否则硬切
+ */
+public final class SentenceSegmenter {
+
+    /**
+     * 默认单句最大字符数
+     */
+    public static final int DEFAULT_MAX_CHARS = 80;
+
+    private static final String HARD_BOUNDARIES = "。！？；\n";
+    private static final String ASCII_BOUNDARIES = ".!?;";
+    private static final String SOFT_BOUNDARIES = "，、：,: ";
+    private static final String CLOSING_MARKS = "”’\"'）)】」』";
+
+    private SentenceSegmenter() {
+    }
+
+    /**
+     * 将文本块流切分为句子流
+     *
+     * @param tokens LLM输出的文本块流
+     * @param maxChars 单句最大字符数，超过后强制切分
+     * @return 按顺序输出的句子流（已去除首尾空白，不含空句）
+     */
+    public static Flux<String> segment(Flux<String> tokens, int maxChars) {
+        int limit = maxChars > 0 ? maxChars : DEFAULT_MAX_CHARS;
+        return Flux.defer(() -> {
+            // 每个订阅独立的缓冲区
+            StringBuilder buffer = new StringBuilder();
+            return tokens
+                    .concatMapIterable(token -> drain(buffer, token, limit))
+                    .concatWith(Mono.fromCallable(() -> flush(buffer)));
+        });
+    }
+
+    /**
+     * 追加文本块并取出所有已闭合的句子
+     */
+    static List<String> drain(StringBuilder buffer, String token, int maxChars) {
+        if (token == null || token.isEmpty()) {
+            return Collections.emptyList();
+        }
+        buffer.append(token);
+
+        List<String> sentences = null;
+        int start = 0;
+        int i = 0;
+        while (i < buffer.length()) {
+            int end = boundaryEnd(buffer, i);
+            if (end < 0 && i - start + 1 >= maxChars) {
+                end = softBreakEnd(buffer, start, i + 1);
+            }
+            if (end > 0) {
+                String sentence = normalize(buffer, start, end);
+                if (sentence != null) {
+                    if (sentences == null) {
+                        sentences = new ArrayList<>(2);
+                    }
+                    sentences.add(sentence);
+                }
+                start = end;
+                i = end;
+            } else {
+                i++;
+            }
+        }
+
+        if (start > 0) {
+            buffer.delete(0, start);
+        }
+        return sentences != null ? sentences : Collections.emptyList();
+    }
+
+    /**
+     * 取出缓冲区中剩余的文本（流结束时调用）
+     */
+    static String flush(StringBuilder buffer) {
+        String rest = normalize(buffer, 0, buffer.length());
+        buffer.setLength(0);
+        return rest;
+    }
+
+    /**
+     * 判断位置i是否为句末，返回句子结束位置（不含），不是句末返回-1
+     */
+    private static int boundaryEnd(StringBuilder buffer, int i) {
+        char c = buffer.charAt(i);
+        if (HARD_BOUNDARIES.indexOf(c) >= 0) {
+            return includeClosingMarks(buffer, i + 1);
+        }
+        if (ASCII_BOUNDARIES.indexOf(c) >= 0) {
+            int next = includeClosingMarks(buffer, i + 1);
+            // 英文标点需要看到后续空白才能确认是句末，否则等待下一个文本块
+            if (next < buffer.length() && Character.isWhitespace(buffer.charAt(next))) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 句末标点后紧跟的右引号、右括号归入当前句
+     */
+    private static int includeClosingMarks(StringBuilder buffer, int pos) {
+        while (pos < buffer.length() && CLOSING_MARKS.indexOf(buffer.charAt(pos)) >= 0) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 超长时在[start, end)内最后一个软边界处切分，后半段找不到软边界则硬切
+     */
+    private static int softBreakEnd(StringBuilder buffer, int start, int end) {
+        int minPos = start + (end - start) / 2;
+        for (int j = end - 1; j >= minPos; j--) {
+            if (SOFT_BOUNDARIES.indexOf(buffer.charAt(j)) >= 0) {
+                return j + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * 去除首尾空白，过滤不含可朗读字符的片段
+     */
+    private static String normalize(StringBuilder buffer, int start, int end) {
+        String sentence = buffer.substring(start, end).trim();
+        for (int k = 0; k < sentence.length(); k++) {
+            if (Character.isLetterOrDigit(sentence.charAt(k))) {
+                return sentence;
+            }
+        }
+        return null;
+    }
+}
@@ -24,6 +24,7 @@ public interface TtsClient {
     /**
      * 流式语音合成（包含文字和音频）
      * 接收文本流并返回包含文字和音频的结果流
+     * 支持逐帧输出的实现会在音频到达时立即下发，每个结果带有序号，调用方收到首帧即可开始播放
      *
      * @param textStream 文本数据流
      * @param config 合成配置
@@ -32,11 +33,12 @@ public interface TtsClient {
     default Flux<TtsResult> streamSynthesizeWithText(Flux<String> textStream, TtsConfig config) {
         // 默认实现：将原有的流式方法包装为TtsResult
         return streamSynthesize(textStream, config)
-                .map(audioData -> {
+                .index((sequence, audioData) -> {
                     TtsResult result = new TtsResult();
                     result.setAudioData(audioData);
                     result.setAudioFormat(config.getAudioFormat());
                     result.setSampleRate(config.getSampleRate());
+                    result.setSequence(sequence);
                     return result;
                 });
     }
@@ -84,6 +86,10 @@ public interface TtsClient {
         private Long startTime;          // 音频开始时间戳（毫秒）
         private Long endTime;            // 音频结束时间戳（毫秒）
         private Map<String, Object> metadata; // 额外元数据
+        private long sequence;           // 在本次合成结果流中的序号（从0开始连续递增）
+        private int segmentIndex;        // 所属文本片段的序号
+        private int frameIndex;          // 在所属文本片段内的帧序号
+        private boolean lastFrame = true; // 是否为所属文本片段的最后一帧
 
         public TtsResult() {}
 
@@ -172,6 +178,38 @@ public interface TtsClient {
         public void setMetadata(Map<String, Object> metadata) {
             this.metadata = metadata;
         }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public void setSequence(long sequence) {
+            this.sequence = sequence;
+        }
+
+        public int getSegmentIndex() {
+            return segmentIndex;
+        }
+
+        public void setSegmentIndex(int segmentIndex) {
+            this.segmentIndex = segmentIndex;
+        }
+
+        public int getFrameIndex() {
+            return frameIndex;
+        }
+
+        public void setFrameIndex(int frameIndex) {
+            this.frameIndex = frameIndex;
+        }
+
+        public boolean isLastFrame() {
+            return lastFrame;
+        }
+
+        public void setLastFrame(boolean lastFrame) {
+            this.lastFrame = lastFrame;
+        }
     }
 
     /**
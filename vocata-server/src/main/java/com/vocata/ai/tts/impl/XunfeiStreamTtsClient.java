@@ -2,12 +2,15 @@ package com.vocata.ai.tts.impl;
 
 import com.vocata.ai.tts.TtsClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.util.*;
 import java.io.ByteArrayOutputStream;
@@ -15,11 +18,9 @@ import java.util.Base64;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-import javax.websocket.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.text.SimpleDateFormat;
@@ -29,7 +30,7 @@ import java.util.TimeZone;
 
 /**
  * 科大讯飞TTS客户端
- *
+ * 通过{@link XunfeiTtsConnectionPool}复用已完成握手的WebSocket连接，合成结果通过回调异步完成
  */
 @Service("xunfeiTtsClient")
 public class XunfeiStreamTtsClient implements TtsClient {
@@ -51,8 +52,42 @@ public class XunfeiStreamTtsClient implements TtsClient {
     @Value("${xunfei.tts.path:/v2/tts}")
     private String path;
 
+    @Value("${xunfei.tts.pool.min-idle:2}")
+    private int poolMinIdle;
+
+    @Value("${xunfei.tts.pool.max-idle:8}")
+    private int poolMaxIdle;
+
+    @Value("${xunfei.tts.pool.idle-timeout-ms:8000}")
+    private long poolIdleTimeoutMs;
+
+    @Value("${xunfei.tts.pool.warm-window-ms:120000}")
+    private long poolWarmWindowMs;
+
+    @Value("${xunfei.tts.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${xunfei.tts.synthesis-timeout-ms:30000}")
+    private long synthesisTimeoutMs;
+
+    /**
+     * 小于该字节数的音频帧先合并再下发，减少下游消息数量
+     */
+    @Value("${xunfei.tts.coalesce-bytes:4096}")
+    private int coalesceBytes;
+
+    /**
+     * 鉴权URL中的date有效期为5分钟，签名结果缓存一段时间后再重新生成
+     */
+    private static final long AUTH_URL_TTL_MS = 60_000;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private volatile XunfeiTtsConnectionPool connectionPool;
+
+    private volatile URI cachedAuthUri;
+    private volatile long cachedAuthUriAt;
+
     // 支持的语音列表
     private static final String[] SUPPORTED_VOICES = {
         "xiaoyan",              // 小燕（女声，推荐）
@@ -124,12 +159,14 @@ public class XunfeiStreamTtsClient implements TtsClient {
 
         return textStream
                 .bufferTimeout(3, java.time.Duration.ofMillis(300))
-                .concatMap(textList -> {
-                    String combinedText = String.join("", textList);
-                    if (combinedText.trim().isEmpty()) {
-                        return Flux.empty();
-                    }
-                    return synthesizeSingleTextWithResult(combinedText, config);
+                .map(textList -> String.join("", textList))
+                .filter(combinedText -> !combinedText.trim().isEmpty())
+                .index()
+                .concatMap(segment -> synthesizeSingleTextWithResult(segment.getT2(), config, segment.getT1().intValue()))
+                // 序号在整个结果流内连续递增，供下游检测乱序与丢帧
+                .index((sequence, frame) -> {
+                    frame.setSequence(sequence);
+                    return frame;
                 })
                 .onErrorResume(error -> {
                     logger.error("科大讯飞TTS流式合成失败", error);
@@ -157,41 +194,34 @@ public class XunfeiStreamTtsClient implements TtsClient {
         logger.info("开始科大讯飞WebSocket TTS合成，文本长度: {}, 输入音色: {} -> 实际使用: {}",
                    text.length(), config.getVoiceId(), actualVoiceId);
 
-        return Mono.fromCallable(() -> {
-            try {
-                return callXunfeiTtsApi(text, actualVoiceId, config);
-            } catch (Exception e) {
-                logger.error("科大讯飞WebSocket TTS合成失败", e);
-                throw new RuntimeException("TTS合成失败: " + e.getMessage(), e);
-            }
-        });
+        return callXunfeiTtsApi(text, actualVoiceId, config)
+                .collectList()
+                .map(frames -> mergeFrames(frames, text, actualVoiceId, config))
+                .doOnError(e -> logger.error("科大讯飞WebSocket TTS合成失败", e));
     }
 
     /**
-     * 流式合成单个文本片段，同时返回文字和音频
+     * 流式合成单个文本片段，音频帧到达即下发，每帧携带对应文字
      */
-    private Flux<TtsResult> synthesizeSingleTextWithResult(String text, TtsConfig config) {
+    private Flux<TtsResult> synthesizeSingleTextWithResult(String text, TtsConfig config, int segmentIndex) {
         logger.info("开始科大讯飞WebSocket流式TTS合成 - 文本: '{}', 长度: {} 字符",
                    text.length() > 30 ? text.substring(0, 30) + "..." : text,
                    text.length());
 
-        return Mono.fromCallable(() -> {
-            try {
-                String actualVoiceId = getXunfeiVoiceId(config.getVoiceId());
-                TtsResult result = callXunfeiTtsApi(text, actualVoiceId, config);
-                result.setCorrespondingText(text);
-                result.setStartTime(System.currentTimeMillis());
-
-                logger.info("科大讯飞WebSocket流式TTS合成完成 - 文本: '{}', 音频大小: {} bytes",
-                           text.length() > 30 ? text.substring(0, 30) + "..." : text,
-                           result.getAudioData().length);
-
-                return result;
-            } catch (Exception e) {
-                logger.error("科大讯飞WebSocket流式TTS合成失败: {}", e.getMessage(), e);
-                throw new RuntimeException("TTS合成失败: " + e.getMessage(), e);
-            }
-        }).flux();
+        String actualVoiceId = getXunfeiVoiceId(config.getVoiceId());
+        long requestTime = System.currentTimeMillis();
+        return callXunfeiTtsApi(text, actualVoiceId, config)
+                .doOnNext(frame -> {
+                    frame.setCorrespondingText(text);
+                    frame.setSegmentIndex(segmentIndex);
+                    frame.setStartTime(System.currentTimeMillis());
+                    if (frame.getFrameIndex() == 0) {
+                        logger.info("科大讯飞WebSocket流式TTS首帧到达 - 文本: '{}', 首帧延迟: {}ms",
+                                   text.length() > 30 ? text.substring(0, 30) + "..." : text,
+                                   frame.getStartTime() - requestTime);
+                    }
+                })
+                .doOnError(e -> logger.error("科大讯飞WebSocket流式TTS合成失败: {}", e.getMessage(), e));
     }
 
     /**
@@ -233,78 +263,136 @@ public class XunfeiStreamTtsClient implements TtsClient {
     }
 
     /**
-     * 调用科大讯飞WebSocket TTS API
+     * 调用科大讯飞WebSocket TTS API，按帧返回音频
+     * 从连接池取用已握手的连接，复用连接在收到任何数据前被服务端关闭时换一个连接重试一次
      */
-    private TtsResult callXunfeiTtsApi(String text, String voiceId, TtsConfig config) throws Exception {
-        String wsUrl = getWebSocketAuthUrl();
-        logger.info("连接科大讯飞WebSocket TTS API: {}", wsUrl);
+    private Flux<TtsResult> callXunfeiTtsApi(String text, String voiceId, TtsConfig config) {
+        XunfeiTtsConnectionPool pool = connectionPool();
+        return Mono.defer(() -> Mono.fromFuture(pool.acquire()))
+                .flatMapMany(connection -> synthesizeOnConnection(pool, connection, text, voiceId, config))
+                .retryWhen(Retry.max(1).filter(StaleConnectionException.class::isInstance))
+                // 相邻两帧之间的最大间隔
+                .timeout(Duration.ofMillis(synthesisTimeoutMs),
+                        Flux.error(() -> new RuntimeException("TTS合成超时")));
+    }
 
-        ByteArrayOutputStream audioStream = new ByteArrayOutputStream();
-        AtomicReference<Exception> errorRef = new AtomicReference<>();
-        CountDownLatch latch = new CountDownLatch(1);
-        AtomicBoolean isComplete = new AtomicBoolean(false);
-
-        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-
-        Session wsSession = container.connectToServer(new Endpoint() {
-            @Override
-            public void onOpen(Session session, EndpointConfig endpointConfig) {
-                logger.info("WebSocket连接已建立");
-                session.addMessageHandler(new MessageHandler.Whole<String>() {
-                    @Override
-                    public void onMessage(String message) {
-                        try {
-                            handleTtsResponse(message, audioStream, isComplete, latch);
-                        } catch (Exception e) {
-                            logger.error("处理TTS响应失败", e);
-                            errorRef.set(e);
-                            latch.countDown();
+    /**
+     * 在指定连接上完成一次合成
+     * 每收到一帧音频即下发（过小的帧合并到coalesce-bytes后下发），收到status=2时完成，不阻塞任何线程
+     */
+    private Flux<TtsResult> synthesizeOnConnection(XunfeiTtsConnectionPool pool,
+                                                   XunfeiTtsConnectionPool.PooledConnection connection,
+                                                   String text, String voiceId, TtsConfig config) {
+        return Flux.create(sink -> {
+            ByteArrayOutputStream pending = new ByteArrayOutputStream();
+            AtomicBoolean received = new AtomicBoolean(false);
+            AtomicBoolean done = new AtomicBoolean(false);
+            AtomicInteger frameIndex = new AtomicInteger();
+
+            connection.bind(new XunfeiTtsConnectionPool.ConnectionListener() {
+                @Override
+                public void onMessage(String message) {
+                    if (done.get()) {
+                        return;
+                    }
+                    try {
+                        received.set(true);
+                        boolean last = handleTtsResponse(message, pending);
+                        if (pending.size() > 0 && (last || pending.size() >= coalesceBytes)) {
+                            sink.next(buildFrame(pending.toByteArray(), frameIndex.getAndIncrement(), last, voiceId, config));
+                            pending.reset();
+                        } else if (last && frameIndex.get() > 0) {
+                            // 音频已在合并阈值处全部下发、最后一条消息不带音频时，补发空的结束帧标记句子结束
+                            sink.next(buildFrame(new byte[0], frameIndex.getAndIncrement(), true, voiceId, config));
+                        }
+                        if (last && done.compareAndSet(false, true)) {
+                            pool.release(connection, true);
+                            if (frameIndex.get() == 0) {
+                                sink.error(new RuntimeException("未收到音频数据"));
+                            } else {
+                                logger.info("科大讯飞WebSocket TTS合成完成，共{}帧", frameIndex.get());
+                                sink.complete();
+                            }
+                        }
+                    } catch (Exception e) {
+                        logger.error("处理TTS响应失败", e);
+                        if (done.compareAndSet(false, true)) {
+                            pool.release(connection, false);
+                            sink.error(e);
                         }
                     }
-                });
-
-                try {
-                    sendTtsRequest(session, text, voiceId, config);
-                } catch (Exception e) {
-                    logger.error("发送TTS请求失败", e);
-                    errorRef.set(e);
-                    latch.countDown();
                 }
-            }
 
-            @Override
-            public void onError(Session session, Throwable throwable) {
-                logger.error("WebSocket连接错误", throwable);
-                errorRef.set(new Exception(throwable));
-                latch.countDown();
-            }
-        }, ClientEndpointConfig.Builder.create().build(), new URI(wsUrl));
+                @Override
+                public void onClosed(Throwable error) {
+                    if (!done.compareAndSet(false, true)) {
+                        return;
+                    }
+                    pool.release(connection, false);
+                    if (!received.get() && connection.reused) {
+                        sink.error(new StaleConnectionException());
+                    } else if (error != null) {
+                        logger.error("WebSocket连接错误", error);
+                        sink.error(error);
+                    } else {
+                        sink.error(new RuntimeException("TTS连接在合成完成前关闭"));
+                    }
+                }
+            });
 
-        boolean finished = latch.await(30, TimeUnit.SECONDS);
+            sink.onCancel(() -> {
+                if (done.compareAndSet(false, true)) {
+                    // 合成未完成，连接上可能还有未读完的数据，不再复用
+                    pool.release(connection, false);
+                }
+            });
 
-        if (wsSession.isOpen()) {
-            wsSession.close();
-        }
+            try {
+                connection.sendText(buildTtsRequest(text, voiceId, config))
+                        .whenComplete((webSocket, error) -> {
+                            if (error != null && done.compareAndSet(false, true)) {
+                                logger.error("发送TTS请求失败", error);
+                                pool.release(connection, false);
+                                sink.error(connection.reused && !received.get() ? new StaleConnectionException() : error);
+                            }
+                        });
+                logger.info("已发送TTS请求，文本长度: {} 字符，复用连接: {}", text.length(), connection.reused);
+            } catch (Exception e) {
+                if (done.compareAndSet(false, true)) {
+                    pool.release(connection, false);
+                    sink.error(e);
+                }
+            }
+        });
+    }
 
-        if (!finished) {
-            throw new RuntimeException("TTS合成超时");
-        }
+    private TtsResult buildFrame(byte[] audioData, int frameIndex, boolean lastFrame, String voiceId, TtsConfig config) {
+        TtsResult frame = new TtsResult();
+        frame.setAudioData(audioData);
+        frame.setAudioFormat(config.getAudioFormat());
+        frame.setSampleRate(config.getSampleRate());
+        frame.setVoiceId(voiceId);
+        frame.setFrameIndex(frameIndex);
+        frame.setLastFrame(lastFrame);
+        return frame;
+    }
 
-        if (errorRef.get() != null) {
-            throw errorRef.get();
+    /**
+     * 将全部帧合并为一个完整的合成结果
+     */
+    private TtsResult mergeFrames(List<TtsResult> frames, String text, String voiceId, TtsConfig config) {
+        ByteArrayOutputStream audioStream = new ByteArrayOutputStream();
+        for (TtsResult frame : frames) {
+            audioStream.writeBytes(frame.getAudioData());
         }
-
         byte[] audioData = audioStream.toByteArray();
 
-        if (audioData.length == 0) {
-            throw new RuntimeException("未收到音频数据");
-        }
-
         TtsResult result = new TtsResult();
         result.setAudioData(audioData);
         result.setAudioFormat(config.getAudioFormat());
         result.setSampleRate(config.getSampleRate());
         result.setVoiceId(voiceId);
+        result.setCorrespondingText(text);
         result.setDurationSeconds(estimateAudioDuration(text));
 
         Map<String, Object> metadata = new HashMap<>();
@@ -312,6 +400,7 @@ public class XunfeiStreamTtsClient implements TtsClient {
         metadata.put("voice_id", voiceId);
         metadata.put("language", config.getLanguage());
         metadata.put("audioSize", audioData.length);
+        metadata.put("frameCount", frames.size());
         result.setMetadata(metadata);
 
         logger.info("科大讯飞WebSocket TTS合成完成，音频大小: {} bytes", audioData.length);
@@ -319,10 +408,11 @@ public class XunfeiStreamTtsClient implements TtsClient {
     }
 
     /**
-     * 处理TTS响应消息
+     * 处理TTS响应消息，解码出的音频追加到pending
+     *
+     * @return 是否已收到最后一帧（status=2）
      */
-    private void handleTtsResponse(String message, ByteArrayOutputStream audioStream,
-                                   AtomicBoolean isComplete, CountDownLatch latch) throws Exception {
+    private boolean handleTtsResponse(String message, ByteArrayOutputStream pending) throws Exception {
         Map<String, Object> response = objectMapper.readValue(message, Map.class);
 
         Integer code = (Integer) response.get("code");
@@ -336,23 +426,23 @@ public class XunfeiStreamTtsClient implements TtsClient {
             String audioBase64 = (String) data.get("audio");
             if (audioBase64 != null && !audioBase64.isEmpty()) {
                 byte[] audioChunk = Base64.getDecoder().decode(audioBase64);
-                audioStream.write(audioChunk);
+                pending.write(audioChunk);
                 logger.debug("收到音频数据块: {} bytes", audioChunk.length);
             }
 
             Integer status = (Integer) data.get("status");
             if (status != null && status == 2) {
                 logger.info("音频数据接收完成");
-                isComplete.set(true);
-                latch.countDown();
+                return true;
             }
         }
+        return false;
     }
 
     /**
-     * 发送TTS请求
+     * 构建TTS请求
      */
-    private void sendTtsRequest(Session session, String text, String voiceId, TtsConfig config) throws Exception {
+    private String buildTtsRequest(String text, String voiceId, TtsConfig config) throws Exception {
         Map<String, Object> request = new HashMap<>();
 
         Map<String, Object> common = new HashMap<>();
@@ -373,9 +463,62 @@ public class XunfeiStreamTtsClient implements TtsClient {
         data.put("text", Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8)));
         request.put("data", data);
 
-        String requestJson = objectMapper.writeValueAsString(request);
-        session.getBasicRemote().sendText(requestJson);
-        logger.info("已发送TTS请求，文本长度: {} 字符", text.length());
+        return objectMapper.writeValueAsString(request);
+    }
+
+    /**
+     * 获取连接池（首次使用时创建）
+     */
+    private XunfeiTtsConnectionPool connectionPool() {
+        XunfeiTtsConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = connectionPool;
+                if (pool == null) {
+                    pool = new XunfeiTtsConnectionPool(this::getWebSocketAuthUri, poolMinIdle, poolMaxIdle,
+                            poolIdleTimeoutMs, poolWarmWindowMs, Duration.ofMillis(connectTimeoutMs));
+                    connectionPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 定期清理过期连接并补齐预热连接
+     */
+    @Scheduled(fixedDelayString = "${xunfei.tts.pool.maintain-interval-ms:2000}")
+    public void maintainConnectionPool() {
+        XunfeiTtsConnectionPool pool = connectionPool;
+        if (pool != null) {
+            pool.maintain();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        XunfeiTtsConnectionPool pool = connectionPool;
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * 获取WebSocket认证URL（带缓存）
+     */
+    private URI getWebSocketAuthUri() {
+        long now = System.currentTimeMillis();
+        URI uri = cachedAuthUri;
+        if (uri == null || now - cachedAuthUriAt > AUTH_URL_TTL_MS) {
+            try {
+                uri = new URI(getWebSocketAuthUrl());
+            } catch (Exception e) {
+                throw new IllegalStateException("生成科大讯飞TTS鉴权URL失败", e);
+            }
+            cachedAuthUri = uri;
+            cachedAuthUriAt = now;
+        }
+        return uri;
     }
 
     /**
@@ -408,4 +551,13 @@ public class XunfeiStreamTtsClient implements TtsClient {
                            java.net.URLEncoder.encode(date, "UTF-8"),
                            host);
     }
-}
\ No newline at end of file
+
+    /**
+     * 复用的连接在收到数据前已被服务端关闭
+     */
+    private static class StaleConnectionException extends RuntimeException {
+        StaleConnectionException() {
+            super("复用的TTS连接已失效", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.vocata.ai.tts.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 科大讯飞TTS WebSocket连接池
+ *
+ * 预先建立并保持已完成鉴权握手的连接，合成请求直接取用，省去每句话的签名、TCP与TLS握手开销：
+ * 1. 连接基于JDK异步WebSocket建立，握手完成通过回调通知，不占用任何线程等待
+ * 2. 空闲连接超过最大空闲时长后关闭（服务端会断开长时间无数据的连接），由后台维护任务补齐
+ * 3. 仅在最近有合成请求时保持预热，长时间无流量时不再建立新连接
+ * 4. 合成完成后连接仍处于打开状态则归还复用，被服务端关闭的连接自动移出连接池
+ *
+ * 所有连接共用同一个HttpClient，TLS会话可以被复用
+ */
+class XunfeiTtsConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(XunfeiTtsConnectionPool.class);
+
+    private final HttpClient httpClient;
+    private final Supplier<URI> authUrlSupplier;
+    private final int minIdle;
+    private final int maxIdle;
+    private final long idleTimeoutMs;
+    private final long warmWindowMs;
+    private final Duration connectTimeout;
+
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger connecting = new AtomicInteger();
+    private volatile long lastAcquireAt;
+    private volatile boolean closed;
+
+    XunfeiTtsConnectionPool(Supplier<URI> authUrlSupplier, int minIdle, int maxIdle,
+                            long idleTimeoutMs, long warmWindowMs, Duration connectTimeout) {
+        this.httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+        this.authUrlSupplier = authUrlSupplier;
+        this.minIdle = minIdle;
+        this.maxIdle = Math.max(minIdle, maxIdle);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.warmWindowMs = warmWindowMs;
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * 获取一个可用连接：优先取用预热连接，没有则异步新建
+     */
+    CompletableFuture<PooledConnection> acquire() {
+        lastAcquireAt = System.currentTimeMillis();
+
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (connection.isUsable(idleTimeoutMs)) {
+                connection.reused = true;
+                warmUp();
+                return CompletableFuture.completedFuture(connection);
+            }
+            connection.close();
+        }
+
+        warmUp();
+        return connect();
+    }
+
+    /**
+     * 归还连接，连接已关闭、池已满或不可复用时直接关闭
+     */
+    void release(PooledConnection connection, boolean reusable) {
+        connection.listener = null;
+        if (!reusable || closed || !connection.isUsable(idleTimeoutMs) || idle.size() >= maxIdle) {
+            connection.close();
+            return;
+        }
+        connection.lastUsedAt = System.currentTimeMillis();
+        idle.offerFirst(connection);
+    }
+
+    /**
+     * 关闭过期的空闲连接，并在最近有流量时补齐预热连接
+     */
+    void maintain() {
+        Iterator<PooledConnection> iterator = idle.iterator();
+        while (iterator.hasNext()) {
+            PooledConnection connection = iterator.next();
+            if (!connection.isUsable(idleTimeoutMs)) {
+                iterator.remove();
+                connection.close();
+            }
+        }
+        warmUp();
+    }
+
+    /**
+     * 补齐预热连接（异步，不等待握手完成）
+     */
+    void warmUp() {
+        if (closed || minIdle <= 0 || System.currentTimeMillis() - lastAcquireAt > warmWindowMs) {
+            return;
+        }
+        while (idle.size() + connecting.get() < minIdle) {
+            connecting.incrementAndGet();
+            connect().whenComplete((connection, error) -> {
+                connecting.decrementAndGet();
+                if (error != null) {
+                    logger.warn("科大讯飞TTS预热连接失败: {}", error.getMessage());
+                } else if (closed || idle.size() >= maxIdle) {
+                    connection.close();
+                } else {
+                    idle.offerLast(connection);
+                }
+            });
+        }
+    }
+
+    /**
+     * 关闭连接池及全部空闲连接
+     */
+    void close() {
+        closed = true;
+        List<PooledConnection> connections = new ArrayList<>(idle);
+        idle.clear();
+        connections.forEach(PooledConnection::close);
+    }
+
+    int idleCount() {
+        return idle.size();
+    }
+
+    private CompletableFuture<PooledConnection> connect() {
+        PooledConnection connection = new PooledConnection();
+        return httpClient.newWebSocketBuilder()
+                .connectTimeout(connectTimeout)
+                .buildAsync(authUrlSupplier.get(), connection)
+                .thenApply(webSocket -> {
+                    connection.webSocket = webSocket;
+                    connection.lastUsedAt = System.currentTimeMillis();
+                    return connection;
+                });
+    }
+
+    /**
+     * 单次合成期间接收连接事件的回调
+     */
+    interface ConnectionListener {
+
+        /**
+         * 收到一条完整的文本消息
+         */
+        void onMessage(String message);
+
+        /**
+         * 连接被关闭或出错，error为null表示正常关闭
+         */
+        void onClosed(Throwable error);
+    }
+
+    /**
+     * 池化连接
+     * 同一时刻只服务一个合成请求，事件转发给当前请求设置的监听器
+     */
+    final class PooledConnection implements WebSocket.Listener {
+
+        private volatile WebSocket webSocket;
+        private volatile ConnectionListener listener;
+        private volatile boolean open = true;
+        private volatile long lastUsedAt;
+        private StringBuilder partialMessage;
+
+        /**
+         * 是否为复用的连接（服务端可能已在途中关闭，首帧前断开可重试）
+         */
+        volatile boolean reused;
+
+        void bind(ConnectionListener listener) {
+            this.listener = listener;
+        }
+
+        CompletableFuture<WebSocket> sendText(String text) {
+            return webSocket.sendText(text, true);
+        }
+
+        boolean isUsable(long idleTimeoutMs) {
+            return open && webSocket != null && !webSocket.isOutputClosed() && !webSocket.isInputClosed()
+                    && System.currentTimeMillis() - lastUsedAt < idleTimeoutMs;
+        }
+
+        void close() {
+            open = false;
+            WebSocket socket = webSocket;
+            if (socket != null && !socket.isOutputClosed()) {
+                socket.sendClose(WebSocket.NORMAL_CLOSURE, "")
+                        .exceptionally(error -> {
+                            socket.abort();
+                            return null;
+                        });
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            webSocket.request(1);
+            String message;
+            if (partialMessage == null && last) {
+                message = data.toString();
+            } else {
+                if (partialMessage == null) {
+                    partialMessage = new StringBuilder(data.length() * 2);
+                }
+                partialMessage.append(data);
+                if (!last) {
+                    return null;
+                }
+                message = partialMessage.toString();
+                partialMessage = null;
+            }
+
+            ConnectionListener current = listener;
+            if (current != null) {
+                current.onMessage(message);
+            }
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            open = false;
+            idle.remove(this);
+            logger.debug("科大讯飞TTS连接已关闭: {} - {}", statusCode, reason);
+            ConnectionListener current = listener;
+            if (current != null) {
+                current.onClosed(null);
+            }
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            open = false;
+            idle.remove(this);
+            ConnectionListener current = listener;
+            if (current != null) {
+                current.onClosed(error);
+            } else {
+                logger.debug("科大讯飞TTS空闲连接出错: {}", error.getMessage());
+            }
+        }
+    }
+}
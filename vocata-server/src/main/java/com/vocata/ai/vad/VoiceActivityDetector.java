@@ -0,0 +1,190 @@
+package com.vocata.ai.vad;
+
+/**
+ * 基于短时能量与过零率的语音活动检测（VAD）
+ *
+ * 输入为16位小端单声道PCM，按固定帧长切分后逐帧判断：
+ * 1. 帧能量（RMS）高于阈值且过零率低于上限时判为语音帧，高过零率的持续噪声（如气流、底噪）不计为语音
+ * 2. 阈值取固定下限与自适应噪声基底倍数中的较大值，噪声基底只在非语音帧上更新
+ * 3. 连续语音达到最短语音时长后认为开始说话，之后连续静音达到拖尾时长认为说话结束
+ *
+ * 检测器有状态且非线程安全，每段录音使用独立实例；处理过程中不分配内存，
+ * 跨数据块的不完整帧暂存在固定大小的缓冲区中
+ */
+public class VoiceActivityDetector {
+
+    /**
+     * 检测事件
+     */
+    public enum Event {
+        NONE,
+        SPEECH_START,
+        SPEECH_END
+    }
+
+    /**
+     * 噪声基底EWMA平滑系数
+     */
+    private static final double NOISE_ALPHA = 0.05;
+
+    private final int frameBytes;
+    private final double minEnergy;
+    private final double noiseRatio;
+    private final double maxZeroCrossingRate;
+    private final int minSpeechFrames;
+    private final int hangoverFrames;
+
+    private final byte[] carry;
+    private int carryLength;
+
+    private double noiseFloor;
+    private int speechRun;
+    private int silenceRun;
+    private boolean speaking;
+    private boolean ended;
+
+    /**
+     * @param sampleRate          采样率
+     * @param frameMs             帧长（毫秒）
+     * @param minEnergy           语音帧的最低RMS（16位采样幅度）
+     * @param noiseRatio          语音帧RMS相对噪声基底的最低倍数
+     * @param maxZeroCrossingRate 语音帧允许的最大过零率（每采样点）
+     * @param minSpeechMs         判定开始说话所需的连续语音时长
+     * @param hangoverMs          判定说话结束所需的连续静音时长
+     */
+    public VoiceActivityDetector(int sampleRate, int frameMs, double minEnergy, double noiseRatio,
+                                 double maxZeroCrossingRate, int minSpeechMs, int hangoverMs) {
+        if (sampleRate <= 0 || frameMs <= 0) {
+            throw new IllegalArgumentException("采样率与帧长必须为正数");
+        }
+        int frameSamples = Math.max(2, sampleRate * frameMs / 1000);
+        this.frameBytes = frameSamples * 2;
+        this.minEnergy = minEnergy;
+        this.noiseRatio = noiseRatio;
+        this.maxZeroCrossingRate = maxZeroCrossingRate;
+        this.minSpeechFrames = Math.max(1, ceilDiv(minSpeechMs, frameMs));
+        this.hangoverFrames = Math.max(1, ceilDiv(hangoverMs, frameMs));
+        this.carry = new byte[frameBytes];
+    }
+
+    /**
+     * 输入一段PCM数据
+     *
+     * @return 本段数据中发生的事件；同一段内先开始后结束时返回SPEECH_END
+     */
+    public Event accept(byte[] pcm) {
+        return accept(pcm, 0, pcm.length);
+    }
+
+    /**
+     * 输入PCM数据的一部分
+     */
+    public Event accept(byte[] pcm, int offset, int length) {
+        if (ended) {
+            return Event.NONE;
+        }
+
+        Event result = Event.NONE;
+        int position = offset;
+        int end = offset + length;
+
+        // 先补齐上一段遗留的不完整帧
+        if (carryLength > 0) {
+            int needed = Math.min(frameBytes - carryLength, end - position);
+            System.arraycopy(pcm, position, carry, carryLength, needed);
+            carryLength += needed;
+            position += needed;
+            if (carryLength < frameBytes) {
+                return result;
+            }
+            carryLength = 0;
+            result = merge(result, processFrame(carry, 0));
+        }
+
+        while (!ended && end - position >= frameBytes) {
+            result = merge(result, processFrame(pcm, position));
+            position += frameBytes;
+        }
+
+        if (!ended && position < end) {
+            carryLength = end - position;
+            System.arraycopy(pcm, position, carry, 0, carryLength);
+        }
+        return result;
+    }
+
+    /**
+     * 重置状态，开始新一段检测（保留已估计的噪声基底）
+     */
+    public void reset() {
+        carryLength = 0;
+        speechRun = 0;
+        silenceRun = 0;
+        speaking = false;
+        ended = false;
+    }
+
+    public boolean isSpeaking() {
+        return speaking;
+    }
+
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    public double getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    private Event processFrame(byte[] data, int offset) {
+        int samples = frameBytes / 2;
+        double sumSquares = 0;
+        int crossings = 0;
+        int previous = 0;
+
+        for (int i = 0; i < samples; i++) {
+            int index = offset + i * 2;
+            int sample = (short) ((data[index] & 0xff) | (data[index + 1] << 8));
+            sumSquares += (double) sample * sample;
+            if (i > 0 && (sample >= 0) != (previous >= 0)) {
+                crossings++;
+            }
+            previous = sample;
+        }
+
+        double rms = Math.sqrt(sumSquares / samples);
+        double zeroCrossingRate = (double) crossings / (samples - 1);
+        double threshold = Math.max(minEnergy, noiseFloor * noiseRatio);
+        boolean voiced = rms >= threshold && zeroCrossingRate <= maxZeroCrossingRate;
+
+        if (!voiced && !speaking) {
+            noiseFloor = noiseFloor == 0 ? rms : NOISE_ALPHA * rms + (1 - NOISE_ALPHA) * noiseFloor;
+        }
+
+        if (!speaking) {
+            speechRun = voiced ? speechRun + 1 : 0;
+            if (speechRun >= minSpeechFrames) {
+                speaking = true;
+                silenceRun = 0;
+                return Event.SPEECH_START;
+            }
+            return Event.NONE;
+        }
+
+        silenceRun = voiced ? 0 : silenceRun + 1;
+        if (silenceRun >= hangoverFrames) {
+            speaking = false;
+            ended = true;
+            return Event.SPEECH_END;
+        }
+        return Event.NONE;
+    }
+
+    private static Event merge(Event current, Event next) {
+        return next == Event.NONE || current == Event.SPEECH_END ? current : next;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.vocata.ai.vad;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * 服务端语音活动检测配置
+ * 只对客户端声明为原始PCM的录音创建检测器，压缩格式（webm/opus等）无法直接做能量分析
+ */
+@Component
+public class VoiceActivityDetectorFactory {
+
+    private static final Set<String> PCM_FORMATS = Set.of("pcm", "pcm16", "s16le", "l16", "raw");
+
+    @Value("${ai.vad.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.vad.default-sample-rate:16000}")
+    private int defaultSampleRate;
+
+    @Value("${ai.vad.frame-ms:20}")
+    private int frameMs;
+
+    @Value("${ai.vad.min-energy:400}")
+    private double minEnergy;
+
+    @Value("${ai.vad.noise-ratio:3.0}")
+    private double noiseRatio;
+
+    @Value("${ai.vad.max-zero-crossing-rate:0.35}")
+    private double maxZeroCrossingRate;
+
+    @Value("${ai.vad.min-speech-ms:200}")
+    private int minSpeechMs;
+
+    @Value("${ai.vad.hangover-ms:600}")
+    private int hangoverMs;
+
+    /**
+     * 录音格式是否支持服务端检测
+     */
+    public boolean supports(String audioFormat) {
+        return enabled && audioFormat != null && PCM_FORMATS.contains(audioFormat.toLowerCase());
+    }
+
+    /**
+     * 创建检测器，sampleRate不合法时使用默认采样率
+     */
+    public VoiceActivityDetector create(int sampleRate) {
+        return new VoiceActivityDetector(sampleRate > 0 ? sampleRate : defaultSampleRate,
+                frameMs, minEnergy, noiseRatio, maxZeroCrossingRate, minSpeechMs, hangoverMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -1,19 +1,28 @@
 package com.vocata.ai.websocket;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.vocata.ai.event.PipelineEvent;
+import com.vocata.ai.event.PipelineEventWriter;
+import com.vocata.ai.metrics.VoiceTurnMetrics;
 import com.vocata.ai.service.AiStreamingService;
+import com.vocata.ai.vad.VoiceActivityDetector;
+import com.vocata.ai.vad.VoiceActivityDetectorFactory;
+import jakarta.annotation.PostConstruct;
 import com.vocata.conversation.service.ConversationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import reactor.core.Disposable;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,21 +32,71 @@ import java.util.concurrent.ConcurrentHashMap;
  * 完整实现 STT -> LLM -> TTS 处理链路
  */
 @Component
-public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
+public class AiChatWebSocketHandler extends BinaryWebSocketHandler implements SubProtocolCapable {
 
     private static final Logger logger = LoggerFactory.getLogger(AiChatWebSocketHandler.class);
 
+    /**
+     * 二进制音频分帧子协议，客户端通过Sec-WebSocket-Protocol或URL参数audioFraming=binary协商
+     */
+    static final String BINARY_AUDIO_PROTOCOL = "vocata-audio-v1";
+
+    private static final String AUTHENTICATED_USER_ID = "authenticatedUserId";
+
+    /**
+     * 连接对URL中对话的归属校验结果，同一连接的对话固定不变，只查一次库
+     */
+    private static final String CONVERSATION_OWNED = "conversationOwned";
+
     @Autowired
     private AiStreamingService aiStreamingService;
 
     @Autowired
     private ConversationService conversationService;
 
+    @Autowired
+    private VoiceActivityDetectorFactory voiceActivityDetectorFactory;
+
+    @Autowired
+    private ClusterSessionRouter clusterSessionRouter;
+
+    @Autowired
+    private VoiceTurnMetrics voiceTurnMetrics;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // 存储每个会话的音频流
     private final Map<String, Sinks.Many<byte[]>> audioSinks = new ConcurrentHashMap<>();
 
+    // 每个会话正在进行的对话轮次（语音或文字），用于打断时取消整条处理链路
+    private final SessionTurnRegistry turnRegistry = new SessionTurnRegistry();
+
+    // 每个会话的出站写入器，所有下行消息经有界缓冲串行写出
+    private final Map<String, OutboundWebSocketSession> outboundSessions = new ConcurrentHashMap<>();
+
+    @Value("${ai.websocket.outbound.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${ai.websocket.outbound.buffer-size-limit:2097152}")
+    private int bufferSizeLimit;
+
+    /**
+     * 慢消费者策略：drop-audio 丢弃音频保留文字；drop-oldest 丢弃最早的消息；close 关闭连接
+     */
+    @Value("${ai.websocket.outbound.slow-consumer-policy:drop-audio}")
+    private String slowConsumerPolicy;
+
+    @Value("${ai.websocket.outbound.max-frame-bytes:32768}")
+    private int maxFrameBytes;
+
+    // 存储每个会话当前录音的服务端语音活动检测器（仅PCM录音）
+    private final Map<String, VoiceActivityDetector> voiceDetectors = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        clusterSessionRouter.setInboundHandler(this::handleRoutedMessage);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         logger.info("AI语音WebSocket连接建立: {}", session.getId());
@@ -51,12 +110,17 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         }
 
         // 将认证的用户ID存储到session中
-        session.getAttributes().put("authenticatedUserId", authenticatedUserId);
+        session.getAttributes().put(AUTHENTICATED_USER_ID, authenticatedUserId);
+        OutboundWebSocketSession outbound = outbound(session);
+        outbound.setBinaryFraming(BINARY_AUDIO_PROTOCOL.equals(session.getAcceptedProtocol())
+                || "binary".equalsIgnoreCase(extractQueryParam(session.getUri().toString(), "audioFraming")));
         logger.info("WebSocket用户认证成功: {} - 用户ID: {}", session.getId(), authenticatedUserId);
 
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+        // 告知客户端协商结果，binary时音频帧带定长头，不再发送tts_audio_meta
+        outbound.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
                 "type", "status",
                 "message", "WebSocket连接已建立",
+                "audioFraming", outbound.isBinaryFraming() ? "binary" : "json",
                 "timestamp", System.currentTimeMillis()
         ))));
     }
@@ -89,13 +153,143 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         // 将音频数据发送到对应的音频流
         Sinks.Many<byte[]> audioSink = audioSinks.get(sessionId);
         if (audioSink != null) {
-            audioSink.tryEmitNext(audioData);
+            // 本连接的网络线程与转发投递线程可能同时写入，按sink串行化，避免FAIL_NON_SERIALIZED静默丢帧
+            Sinks.EmitResult result;
+            synchronized (audioSink) {
+                result = audioSink.tryEmitNext(audioData);
+            }
+            if (result.isFailure()) {
+                logger.warn("音频数据写入流失败: {} - {}", sessionId, result);
+                return;
+            }
             logger.info("🎵 音频数据已添加到流: {} bytes", audioData.length);
-        } else {
+            detectVoiceActivity(session, audioData);
+        } else if (!forwardToOwner(session, SessionRoutingMessage.KIND_BINARY, audioData)) {
             logger.warn("未找到会话的音频流: {}", sessionId);
         }
     }
 
+    /**
+     * 本连接没有进行中的录音时，把上行消息交给持有该对话的连接（可能在其他节点）
+     * 只转发对话所有者本人的连接发来的消息，且归属连接也必须属于同一用户
+     *
+     * @return 是否已转发
+     */
+    private boolean forwardToOwner(WebSocketSession session, byte kind, byte[] payload) throws IOException {
+        if (!clusterSessionRouter.isEnabled()) {
+            return false;
+        }
+        String conversationUuid = extractConversationUuid(session.getUri().toString());
+        if (conversationUuid == null || !ownsConversation(session, conversationUuid)) {
+            return false;
+        }
+        String userId = (String) session.getAttributes().get(AUTHENTICATED_USER_ID);
+
+        String ownerSessionId = clusterSessionRouter.localSession(conversationUuid);
+        if (ownerSessionId != null) {
+            // 归属连接就在本节点，直接交给它处理
+            OutboundWebSocketSession owner = outboundSessions.get(ownerSessionId);
+            if (ownerSessionId.equals(session.getId()) || owner == null || !isSameUser(owner, userId)) {
+                return false;
+            }
+            deliver(owner, kind, payload);
+            return true;
+        }
+
+        String ownerNode = clusterSessionRouter.remoteOwner(conversationUuid);
+        return ownerNode != null && clusterSessionRouter.forward(ownerNode, kind, conversationUuid, userId, payload);
+    }
+
+    /**
+     * 处理其他节点转发来的上行消息
+     */
+    private void handleRoutedMessage(SessionRoutingMessage message) {
+        String sessionId = clusterSessionRouter.localSession(message.getConversationUuid());
+        OutboundWebSocketSession owner = sessionId != null ? outboundSessions.get(sessionId) : null;
+        if (owner == null || !owner.isOpen()) {
+            logger.debug("转发消息的目标连接已不在本节点，丢弃: 对话{}, 来源节点{}",
+                    message.getConversationUuid(), message.getSourceNode());
+            return;
+        }
+        if (!isSameUser(owner, message.getUserId())) {
+            logger.warn("转发消息的发送用户与对话归属连接不一致，丢弃: 对话{}, 来源节点{}, 用户{}",
+                    message.getConversationUuid(), message.getSourceNode(), message.getUserId());
+            return;
+        }
+        try {
+            deliver(owner, message.isText() ? SessionRoutingMessage.KIND_TEXT : SessionRoutingMessage.KIND_BINARY,
+                    message.getPayload());
+        } catch (IOException e) {
+            logger.error("处理转发消息失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean isSameUser(WebSocketSession owner, String userId) {
+        return userId != null && userId.equals(owner.getAttributes().get(AUTHENTICATED_USER_ID));
+    }
+
+    /**
+     * 校验连接的认证用户是否为对话所有者，结果缓存在连接属性中
+     * 认领对话归属与转发消息之前必须先通过校验，否则任何登录用户都能打断或注入他人对话的音频
+     */
+    private boolean ownsConversation(WebSocketSession session, String conversationUuid) {
+        Object cached = session.getAttributes().get(CONVERSATION_OWNED);
+        if (cached instanceof Boolean owned) {
+            return owned;
+        }
+        String userId = (String) session.getAttributes().get(AUTHENTICATED_USER_ID);
+        boolean owned;
+        try {
+            owned = userId != null && conversationService.validateConversationOwnership(
+                    UUID.fromString(conversationUuid), Long.parseLong(userId));
+        } catch (IllegalArgumentException e) {
+            owned = false;
+        }
+        session.getAttributes().put(CONVERSATION_OWNED, owned);
+        return owned;
+    }
+
+    /**
+     * 对话归属校验未通过：拒绝本次请求，并释放该连接此前可能登记的归属
+     */
+    private void rejectNotOwner(WebSocketSession session, String conversationUuid) throws IOException {
+        logger.warn("用户{}无权访问对话{}，拒绝请求: {}",
+                session.getAttributes().get(AUTHENTICATED_USER_ID), conversationUuid, session.getId());
+        clusterSessionRouter.release(session.getId());
+        sendErrorMessage(session, "无权限访问此对话");
+    }
+
+    private void deliver(WebSocketSession owner, byte kind, byte[] payload) throws IOException {
+        if (kind == SessionRoutingMessage.KIND_TEXT) {
+            handleTextMessage(owner, new TextMessage(payload));
+        } else {
+            handleBinaryMessage(owner, new BinaryMessage(payload));
+        }
+    }
+
+    /**
+     * 服务端端点检测：检测到说话结束后直接结束音频流，不再等待客户端的audio_end
+     * 检测器在网络线程上同步运行，只做整数运算，不分配内存
+     */
+    private void detectVoiceActivity(WebSocketSession session, byte[] audioData) throws IOException {
+        String sessionId = session.getId();
+        VoiceActivityDetector detector = voiceDetectors.get(sessionId);
+        if (detector == null) {
+            return;
+        }
+
+        VoiceActivityDetector.Event event = detector.accept(audioData);
+        if (event == VoiceActivityDetector.Event.SPEECH_START) {
+            logger.debug("检测到开始说话: {}", sessionId);
+            sendVadMessage(session, "speech_start");
+        } else if (event == VoiceActivityDetector.Event.SPEECH_END) {
+            logger.info("检测到说话结束，自动结束音频录制: {}", sessionId);
+            stopAudioInput(sessionId);
+            // 通知客户端停止录音，之后到达的音频和audio_end将被忽略
+            sendVadMessage(session, "speech_end");
+        }
+    }
+
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) {
         try {
@@ -105,15 +299,24 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
             String type = (String) data.get("type");
             String sessionId = session.getId();
 
-            if ("audio_start".equals(type) || "audio_end".equals(type) || "audio_cancel".equals(type) || "ping".equals(type)) {
+            if ("audio_start".equals(type) || "audio_end".equals(type) || "audio_cancel".equals(type)
+                    || "interrupt".equals(type) || "ping".equals(type)) {
                 logger.debug("收到控制指令: {}, 会话ID: {}", type, sessionId);
             } else {
                 logger.info("解析消息类型: {}, 会话ID: {}", type, sessionId);
             }
 
+            // 本连接没有进行中的录音与轮次时，结束、取消、打断指令属于持有该对话的其他连接
+            if (("audio_end".equals(type) || "audio_cancel".equals(type) || "interrupt".equals(type))
+                    && !audioSinks.containsKey(sessionId) && !turnRegistry.isActive(sessionId)
+                    && forwardToOwner(session, SessionRoutingMessage.KIND_TEXT, message.asBytes())) {
+                logger.debug("控制指令已转交对话归属连接: {}, 会话ID: {}", type, sessionId);
+                return;
+            }
+
             switch (type) {
                 case "audio_start":
-                    handleAudioStart(session);
+                    handleAudioStart(session, data);
                     break;
                 case "audio_end":
                     handleAudioEnd(session, data);
@@ -121,6 +324,9 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
                 case "audio_cancel":
                     handleAudioCancel(session);
                     break;
+                case "interrupt":
+                    handleInterrupt(session);
+                    break;
                 case "text_message":
                     handleTextInput(session, data);
                     break;
@@ -140,13 +346,44 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         }
     }
 
-    private void handleAudioStart(WebSocketSession session) throws IOException {
+    private void handleAudioStart(WebSocketSession session, Map<String, Object> data) throws IOException {
         String sessionId = session.getId();
         logger.info("开始音频录制: {}", sessionId);
 
-        // 创建音频数据流
+        // 从URI中提取对话UUID
+        String conversationUuid = extractConversationUuid(session.getUri().toString());
+
+        // 使用认证的用户ID，不信任URL参数
+        String authenticatedUserId = (String) session.getAttributes().get(AUTHENTICATED_USER_ID);
+
+        if (conversationUuid == null || authenticatedUserId == null) {
+            sendErrorMessage(session, "无效的请求URI");
+            return;
+        }
+        if (!ownsConversation(session, conversationUuid)) {
+            rejectNotOwner(session, conversationUuid);
+            return;
+        }
+
+        // 用户再次开口即打断：取消上一轮仍在进行的识别、回复与语音合成，未结束的录音直接丢弃
+        stopAudioInput(sessionId);
+        Disposable.Composite turn = turnRegistry.begin(sessionId);
+        outbound(session).beginAudioStream();
+        clusterSessionRouter.claim(conversationUuid, sessionId);
+
+        // 创建音频数据流，录音开始即订阅处理链路，音频边到达边送入STT
         Sinks.Many<byte[]> audioSink = Sinks.many().unicast().onBackpressureBuffer();
         audioSinks.put(sessionId, audioSink);
+        startVoiceProcessing(session, conversationUuid, authenticatedUserId, audioSink, turn);
+
+        // 客户端声明为PCM录音时启用服务端端点检测，如 {"type":"audio_start","format":"pcm","sampleRate":16000}
+        Object format = data.get("format");
+        if (format instanceof String && voiceActivityDetectorFactory.supports((String) format)) {
+            int sampleRate = data.get("sampleRate") instanceof Number ?
+                    ((Number) data.get("sampleRate")).intValue() : 0;
+            voiceDetectors.put(sessionId, voiceActivityDetectorFactory.create(sampleRate));
+            logger.debug("已启用服务端语音活动检测: {}", sessionId);
+        }
 
         sendStatusMessage(session, "开始接收音频数据");
     }
@@ -155,121 +392,56 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         String sessionId = session.getId();
         logger.info("结束音频录制: {}", sessionId);
 
-        Sinks.Many<byte[]> audioSink = audioSinks.remove(sessionId);
-        if (audioSink != null) {
-            audioSink.tryEmitComplete();
-
-            // 从URI中提取对话UUID
-            String uri = session.getUri().toString();
-            String conversationUuid = extractConversationUuid(uri);
-
-            // 使用认证的用户ID，不信任URL参数
-            String authenticatedUserId = (String) session.getAttributes().get("authenticatedUserId");
-
-            if (conversationUuid != null && authenticatedUserId != null) {
-                logger.info("🎤【完整AI处理】音频录制结束，开始STT->LLM->TTS处理 - 会话: {}, 用户: {}", 
-                           conversationUuid, authenticatedUserId);
-
-                // 完整AI处理链路: STT -> LLM -> TTS
-                aiStreamingService.processVoiceMessage(conversationUuid, authenticatedUserId, audioSink.asFlux())
-                        .subscribe(
-                                response -> {
-                                    try {
-                                        String responseType = (String) response.get("type");
-
-                                        if ("stt_result".equals(responseType)) {
-                                            @SuppressWarnings("unchecked")
-                                            Map<String, Object> payload = (Map<String, Object>) response.get("payload");
-                                            if (payload != null) {
-                                                sendSttResultFromPayload(session, payload);
-                                            }
-                                        } else if ("llm_chunk".equals(responseType)) {
-                                            @SuppressWarnings("unchecked")
-                                            Map<String, Object> payload = (Map<String, Object>) response.get("payload");
-                                            if (payload != null) {
-                                                String text = (String) payload.get("text");
-                                                Boolean isFinal = (Boolean) payload.get("is_final");
-                                                sendLlmTextStream(session, text != null ? text : "",
-                                                        isFinal != null && isFinal);
-                                            }
-                                        } else if ("audio_chunk".equals(responseType)) {
-                                            byte[] audioData = (byte[]) response.get("audio_data");
-                                            if (audioData != null) {
-                                                sendTtsAudioStream(session, audioData);
-                                            }
-                                        } else if ("tts_result".equals(responseType)) {
-                                            @SuppressWarnings("unchecked")
-                                            Map<String, Object> ttsPayload = (Map<String, Object>) response.get("tts_result");
-                                            if (ttsPayload != null) {
-                                                byte[] audioData = (byte[]) ttsPayload.get("audioData");
-                                                String correspondingText = (String) ttsPayload.get("correspondingText");
-                                                Object audioFormatObj = ttsPayload.get("audioFormat");
-                                                String audioFormat = audioFormatObj instanceof String ?
-                                                        (String) audioFormatObj : "mp3";
-                                                Object sampleRateObj = ttsPayload.get("sampleRate");
-                                                int sampleRate = sampleRateObj instanceof Number ?
-                                                        ((Number) sampleRateObj).intValue() : 24000;
-                                                String voiceId = ttsPayload.get("voiceId") instanceof String ?
-                                                        (String) ttsPayload.get("voiceId") : null;
-
-                                                Map<String, Object> ttsResultMessage = new HashMap<>();
-                                                ttsResultMessage.put("type", "tts_result");
-                                                ttsResultMessage.put("text", correspondingText != null ? correspondingText : "");
-                                                ttsResultMessage.put("format", audioFormat);
-                                                ttsResultMessage.put("sampleRate", sampleRate);
-                                                if (voiceId != null) {
-                                                    ttsResultMessage.put("voiceId", voiceId);
-                                                }
-                                                ttsResultMessage.put("timestamp", System.currentTimeMillis());
-
-                                                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(ttsResultMessage)));
-
-                                                if (audioData != null && audioData.length > 0) {
-                                                    sendTtsAudioStream(session, audioData);
-                                                } else {
-                                                    logger.warn("【TTS阶段】TTS结果缺少音频数据");
-                                                }
-                                            }
-                                        } else if ("complete".equals(responseType)) {
-                                            sendStatusMessage(session, "语音处理完成");
-                                        }
-                                    } catch (IOException e) {
-                                        logger.error("发送响应失败", e);
-                                    }
-                                },
-                                error -> {
-                                    logger.error("处理语音消息失败", error);
-                                    try {
-                                        sendErrorMessage(session, "语音处理失败: " + error.getMessage());
-                                    } catch (IOException e) {
-                                        logger.error("发送错误消息失败", e);
-                                    }
-                                },
-                                () -> {
-                                    logger.info("语音消息处理完成: {}", sessionId);
-                                    try {
-                                        sendStatusMessage(session, "语音处理完成");
-                                    } catch (IOException e) {
-                                        logger.error("发送完成消息失败", e);
-                                    }
-                                }
-                        );
-            } else {
-                sendErrorMessage(session, "无效的请求URI");
-            }
-        } else {
+        // 处理链路已在录音开始时启动，这里只需结束音频流，STT随即给出最终结果
+        // 服务端端点检测可能已提前结束音频流，此时处理链路仍在，客户端随后的audio_end直接忽略
+        if (!stopAudioInput(sessionId) && !turnRegistry.isActive(sessionId)) {
             sendErrorMessage(session, "未找到音频流");
         }
     }
 
+    /**
+     * 启动完整AI处理链路: STT -> LLM -> TTS
+     * 在录音开始时订阅，流式STT可以边收音频边识别
+     */
+    private void startVoiceProcessing(WebSocketSession session, String conversationUuid, String authenticatedUserId,
+                                      Sinks.Many<byte[]> audioSink, Disposable.Composite turn) {
+        String sessionId = session.getId();
+        logger.info("🎤【完整AI处理】开始STT->LLM->TTS处理 - 会话: {}, 用户: {}",
+                   conversationUuid, authenticatedUserId);
+
+        turn.add(aiStreamingService.processVoiceMessage(conversationUuid, authenticatedUserId, audioSink.asFlux())
+                // 下行写入可能因客户端网络阻塞，不占用上游的网络事件线程
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(
+                        event -> handlePipelineEvent(session, event),
+                        error -> {
+                            logger.error("处理语音消息失败", error);
+                            turnRegistry.finish(sessionId, turn);
+                            try {
+                                sendErrorMessage(session, "语音处理失败: " + error.getMessage());
+                            } catch (IOException e) {
+                                logger.error("发送错误消息失败", e);
+                            }
+                        },
+                        () -> {
+                            logger.info("语音消息处理完成: {}", sessionId);
+                            turnRegistry.finish(sessionId, turn);
+                            try {
+                                sendStatusMessage(session, "语音处理完成");
+                            } catch (IOException e) {
+                                logger.error("发送完成消息失败", e);
+                            }
+                        }
+                ));
+    }
+
     private void handleAudioCancel(WebSocketSession session) throws IOException {
         String sessionId = session.getId();
         logger.info("取消音频录制: {}", sessionId);
 
-        Sinks.Many<byte[]> audioSink = audioSinks.remove(sessionId);
-        if (audioSink != null) {
-            audioSink.tryEmitComplete();
-        }
+        // 取消录音不触发识别，直接终止处理链路
+        turnRegistry.cancel(sessionId);
+        stopAudioInput(sessionId);
 
         if (session.isOpen()) {
             sendStatusMessage(session, "录音已取消");
@@ -277,93 +449,138 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
     }
 
     /**
-     * 发送STT识别结果（从payload中提取）
+     * 客户端打断：立即停止当前轮次的回复与语音合成
      */
-    private void sendSttResultFromPayload(WebSocketSession session, Map<String, Object> payload) {
-        try {
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
-                    "type", "stt_result",
-                    "text", payload.getOrDefault("text", ""),
-                    "isFinal", payload.getOrDefault("is_final", false),
-                    "confidence", payload.getOrDefault("confidence", 0.0),
+    private void handleInterrupt(WebSocketSession session) throws IOException {
+        String sessionId = session.getId();
+        boolean cancelled = turnRegistry.cancel(sessionId);
+        stopAudioInput(sessionId);
+        logger.info("客户端打断当前回复: {}, 是否有进行中的轮次: {}", sessionId, cancelled);
+
+        if (session.isOpen()) {
+            outbound(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+                    "type", "interrupted",
+                    "cancelled", cancelled,
                     "timestamp", System.currentTimeMillis()
             ))));
-        } catch (IOException e) {
-            logger.error("发送STT结果失败", e);
         }
     }
 
     /**
-     * 发送LLM文本流 - 确保流式响应
+     * 获取会话的出站写入器，每个连接只创建并登记一次，所有写入都经由同一个写入器串行化
+     * 连接已关闭（资源已清理）时不再登记，避免关闭后迟到的事件把写入器重新放回表中
      */
-    private void sendLlmTextStream(WebSocketSession session, String content, boolean isComplete) {
+    private OutboundWebSocketSession outbound(WebSocketSession session) {
+        OutboundWebSocketSession outbound = outboundSessions.computeIfAbsent(session.getId(),
+                id -> session.isOpen() ? createOutbound(session) : null);
+        return outbound != null ? outbound : createOutbound(session);
+    }
+
+    private OutboundWebSocketSession createOutbound(WebSocketSession session) {
+        return new OutboundWebSocketSession(session, sendTimeLimitMs, bufferSizeLimit,
+                OutboundWebSocketSession.SlowConsumerPolicy.parse(slowConsumerPolicy), maxFrameBytes);
+    }
+
+    /**
+     * 结束当前录音的音频流
+     *
+     * @return 是否存在未结束的音频流
+     */
+    private boolean stopAudioInput(String sessionId) {
+        voiceDetectors.remove(sessionId);
+        Sinks.Many<byte[]> audioSink = audioSinks.remove(sessionId);
+        if (audioSink == null) {
+            return false;
+        }
+        synchronized (audioSink) {
+            audioSink.tryEmitComplete();
+        }
+        return true;
+    }
+
+    /**
+     * 下发一个链路事件，语音与文字对话共用
+     * 文本类事件直接序列化为文本帧；音频事件按慢消费者策略预留后写出，字幕在音频之前下发
+     */
+    private void handlePipelineEvent(WebSocketSession session, PipelineEvent event) {
         try {
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
-                    "type", "llm_text_stream",
-                    "text", content,
-                    "characterName", "AI助手",
-                    "isComplete", isComplete,
-                    "timestamp", System.currentTimeMillis()
-            ))));
+            if (event instanceof PipelineEvent.TtsAudio audio) {
+                sendTtsAudio(outbound(session), audio);
+            } else if (event instanceof PipelineEvent.Complete complete) {
+                // complete事件携带traceId，客户端反馈问题时可据此定位服务端日志与耗时指标
+                if (session.isOpen()) {
+                    outbound(session).sendMessage(new TextMessage(PipelineEventWriter.write(complete)));
+                }
+            } else if (event instanceof PipelineEvent.Error error) {
+                logger.error("【处理错误】: {}", error.message());
+                if (session.isOpen()) {
+                    outbound(session).sendMessage(new TextMessage(PipelineEventWriter.write(error)));
+                }
+            } else {
+                outbound(session).sendMessage(new TextMessage(PipelineEventWriter.write(event)));
+            }
         } catch (IOException e) {
-            logger.error("发送LLM文本流失败", e);
+            logger.error("发送响应失败", e);
+        }
+    }
+
+    /**
+     * 发送一帧TTS音频
+     * 语音对话先发送tts_caption字幕消息；二进制分帧时序号与编码已在帧头中，同一句的后续帧不再发送
+     */
+    private void sendTtsAudio(OutboundWebSocketSession outbound, PipelineEvent.TtsAudio audio) throws IOException {
+        byte[] audioData = audio.audio();
+        if (audioData != null && !outbound.tryReserveAudio(audioData.length)) {
+            // 客户端积压过多，本帧连同其结果消息一起丢弃
+            return;
+        }
+
+        if (audio.caption() != null && !(outbound.isBinaryFraming() && audio.frameIndex() > 0)) {
+            outbound.sendMessage(new TextMessage(PipelineEventWriter.write(audio)));
+        }
+
+        if (audioData != null && audioData.length > 0) {
+            long writeStart = System.nanoTime();
+            writeTtsAudio(outbound, audio);
+            voiceTurnMetrics.recordFlush(System.nanoTime() - writeStart);
+        } else if (audioData != null && audio.lastFrame()) {
+            // 空的结束帧只携带句子结束标记：二进制分帧时发送不带音频的帧头，否则无需发送
+            if (outbound.isBinaryFraming()) {
+                writeTtsAudio(outbound, audio);
+            }
+        } else {
+            logger.warn("【TTS阶段】TTS结果缺少音频数据");
         }
     }
 
     /**
-     * 发送TTS音频流 - 使用二进制分片传输避免64KB限制
+     * 写出音频，消息进入会话出站缓冲后立即返回，不等待客户端接收
+     * 二进制分帧时直接发送带帧头的音频，否则先发送JSON元数据再发送音频分片
      */
-    private void sendTtsAudioStream(WebSocketSession session, byte[] audioData) {
+    private void writeTtsAudio(OutboundWebSocketSession outbound, PipelineEvent.TtsAudio audio) {
+        byte[] audioData = audio.audio();
         try {
-            if (!session.isOpen()) {
+            if (!outbound.isOpen()) {
                 logger.warn("会话已关闭，跳过发送TTS音频数据");
                 return;
             }
-            logger.info("【TTS输出】发送音频数据到前端 - 大小: {} bytes", audioData.length);
-
-            // 先发送音频元数据（JSON格式）
-            Map<String, Object> audioMeta = Map.of(
-                    "type", "tts_audio_meta",
-                    "audioSize", audioData.length,
-                    "format", "mp3",
-                    "sampleRate", 24000,
-                    "channels", 1,
-                    "bitDepth", 16,
-                    "timestamp", System.currentTimeMillis()
-            );
-            String audioMetaJson = objectMapper.writeValueAsString(audioMeta);
-            logger.info("【TTS输出】发送音频元数据: {}", audioMetaJson);
-            session.sendMessage(new TextMessage(audioMetaJson));
-
-            // 检查音频数据大小，如果超过32KB则分片传输，避免客户端因单帧过大触发协议错误
-            final int MAX_CHUNK_SIZE = 32 * 1024; // 32KB每片，更好的兼容性
-
-            if (audioData.length <= MAX_CHUNK_SIZE) {
-                // 小于50KB，直接发送二进制消息
-                session.sendMessage(new BinaryMessage(audioData));
-                logger.info("【TTS输出】音频数据一次性发送完成 - {} bytes", audioData.length);
-            } else {
-                // 大于50KB，分片发送
-                int totalChunks = (int) Math.ceil((double) audioData.length / MAX_CHUNK_SIZE);
-                logger.info("【TTS输出】音频数据过大，分{}片发送 - 总大小: {} bytes", totalChunks, audioData.length);
+            logger.debug("【TTS输出】发送音频数据到前端 - 大小: {} bytes", audioData.length);
 
-                for (int i = 0; i < totalChunks; i++) {
-                    int start = i * MAX_CHUNK_SIZE;
-                    int end = Math.min(start + MAX_CHUNK_SIZE, audioData.length);
-                    byte[] chunk = java.util.Arrays.copyOfRange(audioData, start, end);
+            if (outbound.isBinaryFraming()) {
+                outbound.sendFramedAudio(audioData, audio.format(), audio.sampleRate(), audio.lastFrame());
+                return;
+            }
 
-                    // 发送分片数据
-                    session.sendMessage(new BinaryMessage(chunk));
-                    logger.info("【TTS输出】发送音频分片 {}/{} - {} bytes", i + 1, totalChunks, chunk.length);
+            // 先发送音频元数据（JSON格式）
+            outbound.sendMessage(new TextMessage(PipelineEventWriter.writeAudioMeta(audio)));
 
-                    // 分片间短暂延迟，避免网络拥塞
-                    Thread.sleep(10);
-                }
-                logger.info("【TTS输出】音频分片发送完成 - 共{}片", totalChunks);
-            }
+            // 超过单帧上限时分片传输，避免客户端因单帧过大触发协议错误
+            int frames = outbound.sendAudio(audioData);
+            logger.debug("【TTS输出】音频数据已写入出站缓冲 - {} bytes, {}片, 当前积压: {} bytes",
+                    audioData.length, frames, outbound.getBufferSize());
 
         } catch (Exception e) {
-            logger.error("【TTS输出】发送TTS音频流失败", e);
+            logger.error("【TTS输出】发送TTS音频流失败: {}", e.getMessage());
         }
     }
 
@@ -396,84 +613,44 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         }
 
         // 使用认证的用户ID，不信任URL参数
-        String authenticatedUserId = (String) session.getAttributes().get("authenticatedUserId");
+        String authenticatedUserId = (String) session.getAttributes().get(AUTHENTICATED_USER_ID);
         if (authenticatedUserId == null) {
             sendErrorMessage(session, "用户身份验证失败");
             return;
         }
+        if (!ownsConversation(session, conversationUuidStr)) {
+            rejectNotOwner(session, conversationUuidStr);
+            return;
+        }
 
         logger.info("【文字输入处理】开始处理 - 会话UUID: {}, 认证用户: {}, 文字内容: '{}'",
                 conversationUuidStr, authenticatedUserId, text);
 
+        // 新消息打断上一轮仍在进行的回复
+        String sessionId = session.getId();
+        stopAudioInput(sessionId);
+        Disposable.Composite turn = turnRegistry.begin(sessionId);
+        outbound(session).beginAudioStream();
+        clusterSessionRouter.claim(conversationUuidStr, sessionId);
+
         try {
             // 完整AI模式: 文本消息 -> LLM -> TTS
-            aiStreamingService.processTextMessage(conversationUuidStr, authenticatedUserId, text)
+            turn.add(aiStreamingService.processTextMessage(conversationUuidStr, authenticatedUserId, text)
+                    // 下行写入可能因客户端网络阻塞，不占用上游的网络事件线程
+                    .publishOn(Schedulers.boundedElastic())
                     .subscribe(
-                            response -> {
-                                try {
-                                    String responseType = (String) response.get("type");
-                                    logger.info("【WebSocket响应】收到响应类型: {}", responseType);
-
-                                    if ("text_chunk".equals(responseType)) {
-                                        @SuppressWarnings("unchecked")
-                                        Map<String, Object> payload = (Map<String, Object>) response.get("payload");
-                                        if (payload != null) {
-                                            String responseText = (String) payload.get("text");
-                                            Boolean isFinal = (Boolean) payload.get("is_final");
-
-                                            logger.info("【LLM阶段】流式文本响应 - 内容: '{}', 是否完整: {}",
-                                                    responseText, isFinal);
-
-                                            // 发送流式文本响应
-                                            sendLlmTextStream(session, responseText != null ? responseText : "",
-                                                    isFinal != null && isFinal);
-                                        }
-
-                                    } else if ("audio_chunk".equals(responseType)) {
-                                        byte[] audioData = (byte[]) response.get("audio_data");
-                                        if (audioData != null) {
-                                            logger.info("【TTS阶段】收到音频块，大小: {} bytes", audioData.length);
-
-                                            // 发送语音响应
-                                            sendTtsAudioStream(session, audioData);
-                                        }
-
-                                    } else if ("audio_complete".equals(responseType)) {
-                                        logger.info("【TTS阶段】音频合成完成");
-                                        // 可以发送音频完成标志
-                                        sendStatusMessage(session, "音频合成完成");
-
-                                    } else if ("complete".equals(responseType)) {
-                                        logger.info("【处理完成】文字消息处理链路完成");
-                                        sendStatusMessage(session, "处理完成");
-
-                                    } else if ("error".equals(responseType)) {
-                                        String errorMessage = (String) response.get("error");
-                                        if (errorMessage == null) {
-                                            errorMessage = (String) response.get("message");
-                                        }
-                                        logger.error("【处理错误】: {}", errorMessage);
-                                        sendErrorMessage(session, errorMessage != null ? errorMessage : "处理失败");
-                                    }
-
-                                } catch (Exception e) {
-                                    logger.error("【响应处理错误】: {}", e.getMessage(), e);
-                                    try {
-                                        sendErrorMessage(session, "响应处理失败");
-                                    } catch (IOException ex) {
-                                        logger.error("发送错误消息失败", ex);
-                                    }
-                                }
-                            },
+                            event -> handlePipelineEvent(session, event),
                             error -> {
                                 logger.error("【文字消息处理失败】: {}", error.getMessage(), error);
+                                turnRegistry.finish(sessionId, turn);
                                 try {
                                     sendErrorMessage(session, "文字消息处理失败: " + error.getMessage());
                                 } catch (IOException ex) {
                                     logger.error("发送错误消息失败", ex);
                                 }
-                            }
-                    );
+                            },
+                            () -> turnRegistry.finish(sessionId, turn)
+                    ));
 
         } catch (Exception e) {
             logger.error("【参数错误】UUID或用户ID格式错误: conversationUuid={}, userId={}", 
@@ -487,7 +664,7 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
             logger.warn("会话已关闭，无法发送状态消息: {}", message);
             return;
         }
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+        outbound(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
                 "type", "status",
                 "message", message,
                 "timestamp", System.currentTimeMillis()
@@ -499,15 +676,26 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
             logger.warn("会话已关闭，无法发送错误消息: {}", error);
             return;
         }
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+        outbound(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
                 "type", "error",
                 "error", error,
                 "timestamp", System.currentTimeMillis()
         ))));
     }
 
+    private void sendVadMessage(WebSocketSession session, String event) throws IOException {
+        if (!session.isOpen()) {
+            return;
+        }
+        outbound(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+                "type", "vad",
+                "event", event,
+                "timestamp", System.currentTimeMillis()
+        ))));
+    }
+
     private void sendPongMessage(WebSocketSession session) throws IOException {
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+        outbound(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
                 "type", "pong",
                 "timestamp", System.currentTimeMillis()
         ))));
@@ -573,6 +761,24 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         }
     }
 
+    private String extractQueryParam(String uri, String name) {
+        int queryStart = uri.indexOf('?');
+        if (queryStart < 0) {
+            return null;
+        }
+        for (String param : uri.substring(queryStart + 1).split("&")) {
+            if (param.startsWith(name + "=")) {
+                return java.net.URLDecoder.decode(param.substring(name.length() + 1), java.nio.charset.StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BINARY_AUDIO_PROTOCOL);
+    }
+
     private String extractConversationUuid(String uri) {
         // 从URI中提取对话标识符: /ws/chat/{conversation_uuid}?userId=1
         try {
@@ -593,10 +799,10 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
         logger.info("AI语音WebSocket连接关闭: {}, 状态: {}", sessionId, status);
 
         // 清理资源
-        Sinks.Many<byte[]> audioSink = audioSinks.remove(sessionId);
-        if (audioSink != null) {
-            audioSink.tryEmitComplete();
-        }
+        turnRegistry.cancel(sessionId);
+        stopAudioInput(sessionId);
+        outboundSessions.remove(sessionId);
+        clusterSessionRouter.release(sessionId);
     }
 
     @Override
@@ -605,9 +811,9 @@ public class AiChatWebSocketHandler extends BinaryWebSocketHandler {
 
         // 清理资源
         String sessionId = session.getId();
-        Sinks.Many<byte[]> audioSink = audioSinks.remove(sessionId);
-        if (audioSink != null) {
-            audioSink.tryEmitComplete();
-        }
+        turnRegistry.cancel(sessionId);
+        stopAudioInput(sessionId);
+        outboundSessions.remove(sessionId);
+        clusterSessionRouter.release(sessionId);
     }
 }
@@ -0,0 +1,260 @@
+package com.vocata.ai.websocket;
+
+import com.vocata.common.constant.CacheKeys;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 多节点会话路由
+ *
+ * 多副本部署在无会话保持的负载均衡之后时，同一对话的多条连接可能落在不同节点，
+ * 而录音音频流与进行中的对话轮次只存在于发起该轮次的节点内存中：
+ * 1. 对话发起录音或文字消息时，当前节点在Redis中登记为该对话的归属节点
+ * 2. 其他节点收到该对话的音频帧或控制消息、且本地没有对应的音频流时，原样发布到归属节点的频道
+ * 3. 归属节点收到转发消息后交给本地持有该对话的连接处理，就像消息直接到达一样
+ * 登记与转发都只对已通过对话归属校验的连接进行，转发消息携带发送用户ID，归属节点核对后才投递
+ *
+ * 未启用时所有方法都是本地空操作，单节点部署不依赖Redis发布订阅
+ */
+@Component
+class ClusterSessionRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterSessionRouter.class);
+
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Value("${ai.websocket.cluster.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 节点ID，为空时使用主机名加随机后缀，保证同一主机上的多个进程互不冲突
+     */
+    @Value("${ai.websocket.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${ai.websocket.cluster.owner-ttl-seconds:600}")
+    private long ownerTtlSeconds;
+
+    /**
+     * 非归属节点缓存归属查询结果的时长，避免每个音频帧都访问Redis
+     */
+    @Value("${ai.websocket.cluster.owner-cache-ms:2000}")
+    private long ownerCacheMs;
+
+    private String nodeId;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    private ExecutorService dispatchExecutor;
+
+    private volatile Consumer<SessionRoutingMessage> inboundHandler;
+
+    // 本节点持有的对话 -> 本地连接ID
+    private final Map<String, String> localOwners = new ConcurrentHashMap<>();
+
+    // 其他节点归属的对话 -> 缓存的归属查询结果
+    private final Map<String, CachedOwner> remoteOwners = new ConcurrentHashMap<>();
+
+    private record CachedOwner(String nodeId, long expiresAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank() ? configuredNodeId : defaultNodeId();
+        if (!enabled) {
+            return;
+        }
+
+        // 默认执行器为每条消息新建线程，同一对话的音频帧与audio_end会乱序、并发到达；
+        // 单线程按订阅收到的顺序逐条投递，保证转发消息的先后关系
+        dispatchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-cluster-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisConnectionFactory);
+        listenerContainer.setTaskExecutor(dispatchExecutor);
+        listenerContainer.addMessageListener((message, pattern) -> dispatch(message.getBody()),
+                new ChannelTopic(nodeChannel(nodeId)));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        logger.info("WebSocket多节点路由已启用，节点ID: {}", nodeId);
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+        if (dispatchExecutor != null) {
+            dispatchExecutor.shutdownNow();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    void setInboundHandler(Consumer<SessionRoutingMessage> inboundHandler) {
+        this.inboundHandler = inboundHandler;
+    }
+
+    /**
+     * 登记本节点为对话的归属节点，后续到达其他节点的音频与控制消息会转发到这里
+     */
+    void claim(String conversationUuid, String sessionId) {
+        if (!enabled) {
+            return;
+        }
+        localOwners.put(conversationUuid, sessionId);
+        remoteOwners.remove(conversationUuid);
+        try {
+            redisTemplate.opsForValue().set(ownerKey(conversationUuid), nodeId, Duration.ofSeconds(ownerTtlSeconds));
+        } catch (Exception e) {
+            logger.warn("登记会话归属失败，对话: {} - {}", conversationUuid, e.getMessage());
+        }
+    }
+
+    /**
+     * 连接关闭时释放其持有的对话，只删除仍指向本节点的归属记录
+     */
+    void release(String sessionId) {
+        if (!enabled) {
+            return;
+        }
+        localOwners.forEach((conversationUuid, ownerSession) -> {
+            if (!ownerSession.equals(sessionId) || !localOwners.remove(conversationUuid, sessionId)) {
+                return;
+            }
+            try {
+                redisTemplate.execute(new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class),
+                        Collections.singletonList(ownerKey(conversationUuid)), nodeId);
+            } catch (Exception e) {
+                logger.warn("释放会话归属失败，对话: {} - {}", conversationUuid, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 本节点上持有该对话的连接ID
+     */
+    String localSession(String conversationUuid) {
+        return localOwners.get(conversationUuid);
+    }
+
+    /**
+     * 查询对话的归属节点，归属于本节点或无人归属时返回null
+     */
+    String remoteOwner(String conversationUuid) {
+        if (!enabled || conversationUuid == null || localOwners.containsKey(conversationUuid)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        CachedOwner cached = remoteOwners.get(conversationUuid);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.nodeId();
+        }
+
+        String owner = null;
+        try {
+            Object value = redisTemplate.opsForValue().get(ownerKey(conversationUuid));
+            owner = value instanceof String ? (String) value : null;
+        } catch (Exception e) {
+            logger.warn("查询会话归属失败，对话: {} - {}", conversationUuid, e.getMessage());
+        }
+        if (owner == null || owner.equals(nodeId)) {
+            remoteOwners.remove(conversationUuid);
+            return null;
+        }
+        remoteOwners.put(conversationUuid, new CachedOwner(owner, now + ownerCacheMs));
+        return owner;
+    }
+
+    /**
+     * 把上行消息转发到归属节点
+     *
+     * @return 归属节点是否在线接收；为false时调用方按本地消息处理
+     */
+    boolean forward(String ownerNode, byte kind, String conversationUuid, String userId, byte[] payload) {
+        byte[] channel = nodeChannel(ownerNode).getBytes(StandardCharsets.UTF_8);
+        byte[] body = new SessionRoutingMessage(kind, conversationUuid, nodeId, userId, payload).encode();
+        try {
+            Long receivers = redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+            if (receivers != null && receivers > 0) {
+                return true;
+            }
+            logger.warn("归属节点{}不在线，对话{}的消息改为本地处理", ownerNode, conversationUuid);
+        } catch (Exception e) {
+            logger.warn("转发消息到节点{}失败: {}", ownerNode, e.getMessage());
+        }
+        remoteOwners.remove(conversationUuid);
+        return false;
+    }
+
+    private void dispatch(byte[] body) {
+        Consumer<SessionRoutingMessage> handler = inboundHandler;
+        if (handler == null) {
+            return;
+        }
+        try {
+            handler.accept(SessionRoutingMessage.decode(body));
+        } catch (IOException e) {
+            logger.warn("丢弃无法解析的转发消息: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("处理转发消息失败", e);
+        }
+    }
+
+    private static String ownerKey(String conversationUuid) {
+        return CacheKeys.WS_SESSION_OWNER + conversationUuid;
+    }
+
+    private static String nodeChannel(String nodeId) {
+        return CacheKeys.WS_NODE_CHANNEL + nodeId;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
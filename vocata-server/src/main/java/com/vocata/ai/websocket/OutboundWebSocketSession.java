@@ -0,0 +1,155 @@
+package com.vocata.ai.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话出站写入器
+ *
+ * 基于ConcurrentWebSocketSessionDecorator：同一时刻只有一个线程向底层连接写入，
+ * 其他线程的消息进入有界缓冲后立即返回，一个慢速客户端不会拖住回调所在的响应式线程。
+ * 缓冲超出发送时长或大小上限时按慢消费者策略处理：
+ * 1. DROP_AUDIO：缓冲积压超过一半上限时丢弃新的音频，文字消息照常发送；仍然超限时关闭连接
+ * 2. DROP_OLDEST：丢弃缓冲中最早的消息
+ * 3. CLOSE：直接关闭连接
+ *
+ * 客户端协商启用二进制分帧时，音频以{@link TtsAudioFrame}格式发送，不再附带JSON元数据
+ */
+class OutboundWebSocketSession extends ConcurrentWebSocketSessionDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundWebSocketSession.class);
+
+    /**
+     * 慢消费者策略
+     */
+    enum SlowConsumerPolicy {
+        DROP_AUDIO,
+        DROP_OLDEST,
+        CLOSE;
+
+        static SlowConsumerPolicy parse(String value) {
+            if (value == null) {
+                return DROP_AUDIO;
+            }
+            return switch (value.trim().toLowerCase().replace('_', '-')) {
+                case "drop-oldest", "drop" -> DROP_OLDEST;
+                case "close", "terminate" -> CLOSE;
+                default -> DROP_AUDIO;
+            };
+        }
+    }
+
+    private final SlowConsumerPolicy policy;
+    private final int audioDropThreshold;
+    private final int maxFrameBytes;
+    private final AtomicLong droppedAudioBytes = new AtomicLong();
+
+    private volatile boolean binaryFraming;
+    private final AtomicInteger streamId = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    OutboundWebSocketSession(WebSocketSession session, int sendTimeLimitMs, int bufferSizeLimit,
+                             SlowConsumerPolicy policy, int maxFrameBytes) {
+        super(session, sendTimeLimitMs, bufferSizeLimit,
+                policy == SlowConsumerPolicy.DROP_OLDEST ? OverflowStrategy.DROP : OverflowStrategy.TERMINATE);
+        this.policy = policy;
+        this.audioDropThreshold = bufferSizeLimit / 2;
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        try {
+            super.sendMessage(message);
+        } catch (SessionLimitExceededException e) {
+            logger.warn("客户端接收过慢，关闭连接: {} - {}", getId(), e.getMessage());
+            try {
+                getDelegate().close(e.getStatus());
+            } catch (IOException closeError) {
+                logger.debug("关闭慢速连接失败: {}", closeError.getMessage());
+            }
+            throw new IOException("客户端接收过慢，连接已关闭", e);
+        }
+    }
+
+    /**
+     * 当前积压是否还允许发送指定大小的音频
+     * 返回false时调用方应跳过整段音频（包括其元数据），保证客户端收到的每段音频都是完整的
+     */
+    boolean tryReserveAudio(int audioBytes) {
+        if (policy != SlowConsumerPolicy.DROP_AUDIO || getBufferSize() + audioBytes <= audioDropThreshold) {
+            return true;
+        }
+        long dropped = droppedAudioBytes.addAndGet(audioBytes);
+        logger.warn("客户端接收过慢，丢弃音频: {} - 本次{} bytes，累计{} bytes，当前积压{} bytes",
+                getId(), audioBytes, dropped, getBufferSize());
+        return false;
+    }
+
+    /**
+     * 按帧大小切片发送音频，切片与原数组共享内存，不做复制
+     *
+     * @return 发送的帧数
+     */
+    int sendAudio(byte[] audioData) throws IOException {
+        int frames = 0;
+        for (int offset = 0; offset < audioData.length; offset += maxFrameBytes) {
+            int length = Math.min(maxFrameBytes, audioData.length - offset);
+            sendMessage(new BinaryMessage(ByteBuffer.wrap(audioData, offset, length).slice()));
+            frames++;
+        }
+        return frames;
+    }
+
+    /**
+     * 按二进制分帧协议发送音频，超过单帧上限时切分为多帧，只有最后一帧带本句结束标志
+     *
+     * @return 发送的帧数
+     */
+    int sendFramedAudio(byte[] audioData, String format, int sampleRate, boolean segmentEnd) throws IOException {
+        byte codec = TtsAudioFrame.codecOf(format);
+        int currentStream = streamId.get();
+        int payloadLimit = Math.max(1, maxFrameBytes - TtsAudioFrame.HEADER_BYTES);
+        int frames = 0;
+        int offset = 0;
+        do {
+            int length = Math.min(payloadLimit, audioData.length - offset);
+            boolean last = offset + length >= audioData.length;
+            sendMessage(new BinaryMessage(TtsAudioFrame.encode(currentStream, sequence.getAndIncrement(), codec,
+                    sampleRate, segmentEnd && last, audioData, offset, length)));
+            offset += length;
+            frames++;
+        } while (offset < audioData.length);
+        return frames;
+    }
+
+    /**
+     * 新对话轮次开始，分配新的流ID并重置序号
+     */
+    void beginAudioStream() {
+        streamId.incrementAndGet();
+        sequence.set(0);
+    }
+
+    boolean isBinaryFraming() {
+        return binaryFraming;
+    }
+
+    void setBinaryFraming(boolean binaryFraming) {
+        this.binaryFraming = binaryFraming;
+    }
+
+    long getDroppedAudioBytes() {
+        return droppedAudioBytes.get();
+    }
+}
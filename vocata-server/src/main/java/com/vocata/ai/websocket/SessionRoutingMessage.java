@@ -0,0 +1,101 @@
+package com.vocata.ai.websocket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 跨节点转发的WebSocket上行消息
+ *
+ * 连接落在非归属节点时，音频帧与控制消息原样封装后经Redis发布到归属节点的频道。
+ * 采用紧凑的二进制编码，音频无需Base64：
+ * <pre>
+ * 1字节  类型：1文本帧 2二进制帧
+ * UTF    对话UUID
+ * UTF    来源节点ID
+ * UTF    发送连接的认证用户ID，归属节点据此确认与归属连接是同一用户
+ * 4字节  载荷长度
+ * N字节  载荷（文本帧为UTF-8）
+ * </pre>
+ */
+final class SessionRoutingMessage {
+
+    static final byte KIND_TEXT = 1;
+
+    static final byte KIND_BINARY = 2;
+
+    private final byte kind;
+    private final String conversationUuid;
+    private final String sourceNode;
+    private final String userId;
+    private final byte[] payload;
+
+    SessionRoutingMessage(byte kind, String conversationUuid, String sourceNode, String userId, byte[] payload) {
+        if (kind != KIND_TEXT && kind != KIND_BINARY) {
+            throw new IllegalArgumentException("未知的转发消息类型: " + kind);
+        }
+        this.kind = kind;
+        this.conversationUuid = conversationUuid;
+        this.sourceNode = sourceNode;
+        this.userId = userId;
+        this.payload = payload;
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length + 96);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(kind);
+            out.writeUTF(conversationUuid);
+            out.writeUTF(sourceNode);
+            out.writeUTF(userId);
+            out.writeInt(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            // 写入内存缓冲不会失败
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    static SessionRoutingMessage decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte kind = in.readByte();
+        String conversationUuid = in.readUTF();
+        String sourceNode = in.readUTF();
+        String userId = in.readUTF();
+        int length = in.readInt();
+        if (length < 0 || length > bytes.length) {
+            throw new IOException("转发消息长度非法: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        try {
+            return new SessionRoutingMessage(kind, conversationUuid, sourceNode, userId, payload);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    boolean isText() {
+        return kind == KIND_TEXT;
+    }
+
+    String getConversationUuid() {
+        return conversationUuid;
+    }
+
+    String getSourceNode() {
+        return sourceNode;
+    }
+
+    String getUserId() {
+        return userId;
+    }
+
+    byte[] getPayload() {
+        return payload;
+    }
+}
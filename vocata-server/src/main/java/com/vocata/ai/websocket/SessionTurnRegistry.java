@@ -0,0 +1,56 @@
+package com.vocata.ai.websocket;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话对话轮次注册表
+ *
+ * 每个WebSocket会话同一时刻只保留一个进行中的轮次（语音或文字），轮次内的全部订阅登记在同一个组合Disposable中。
+ * 新轮次开始（用户再次说话）、客户端打断或连接关闭时取消上一轮次，取消信号沿响应式链路向上传播，
+ * 关闭上游的LLM HTTP请求与TTS/STT WebSocket连接，不再继续消耗配额或向客户端推送过期内容
+ */
+class SessionTurnRegistry {
+
+    private final Map<String, Disposable.Composite> turns = new ConcurrentHashMap<>();
+
+    /**
+     * 开始新轮次，同时取消该会话正在进行的轮次
+     */
+    Disposable.Composite begin(String sessionId) {
+        Disposable.Composite turn = Disposables.composite();
+        Disposable.Composite previous = turns.put(sessionId, turn);
+        if (previous != null) {
+            previous.dispose();
+        }
+        return turn;
+    }
+
+    /**
+     * 取消该会话正在进行的轮次
+     *
+     * @return 是否存在被取消的轮次
+     */
+    boolean cancel(String sessionId) {
+        Disposable.Composite turn = turns.remove(sessionId);
+        if (turn == null) {
+            return false;
+        }
+        turn.dispose();
+        return true;
+    }
+
+    /**
+     * 轮次正常结束后移除，已被新轮次替换时不做处理
+     */
+    void finish(String sessionId, Disposable.Composite turn) {
+        turns.remove(sessionId, turn);
+    }
+
+    boolean isActive(String sessionId) {
+        return turns.containsKey(sessionId);
+    }
+}
@@ -0,0 +1,76 @@
+package com.vocata.ai.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * TTS音频二进制帧编码
+ *
+ * 客户端在连接时协商启用后，每条二进制消息由16字节定长头和音频数据组成（大端序）：
+ * <pre>
+ * 偏移  长度  字段
+ *  0     1    魔数 'V'
+ *  1     1    协议版本，当前为1
+ *  2     1    标志位，bit0=本句音频的最后一帧
+ *  3     1    编码：0未知 1mp3 2pcm 3wav 4opus 5aac
+ *  4     4    流ID，每个对话轮次递增
+ *  8     4    流内序号，从0递增
+ * 12     4    采样率
+ * 16     -    音频数据
+ * </pre>
+ * 控制事件（识别结果、文字流、完成、错误）仍走文本帧，音频帧不再附带JSON元数据
+ */
+final class TtsAudioFrame {
+
+    static final int HEADER_BYTES = 16;
+
+    static final byte MAGIC = 'V';
+
+    static final byte VERSION = 1;
+
+    static final byte FLAG_SEGMENT_END = 0x01;
+
+    static final byte CODEC_UNKNOWN = 0;
+    static final byte CODEC_MP3 = 1;
+    static final byte CODEC_PCM = 2;
+    static final byte CODEC_WAV = 3;
+    static final byte CODEC_OPUS = 4;
+    static final byte CODEC_AAC = 5;
+
+    private TtsAudioFrame() {
+    }
+
+    /**
+     * 音频格式名称映射为编码号
+     */
+    static byte codecOf(String format) {
+        if (format == null) {
+            return CODEC_UNKNOWN;
+        }
+        return switch (format.toLowerCase()) {
+            case "mp3", "lame" -> CODEC_MP3;
+            case "pcm", "raw", "s16le" -> CODEC_PCM;
+            case "wav" -> CODEC_WAV;
+            case "opus", "ogg", "ogg_opus" -> CODEC_OPUS;
+            case "aac" -> CODEC_AAC;
+            default -> CODEC_UNKNOWN;
+        };
+    }
+
+    /**
+     * 编码一帧，返回可直接发送的缓冲区（position为0，limit为帧长度）
+     */
+    static ByteBuffer encode(int streamId, int sequence, byte codec, int sampleRate, boolean segmentEnd,
+                             byte[] audio, int offset, int length) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + length);
+        frame.put(MAGIC)
+                .put(VERSION)
+                .put(segmentEnd ? FLAG_SEGMENT_END : 0)
+                .put(codec)
+                .putInt(streamId)
+                .putInt(sequence)
+                .putInt(sampleRate)
+                .put(audio, offset, length);
+        frame.flip();
+        return frame;
+    }
+}
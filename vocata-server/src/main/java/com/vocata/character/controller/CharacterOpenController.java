@@ -1,18 +1,23 @@
 package com.vocata.character.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.vocata.character.dto.request.CharacterSearchRequest;
 import com.vocata.character.dto.response.CharacterDetailResponse;
 import com.vocata.character.dto.response.CharacterResponse;
 import com.vocata.character.entity.Character;
+import com.vocata.character.service.CharacterCacheService;
+import com.vocata.character.service.CharacterSearchService;
 import com.vocata.character.service.CharacterService;
 import com.vocata.common.constant.CharacterStatus;
 import com.vocata.common.exception.BizException;
 import com.vocata.common.result.ApiCode;
 import com.vocata.common.result.ApiResponse;
+import com.vocata.common.result.CursorPageResult;
 import com.vocata.common.result.PageResult;
 import com.vocata.user.service.UserFavoriteService;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -35,6 +40,12 @@ public class CharacterOpenController {
     @Autowired
     private UserFavoriteService userFavoriteService;
 
+    @Autowired
+    private CharacterSearchService characterSearchService;
+
+    @Autowired
+    private CharacterCacheService characterCacheService;
+
     /**
      * 获取公开角色列表
      * GET /api/open/character/list 或 /api/open/character/public
@@ -45,30 +56,63 @@ public class CharacterOpenController {
         int pageNum = request.getPageNum() != null ? request.getPageNum() : 1;
         int pageSize = request.getPageSize() != null ? request.getPageSize() : 15; // 默认每页15个
 
-        Page<Character> page = new Page<>(pageNum, pageSize);
+        String cacheName = "public:" + pageNum + ":" + pageSize + ":" + request.getIsFeatured() + ":"
+                + request.getTags() + ":" + request.getOrderBy() + ":" + request.getOrderDirection();
+        PageResult<CharacterResponse> pageResult = characterCacheService.getList(cacheName,
+                new TypeReference<PageResult<CharacterResponse>>() {}, () -> {
+                    Page<Character> page = new Page<>(pageNum, pageSize);
+
+                    // 使用带创建者名称的查询方法
+                    IPage<Map<String, Object>> result = characterService.getPublicCharactersWithCreator(
+                            page,
+                            CharacterStatus.PUBLISHED, // 只查询已发布的角色
+                            request.getIsFeatured(),
+                            request.getTags(),
+                            request.getOrderBy(),
+                            request.getOrderDirection()
+                    );
+
+                    List<CharacterResponse> responseList = result.getRecords().stream()
+                            .map(this::convertMapToResponse)
+                            .collect(Collectors.toList());
+
+                    return PageResult.of(pageNum, pageSize, result.getTotal(), responseList);
+                });
 
-        // 使用带创建者名称的查询方法
-        IPage<Map<String, Object>> result = characterService.getPublicCharactersWithCreator(
-                page,
+        return ApiResponse.success(pageResult);
+    }
+
+    /**
+     * 游标分页获取公开角色列表，适用于无限滚动与深分页
+     * GET /api/open/character/list/cursor?pageSize=15&orderBy=chat_count&orderDirection=desc
+     * 下一页把上次返回的nextCursor原样传回，排序条件需保持不变；withTotal=false时不统计总数
+     */
+    @GetMapping("/list/cursor")
+    public ApiResponse<CursorPageResult<CharacterResponse>> getPublicCharactersByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "pageSize", defaultValue = "15") Integer pageSize,
+            @RequestParam(value = "isFeatured", required = false) Integer isFeatured,
+            @RequestParam(value = "orderBy", defaultValue = "chat_count") String orderBy,
+            @RequestParam(value = "orderDirection", defaultValue = "desc") String orderDirection,
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal) {
+        int safePageSize = Math.min(100, Math.max(1, pageSize));
+
+        CursorPageResult<Map<String, Object>> result = characterService.getPublicCharactersByCursor(
+                cursor,
+                safePageSize,
                 CharacterStatus.PUBLISHED, // 只查询已发布的角色
-                request.getIsFeatured(),
-                request.getTags(),
-                request.getOrderBy(),
-                request.getOrderDirection()
+                isFeatured,
+                orderBy,
+                orderDirection,
+                withTotal
         );
 
-        List<CharacterResponse> responseList = result.getRecords().stream()
+        List<CharacterResponse> responseList = result.getList().stream()
                 .map(this::convertMapToResponse)
                 .collect(Collectors.toList());
 
-        PageResult<CharacterResponse> pageResult = PageResult.of(
-                pageNum,
-                pageSize,
-                result.getTotal(),
-                responseList
-        );
-
-        return ApiResponse.success(pageResult);
+        return ApiResponse.success(CursorPageResult.of(
+                safePageSize, result.getTotal(), responseList, result.getNextCursor()));
     }
 
     /**
@@ -81,6 +125,21 @@ public class CharacterOpenController {
         int pageNum = request.getPageNum() != null ? request.getPageNum() : 1;
         int pageSize = request.getPageSize() != null ? request.getPageSize() : 15; // 默认每页15个
 
+        // 优先使用全文搜索（相关度排序 + 高亮），关闭或失败时回退LIKE查询
+        if (StringUtils.isNotBlank(request.getKeyword()) && characterSearchService.isEnabled()) {
+            IPage<Map<String, Object>> searchResult = characterSearchService.search(
+                    new Page<>(pageNum, pageSize),
+                    request.getKeyword(),
+                    CharacterStatus.PUBLISHED // 只搜索已发布的
+            );
+            if (searchResult != null) {
+                List<CharacterResponse> responseList = searchResult.getRecords().stream()
+                        .map(this::convertSearchMapToResponse)
+                        .collect(Collectors.toList());
+                return ApiResponse.success(PageResult.of(pageNum, pageSize, searchResult.getTotal(), responseList));
+            }
+        }
+
         Page<Character> page = new Page<>(pageNum, pageSize);
 
         IPage<Character> result = characterService.searchCharacters(
@@ -109,10 +168,11 @@ public class CharacterOpenController {
      */
     @GetMapping("/trending")
     public ApiResponse<List<CharacterResponse>> getTrendingCharacters(@RequestParam(defaultValue = "10") int limit) {
-        List<Character> characters = characterService.getTrendingCharacters(limit);
-        List<CharacterResponse> responses = characters.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<CharacterResponse> responses = characterCacheService.getList("trending:" + limit,
+                new TypeReference<List<CharacterResponse>>() {},
+                () -> characterService.getTrendingCharacters(limit).stream()
+                        .map(this::convertToResponse)
+                        .collect(Collectors.toList()));
 
         return ApiResponse.success(responses);
     }
@@ -123,10 +183,11 @@ public class CharacterOpenController {
      */
     @GetMapping("/featured")
     public ApiResponse<List<CharacterResponse>> getFeaturedCharacters(@RequestParam(defaultValue = "10") int limit) {
-        List<Map<String, Object>> charactersWithCreator = characterService.getFeaturedCharactersWithCreator(limit);
-        List<CharacterResponse> responses = charactersWithCreator.stream()
-                .map(this::convertMapToResponse)
-                .collect(Collectors.toList());
+        List<CharacterResponse> responses = characterCacheService.getList("featured:" + limit,
+                new TypeReference<List<CharacterResponse>>() {},
+                () -> characterService.getFeaturedCharactersWithCreator(limit).stream()
+                        .map(this::convertMapToResponse)
+                        .collect(Collectors.toList()));
 
         return ApiResponse.success(responses);
     }
@@ -142,6 +203,52 @@ public class CharacterOpenController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 按标签筛选公开角色
+     * GET /api/open/character/by-tags?tagIds=1,2&match=any
+     * match=any 包含任意一个标签，match=all 包含全部标签
+     */
+    @GetMapping("/by-tags")
+    public ApiResponse<PageResult<CharacterResponse>> getCharactersByTags(
+            @RequestParam(value = "tagIds", required = false) Long[] tagIds,
+            @RequestParam(value = "match", defaultValue = "any") String match,
+            @RequestParam(value = "pageNum", defaultValue = "1") Integer pageNum,
+            @RequestParam(value = "pageSize", defaultValue = "15") Integer pageSize) {
+        int safePageNum = Math.max(1, pageNum);
+        int safePageSize = Math.min(100, Math.max(1, pageSize));
+
+        IPage<Character> result = characterService.getCharactersByTagIds(
+                new Page<>(safePageNum, safePageSize),
+                tagIds,
+                parseMatchAll(match),
+                CharacterStatus.PUBLISHED // 只查询已发布的角色
+        );
+
+        List<CharacterResponse> responseList = result.getRecords().stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+
+        return ApiResponse.success(PageResult.of(safePageNum, safePageSize, result.getTotal(), responseList));
+    }
+
+    /**
+     * 标签分面统计：各标签下的已发布公开角色数量，传入已选标签时只统计满足筛选条件的角色
+     * GET /api/open/character/tag-facets?tagIds=1,2&match=all&limit=30
+     */
+    @GetMapping("/tag-facets")
+    public ApiResponse<List<Map<String, Object>>> getTagFacets(
+            @RequestParam(value = "tagIds", required = false) Long[] tagIds,
+            @RequestParam(value = "match", defaultValue = "any") String match,
+            @RequestParam(value = "limit", defaultValue = "30") Integer limit) {
+        List<Map<String, Object>> facets = characterService.countCharactersByTag(
+                tagIds,
+                parseMatchAll(match),
+                CharacterStatus.PUBLISHED,
+                Math.min(200, Math.max(1, limit))
+        );
+        return ApiResponse.success(facets);
+    }
+
     /**
      * 根据角色编码或ID获取角色详情
      * GET /api/open/character/{characterCodeOrId}
@@ -150,33 +257,60 @@ public class CharacterOpenController {
      */
     @GetMapping("/{characterCodeOrId}")
     public ApiResponse<CharacterDetailResponse> getCharacterByCodeOrId(@PathVariable String characterCodeOrId) {
-        Character character = null;
+        CharacterDetailResponse response = null;
 
         // 首先尝试按ID查找（如果传入的是数字）
         try {
-            Long id = Long.parseLong(characterCodeOrId);
-            character = characterService.getById(id);
-            // 确保角色已发布
-            if (character != null && character.getStatus() != CharacterStatus.PUBLISHED) {
-                character = null;
-            }
+            response = getPublishedDetail(Long.parseLong(characterCodeOrId));
         } catch (NumberFormatException e) {
             // 不是数字，忽略异常继续按编码查找
         }
 
         // 如果按ID未找到，尝试按角色编码查找
-        if (character == null) {
-            character = characterService.getByCharacterCode(characterCodeOrId);
+        if (response == null) {
+            Long characterId = characterCacheService.resolveCode(characterCodeOrId, () -> {
+                Character character = characterService.getByCharacterCode(characterCodeOrId);
+                return character != null ? character.getId() : null;
+            });
+            if (characterId != null) {
+                response = getPublishedDetail(characterId);
+            }
         }
 
-        if (character == null) {
+        if (response == null) {
             throw new BizException(ApiCode.DATA_NOT_FOUND, "角色不存在");
         }
 
-        CharacterDetailResponse response = convertToDetailResponse(character);
         return ApiResponse.success(response);
     }
 
+    /**
+     * 读取已发布角色的详情（经缓存），不存在或未发布时返回null
+     */
+    private CharacterDetailResponse getPublishedDetail(Long characterId) {
+        return characterCacheService.getDetail(characterId, new TypeReference<CharacterDetailResponse>() {}, () -> {
+            Character character = characterService.getById(characterId);
+            // 确保角色已发布
+            if (character == null || character.getStatus() != CharacterStatus.PUBLISHED) {
+                return null;
+            }
+            return convertToDetailResponse(character);
+        });
+    }
+
+    /**
+     * 解析标签匹配模式：any（默认）或all
+     */
+    private boolean parseMatchAll(String match) {
+        if ("all".equalsIgnoreCase(match)) {
+            return true;
+        }
+        if (StringUtils.isBlank(match) || "any".equalsIgnoreCase(match)) {
+            return false;
+        }
+        throw new BizException(ApiCode.PARAM_ERROR, "标签匹配模式只支持any或all");
+    }
+
     /**
      * 将Character实体转换为CharacterResponse
      */
@@ -192,6 +326,13 @@ public class CharacterOpenController {
     /**
      * 将Map结果（包含创建者名称）转换为CharacterResponse
      */
+    private CharacterResponse convertSearchMapToResponse(Map<String, Object> characterMap) {
+        CharacterResponse response = convertMapToResponse(characterMap);
+        response.setHighlightedName((String) characterMap.get("highlighted_name"));
+        response.setSearchSnippet((String) characterMap.get("search_snippet"));
+        return response;
+    }
+
     private CharacterResponse convertMapToResponse(Map<String, Object> characterMap) {
         CharacterResponse response = new CharacterResponse();
 
@@ -133,6 +133,16 @@ public class CharacterResponse {
      */
     private String creatorName;
 
+    /**
+     * 搜索结果中高亮关键词后的角色名（HTML转义，关键词以<em>包裹，仅搜索接口返回）
+     */
+    private String highlightedName;
+
+    /**
+     * 搜索结果摘要片段（HTML转义，关键词以<em>包裹，仅搜索接口返回）
+     */
+    private String searchSnippet;
+
     /**
      * 创建时间
      */
@@ -298,6 +308,22 @@ public class CharacterResponse {
         this.creatorName = creatorName;
     }
 
+    public String getHighlightedName() {
+        return highlightedName;
+    }
+
+    public void setHighlightedName(String highlightedName) {
+        this.highlightedName = highlightedName;
+    }
+
+    public String getSearchSnippet() {
+        return searchSnippet;
+    }
+
+    public void setSearchSnippet(String searchSnippet) {
+        this.searchSnippet = searchSnippet;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -116,6 +116,74 @@ public interface CharacterMapper extends BaseMapper<Character> {
                                                                 @Param("orderBy") String orderBy,
                                                                 @Param("orderDirection") String orderDirection);
 
+    /**
+     * 游标分页的排序键表达式，数值列为空时按0处理，必须与复合索引中的表达式一致才能命中索引
+     */
+    String LISTING_SORT_KEY = "<choose>" +
+            "  <when test='orderBy == \"created_at\"'>c.created_at</when>" +
+            "  <when test='orderBy == \"updated_at\"'>c.updated_at</when>" +
+            "  <when test='orderBy == \"trending_score\"'>COALESCE(c.trending_score, 0)</when>" +
+            "  <when test='orderBy == \"sort_weight\"'>COALESCE(c.sort_weight, 0)</when>" +
+            "  <otherwise>COALESCE(c.chat_count, 0)</otherwise>" +
+            "</choose>";
+
+    /**
+     * 按游标获取公开角色列表（包含创建者名称）
+     * 按 (排序键, id) 行比较从上一页最后一条之后继续读取，走 (status, 排序键, id) 复合索引，页深不影响耗时
+     * @param status 角色状态
+     * @param isFeatured 是否精选
+     * @param orderBy 排序字段：chat_count, created_at, updated_at, trending_score, sort_weight
+     * @param ascending 是否升序
+     * @param cursorValue 上一页最后一条的排序键，null表示第一页
+     * @param cursorId 上一页最后一条的角色ID
+     * @param limit 读取条数
+     * @return 角色列表（包含创建者名称）
+     */
+    @Select("<script>" +
+            "SELECT c.*, " +
+            "CASE " +
+            "  WHEN c.is_official = 1 THEN '官方' " +
+            "  WHEN c.create_id IS NULL THEN '官方' " +
+            "  ELSE COALESCE(u.nickname, u.username, '未知用户') " +
+            "END as creator_name " +
+            "FROM vocata_character c " +
+            "LEFT JOIN vocata_user u ON c.create_id = u.id " +
+            "WHERE c.is_private = false " +
+            "AND c.is_delete = 0 " +
+            "<if test='status != null'> AND c.status = #{status} </if>" +
+            "<if test='isFeatured != null'> AND c.is_featured = #{isFeatured} </if>" +
+            "<if test='cursorValue != null'>" +
+            "  AND (" + LISTING_SORT_KEY + ", c.id) " +
+            "  <choose><when test='ascending'>&gt;</when><otherwise>&lt;</otherwise></choose> " +
+            "  (#{cursorValue}, #{cursorId}) " +
+            "</if>" +
+            "ORDER BY " + LISTING_SORT_KEY +
+            "<choose><when test='ascending'> ASC, c.id ASC </when><otherwise> DESC, c.id DESC </otherwise></choose>" +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Map<String, Object>> selectPublicCharactersAfterCursor(@Param("status") Integer status,
+                                                                @Param("isFeatured") Integer isFeatured,
+                                                                @Param("orderBy") String orderBy,
+                                                                @Param("ascending") boolean ascending,
+                                                                @Param("cursorValue") Object cursorValue,
+                                                                @Param("cursorId") Long cursorId,
+                                                                @Param("limit") int limit);
+
+    /**
+     * 统计公开角色数量，只查角色表，不关联用户表
+     * @param status 角色状态
+     * @param isFeatured 是否精选
+     * @return 角色数量
+     */
+    @Select("<script>" +
+            "SELECT COUNT(*) FROM vocata_character c " +
+            "WHERE c.is_private = false " +
+            "AND c.is_delete = 0 " +
+            "<if test='status != null'> AND c.status = #{status} </if>" +
+            "<if test='isFeatured != null'> AND c.is_featured = #{isFeatured} </if>" +
+            "</script>")
+    long countPublicCharacters(@Param("status") Integer status, @Param("isFeatured") Integer isFeatured);
+
     /**
      * 获取精选角色列表（包含创建者名称）
      * @param limit 限制数量
@@ -158,4 +226,96 @@ public interface CharacterMapper extends BaseMapper<Character> {
             "LIMIT #{limit}")
     List<Map<String, Object>> selectTrendingCharactersWithCreator(@Param("limit") int limit);
 
+    /**
+     * 搜索文档表达式：名称、描述、搜索关键词拼接，必须与pg_trgm GIN表达式索引完全一致才能命中索引
+     */
+    String SEARCH_DOCUMENT = "(coalesce(c.name, '') || ' ' || coalesce(c.description, '') || ' ' || coalesce(c.search_keywords, ''))";
+
+    /**
+     * 按相关度搜索公开角色（包含创建者名称）
+     * 子串匹配或词相似度超过阈值（容忍错别字）的角色命中，
+     * 相关度 = 名称命中加权 + 名称词相似度 + 全文词相似度/2，再叠加按对话数对数缩放的热度分。
+     * 关键词不足3个字符时pg_trgm提取不到三元组，索引无法过滤，调用方不应对短关键词使用本查询
+     * @param page 分页参数
+     * @param keyword 搜索关键词
+     * @param pattern 已转义通配符的ILIKE模式（%keyword%）
+     * @param status 角色状态
+     * @param popularityWeight 热度分权重
+     * @return 角色列表（包含创建者名称和search_score）
+     */
+    @Select("<script>" +
+            "SELECT c.*, " +
+            "CASE " +
+            "  WHEN c.is_official = 1 THEN '官方' " +
+            "  WHEN c.create_id IS NULL THEN '官方' " +
+            "  ELSE COALESCE(u.nickname, u.username, '未知用户') " +
+            "END as creator_name, " +
+            "(CASE WHEN c.name ILIKE #{pattern} THEN 1.0 ELSE 0.0 END " +
+            "  + word_similarity(#{keyword}, coalesce(c.name, '')) " +
+            "  + 0.5 * word_similarity(#{keyword}, " + SEARCH_DOCUMENT + ") " +
+            "  + #{popularityWeight} * ln(1 + GREATEST(c.chat_count, 0))) as search_score " +
+            "FROM vocata_character c " +
+            "LEFT JOIN vocata_user u ON c.create_id = u.id " +
+            "WHERE c.is_private = false " +
+            "AND c.is_delete = 0 " +
+            "<if test='status != null'> AND c.status = #{status} </if>" +
+            "AND (" + SEARCH_DOCUMENT + " ILIKE #{pattern} OR #{keyword} &lt;% " + SEARCH_DOCUMENT + ") " +
+            "ORDER BY search_score DESC, c.chat_count DESC, c.id DESC" +
+            "</script>")
+    IPage<Map<String, Object>> searchPublicCharactersByRelevance(Page<?> page,
+                                                                @Param("keyword") String keyword,
+                                                                @Param("pattern") String pattern,
+                                                                @Param("status") Integer status,
+                                                                @Param("popularityWeight") double popularityWeight);
+
+    /**
+     * 按ID批量获取角色（包含创建者名称），用于内存索引搜索结果回表，返回顺序不保证
+     * @param ids 角色ID列表
+     * @return 角色列表（包含创建者名称）
+     */
+    @Select("<script>" +
+            "SELECT c.*, " +
+            "CASE " +
+            "  WHEN c.is_official = 1 THEN '官方' " +
+            "  WHEN c.create_id IS NULL THEN '官方' " +
+            "  ELSE COALESCE(u.nickname, u.username, '未知用户') " +
+            "END as creator_name " +
+            "FROM vocata_character c " +
+            "LEFT JOIN vocata_user u ON c.create_id = u.id " +
+            "WHERE c.is_delete = 0 " +
+            "AND c.id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Map<String, Object>> selectCharactersWithCreatorByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按标签统计公开角色数量（标签分面），可先按已选标签过滤，统计结果中的其他标签即可继续叠加筛选
+     * 基于tag_ids的GIN索引做数组重叠（&&）或包含（@>）过滤，再展开数组分组计数
+     * @param tagIds 已选标签ID数组（PostgreSQL数组字面量格式，如{1,2}），null表示不过滤
+     * @param matchAll true表示需包含全部已选标签，false表示包含任意一个
+     * @param status 角色状态
+     * @param limit 返回的标签数量上限
+     * @return 标签统计列表（tag_id、tag_name、character_count），按角色数量降序
+     */
+    @Select("<script>" +
+            "SELECT t.tag_id, tg.tag_name, COUNT(*) AS character_count " +
+            "FROM vocata_character c " +
+            "CROSS JOIN LATERAL unnest(c.tag_ids) AS t(tag_id) " +
+            "LEFT JOIN vocata_tag tg ON tg.id = t.tag_id " +
+            "WHERE c.is_private = false " +
+            "AND c.is_delete = 0 " +
+            "<if test='status != null'> AND c.status = #{status} </if>" +
+            "<if test='tagIds != null'>" +
+            "  AND c.tag_ids " +
+            "  <choose><when test='matchAll'>@&gt;</when><otherwise>&amp;&amp;</otherwise></choose> " +
+            "  #{tagIds}::bigint[] " +
+            "</if>" +
+            "GROUP BY t.tag_id, tg.tag_name " +
+            "ORDER BY character_count DESC, t.tag_id " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Map<String, Object>> countPublicCharactersByTag(@Param("tagIds") String tagIds,
+                                                         @Param("matchAll") boolean matchAll,
+                                                         @Param("status") Integer status,
+                                                         @Param("limit") int limit);
+
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.vocata.character.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vocata.common.constant.CacheKeys;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 角色详情与列表页两级缓存
+ *
+ * 一级为进程内Caffeine，二级为Redis，读取顺序：本地 -> Redis -> 数据库。
+ * 同一节点上同一个键的并发未命中由Caffeine合并为一次加载，其余请求等待结果。
+ * 角色写入后删除本地与Redis中的条目，并通过Redis发布订阅通知其他节点清理本地缓存。
+ * 失效时递增缓存代数：加载开始前读到的代数与写回时不一致，说明加载期间发生过失效，
+ * 读到的可能是旧数据，不再写入Redis与本地缓存，避免旧值在失效之后被写回并存活一个TTL。
+ * 缓存的是已转换的响应对象（JSON），对话计数等展示字段最多滞后一个缓存周期
+ */
+@Service
+public class CharacterCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CharacterCacheService.class);
+
+    // 列表页写入Redis时登记到该集合，失效时按集合批量删除，避免KEYS扫描
+    private static final String LIST_KEY_SET = CacheKeys.CHARACTER_LIST + "keys";
+
+    // 只失效列表页、不针对具体角色时的广播内容
+    private static final String ALL_LISTS = "*";
+
+    // 缓存代数，每次失效递增
+    private static final String GENERATION_KEY = CacheKeys.CHARACTER_INFO + "generation";
+
+    // 代数未变时才写入缓存值，列表页同时登记到列表键集合
+    private static final DefaultRedisScript<Long> WRITE_IF_CURRENT_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[1]) or '0') ~= ARGV[1] then return 0 end " +
+            "redis.call('set', KEYS[2], ARGV[2], 'EX', ARGV[3]) " +
+            "if KEYS[3] then " +
+            "  redis.call('sadd', KEYS[3], ARGV[4]) " +
+            "  redis.call('expire', KEYS[3], ARGV[3]) " +
+            "end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${character.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${character.cache.local-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    @Value("${character.cache.local-max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${character.cache.redis-ttl-seconds:300}")
+    private long redisTtlSeconds;
+
+    // 本节点标识，收到自己发出的失效广播时跳过
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<String, Object> localCache;
+
+    // 本地缓存代数，本节点每次清理本地缓存时递增
+    private final AtomicLong localGeneration = new AtomicLong();
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+
+        try {
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(redisConnectionFactory);
+            listenerContainer.addMessageListener(
+                    (message, pattern) -> onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(CacheKeys.CHARACTER_CACHE_INVALIDATE_CHANNEL));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        } catch (Exception e) {
+            // 订阅失败时其他节点的本地缓存只能依靠过期，缩短local-ttl-seconds可降低不一致窗口
+            logger.warn("订阅角色缓存失效频道失败，本地缓存仅按过期时间刷新: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /**
+     * 读取角色详情，未命中时调用loader加载，loader返回null时不缓存
+     */
+    public <T> T getDetail(Long characterId, TypeReference<T> type, Supplier<T> loader) {
+        return get(CacheKeys.getCharacterInfoKey(characterId), type, loader, false);
+    }
+
+    /**
+     * 按角色编码解析角色ID，编码创建后不变，失效时无需清理
+     */
+    public Long resolveCode(String characterCode, Supplier<Long> loader) {
+        return get(CacheKeys.CHARACTER_INFO + "code:" + characterCode, new TypeReference<Long>() {}, loader, false);
+    }
+
+    /**
+     * 读取列表页，任一角色写入后全部失效
+     *
+     * @param name 列表名与查询参数组成的唯一名称
+     */
+    public <T> T getList(String name, TypeReference<T> type, Supplier<T> loader) {
+        return get(CacheKeys.CHARACTER_LIST + name, type, loader, true);
+    }
+
+    /**
+     * 角色新增、修改、删除或状态变化后调用，清理该角色详情与全部列表页并通知其他节点
+     */
+    public void evict(Long characterId) {
+        if (!enabled) {
+            return;
+        }
+        evictLocal(characterId != null ? characterId.toString() : ALL_LISTS);
+        try {
+            // 先递增代数再删除，删除之后才完成的旧加载不会再写回
+            redisTemplate.opsForValue().increment(GENERATION_KEY);
+            List<String> keys = new ArrayList<>();
+            if (characterId != null) {
+                keys.add(CacheKeys.getCharacterInfoKey(characterId));
+            }
+            Set<Object> listKeys = redisTemplate.opsForSet().members(LIST_KEY_SET);
+            if (listKeys != null) {
+                listKeys.forEach(key -> keys.add(key.toString()));
+            }
+            keys.add(LIST_KEY_SET);
+            redisTemplate.delete(keys);
+            byte[] channel = CacheKeys.CHARACTER_CACHE_INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            byte[] body = (nodeId + ":" + (characterId != null ? characterId : ALL_LISTS))
+                    .getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+        } catch (Exception e) {
+            logger.warn("清理角色缓存失败，角色ID: {}，等待缓存过期 - {}", characterId, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, TypeReference<T> type, Supplier<T> loader, boolean list) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long generation = localGeneration.get();
+        T value = (T) localCache.get(key, k -> loadThroughRedis(k, type, loader, list));
+        if (value != null && localGeneration.get() != generation) {
+            // 加载期间本地缓存被清理过，本次结果只返回给调用方，不留在本地缓存
+            localCache.asMap().remove(key, value);
+        }
+        return value;
+    }
+
+    private <T> T loadThroughRedis(String key, TypeReference<T> type, Supplier<T> loader, boolean list) {
+        Long generation = null;
+        try {
+            Object cached = redisTemplate.opsForValue().get(key);
+            if (cached instanceof String) {
+                return objectMapper.readValue((String) cached, type);
+            }
+            Object current = redisTemplate.opsForValue().get(GENERATION_KEY);
+            generation = current instanceof Number ? ((Number) current).longValue() : 0L;
+        } catch (Exception e) {
+            logger.warn("读取Redis角色缓存失败，键: {} - {}", key, e.getMessage());
+        }
+
+        T value = loader.get();
+        if (value == null || generation == null) {
+            // 读不到代数时无法判断加载期间是否失效过，不写入Redis
+            return value;
+        }
+        try {
+            List<String> keys = list ? List.of(GENERATION_KEY, key, LIST_KEY_SET) : List.of(GENERATION_KEY, key);
+            Long written = redisTemplate.execute(WRITE_IF_CURRENT_SCRIPT, keys,
+                    generation, objectMapper.writeValueAsString(value), redisTtlSeconds, key);
+            if (written == null || written == 0) {
+                logger.debug("加载期间角色缓存已失效，不写回Redis，键: {}", key);
+            }
+        } catch (Exception e) {
+            logger.warn("写入Redis角色缓存失败，键: {} - {}", key, e.getMessage());
+        }
+        return value;
+    }
+
+    private void onInvalidation(String body) {
+        int separator = body.indexOf(':');
+        if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        evictLocal(body.substring(separator + 1));
+    }
+
+    private void evictLocal(String target) {
+        localGeneration.incrementAndGet();
+        if (!ALL_LISTS.equals(target)) {
+            localCache.invalidate(CacheKeys.CHARACTER_INFO + target);
+        }
+        localCache.asMap().keySet().removeIf(key -> key.startsWith(CacheKeys.CHARACTER_LIST));
+    }
+}
@@ -0,0 +1,152 @@
+package com.vocata.character.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.vocata.character.entity.Character;
+import com.vocata.character.mapper.CharacterMapper;
+import com.vocata.common.constant.CharacterStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 角色内存搜索索引服务
+ *
+ * 启动时从数据库加载全部已发布的公开角色建立倒排索引，角色增删改后增量更新，
+ * 并定期全量重建以吸收其他节点上的修改。搜索不再访问数据库，只有结果页按主键回表
+ */
+@Service
+public class CharacterIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CharacterIndexService.class);
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private CharacterMapper characterMapper;
+
+    @Value("${character.search.memory-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${character.search.fulltext.popularity-weight:0.05}")
+    private double popularityWeight;
+
+    private volatile CharacterInvertedIndex index;
+
+    // 全量重建期间发生变更的角色，重建完成后在新索引上补做
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean rebuilding;
+
+    /**
+     * 索引是否已加载完成
+     */
+    public boolean isReady() {
+        return enabled && index != null;
+    }
+
+    /**
+     * 查询角色ID
+     *
+     * @return 当前页的角色ID与命中总数，索引未就绪时返回null
+     */
+    public CharacterInvertedIndex.Result search(String keyword, int offset, int limit) {
+        CharacterInvertedIndex current = index;
+        return enabled && current != null ? current.search(keyword, offset, limit) : null;
+    }
+
+    /**
+     * 角色新增、修改、删除或状态变化后调用，按数据库中的最新状态更新索引
+     */
+    public void refresh(Long characterId) {
+        if (!enabled || characterId == null) {
+            return;
+        }
+        if (rebuilding) {
+            changedDuringRebuild.add(characterId);
+        }
+        CharacterInvertedIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            apply(current, characterId);
+        } catch (Exception e) {
+            // 索引更新失败不影响业务写入，等待下一次全量重建
+            logger.warn("更新角色搜索索引失败，角色ID: {}", characterId, e);
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * 定期全量重建
+     */
+    @Scheduled(fixedDelayString = "${character.search.memory-index.rebuild-interval-ms:600000}",
+               initialDelayString = "${character.search.memory-index.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            CharacterInvertedIndex rebuilt = new CharacterInvertedIndex(popularityWeight);
+            Long lastId = null;
+            while (true) {
+                List<Character> batch = characterMapper.selectList(new LambdaQueryWrapper<Character>()
+                        .select(Character::getId, Character::getName, Character::getDescription,
+                                Character::getSearchKeywords, Character::getTagNames, Character::getChatCount)
+                        .eq(Character::getIsPrivate, false)
+                        .eq(Character::getStatus, CharacterStatus.PUBLISHED)
+                        .gt(lastId != null, Character::getId, lastId)
+                        .orderByAsc(Character::getId)
+                        .last("LIMIT " + LOAD_BATCH_SIZE));
+                for (Character character : batch) {
+                    rebuilt.upsert(character);
+                }
+                if (batch.size() < LOAD_BATCH_SIZE) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            index = rebuilt;
+
+            List<Long> changed = new ArrayList<>(changedDuringRebuild);
+            changedDuringRebuild.removeAll(changed);
+            for (Long characterId : changed) {
+                apply(rebuilt, characterId);
+            }
+            logger.info("角色搜索索引重建完成，角色数: {}，耗时: {}ms", rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("角色搜索索引重建失败，继续使用旧索引", e);
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    private void apply(CharacterInvertedIndex target, Long characterId) {
+        Character character = characterMapper.selectById(characterId);
+        if (character == null
+                || !Boolean.FALSE.equals(character.getIsPrivate())
+                || !Integer.valueOf(CharacterStatus.PUBLISHED).equals(character.getStatus())) {
+            target.remove(characterId);
+        } else {
+            target.upsert(character);
+        }
+    }
+}
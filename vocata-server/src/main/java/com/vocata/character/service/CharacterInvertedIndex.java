@@ -0,0 +1,282 @@
+package com.vocata.character.service;
+
+import com.vocata.character.entity.Character;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 角色倒排索引
+ *
+ * 词项来自名称、描述、搜索关键词与标签名（CJK二元分词）。每个角色分配一个内部文档号，
+ * 倒排表为按文档号有序的int数组，查询时从最短的倒排表开始求交集。
+ * 排序：名称包含完整查询词加分，再叠加按对话数对数缩放的热度分。
+ * 读多写少，用读写锁保护；删除的文档号不复用，重建时压缩
+ */
+final class CharacterInvertedIndex {
+
+    private static final double NAME_HIT_SCORE = 2.0;
+
+    private final double popularityWeight;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Integer> docByCharacter = new HashMap<>();
+
+    private long[] characterIds = new long[256];
+    private long[] chatCounts = new long[256];
+    private String[] names = new String[256];
+    private String[][] docTerms = new String[256][];
+    private int nextDoc;
+
+    /**
+     * 查询结果
+     *
+     * @param characterIds 当前页的角色ID，按排序先后
+     * @param total 命中总数
+     */
+    record Result(long[] characterIds, int total) {
+    }
+
+    CharacterInvertedIndex(double popularityWeight) {
+        this.popularityWeight = popularityWeight;
+    }
+
+    /**
+     * 新增或更新角色
+     */
+    void upsert(Character character) {
+        if (character == null || character.getId() == null) {
+            return;
+        }
+        String[] terms = terms(character);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docByCharacter.get(character.getId());
+            int doc;
+            if (existing != null) {
+                doc = existing;
+                removePostings(doc);
+            } else {
+                doc = nextDoc++;
+                ensureCapacity(doc + 1);
+                docByCharacter.put(character.getId(), doc);
+            }
+            characterIds[doc] = character.getId();
+            chatCounts[doc] = character.getChatCount() != null ? character.getChatCount() : 0L;
+            names[doc] = character.getName() != null ? character.getName().toLowerCase() : "";
+            docTerms[doc] = terms;
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new Postings()).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除角色，不存在时忽略
+     */
+    void remove(Long characterId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByCharacter.remove(characterId);
+            if (doc != null) {
+                removePostings(doc);
+                docTerms[doc] = null;
+                names[doc] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docByCharacter.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询
+     *
+     * @param offset 跳过的条数
+     * @param limit 返回的最大条数
+     */
+    Result search(String query, int offset, int limit) {
+        Set<String> tokens = CjkBigramTokenizer.queryTokens(query);
+        if (tokens.isEmpty()) {
+            return new Result(new long[0], 0);
+        }
+        String lowerQuery = query.trim().toLowerCase();
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[tokens.size()];
+            int n = 0;
+            for (String token : tokens) {
+                Postings list = postings.get(token);
+                if (list == null) {
+                    return new Result(new long[0], 0);
+                }
+                lists[n++] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            int[] candidates = Arrays.copyOf(lists[0].docs, lists[0].size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.length && count > 0; i++) {
+                count = intersect(candidates, count, lists[i]);
+            }
+
+            // 排序键：分数降序，分数相同按对话数、角色ID降序
+            double[] scores = new double[count];
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                int doc = candidates[i];
+                double score = popularityWeight * Math.log1p(Math.max(0L, chatCounts[doc]));
+                if (names[doc].contains(lowerQuery)) {
+                    score += NAME_HIT_SCORE;
+                }
+                scores[i] = score;
+                order[i] = i;
+            }
+            int[] docs = candidates;
+            Arrays.sort(order, (a, b) -> {
+                int byScore = Double.compare(scores[b], scores[a]);
+                if (byScore != 0) {
+                    return byScore;
+                }
+                int byChat = Long.compare(chatCounts[docs[b]], chatCounts[docs[a]]);
+                return byChat != 0 ? byChat : Long.compare(characterIds[docs[b]], characterIds[docs[a]]);
+            });
+
+            int from = Math.min(Math.max(0, offset), count);
+            int to = Math.min(count, from + Math.max(0, limit));
+            long[] page = new long[to - from];
+            for (int i = from; i < to; i++) {
+                page[i - from] = characterIds[docs[order[i]]];
+            }
+            return new Result(page, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 原地求交集，结果写回candidates前部
+     *
+     * @return 交集大小
+     */
+    private static int intersect(int[] candidates, int count, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            int doc = candidates[i];
+            // 长倒排表用二分跳过
+            j = list.seek(doc, j);
+            if (j < list.size && list.docs[j] == doc) {
+                candidates[kept++] = doc;
+            }
+        }
+        return kept;
+    }
+
+    private void removePostings(int doc) {
+        String[] terms = docTerms[doc];
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list != null && list.remove(doc) && list.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= characterIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, characterIds.length * 2);
+        characterIds = Arrays.copyOf(characterIds, newCapacity);
+        chatCounts = Arrays.copyOf(chatCounts, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        docTerms = Arrays.copyOf(docTerms, newCapacity);
+    }
+
+    private static String[] terms(Character character) {
+        Set<String> terms = CjkBigramTokenizer.indexTokens(character.getName());
+        terms.addAll(CjkBigramTokenizer.indexTokens(character.getDescription()));
+        terms.addAll(CjkBigramTokenizer.indexTokens(character.getSearchKeywords()));
+        if (character.getTagNames() != null) {
+            for (String tagName : character.getTagNames()) {
+                terms.addAll(CjkBigramTokenizer.indexTokens(tagName));
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    /**
+     * 有序的文档号数组
+     */
+    private static final class Postings {
+
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            // 新文档号单调递增，绝大多数情况直接追加
+            if (size == 0 || docs[size - 1] < doc) {
+                grow();
+                docs[size++] = doc;
+                return;
+            }
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            grow();
+            System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+            docs[insertAt] = doc;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * 从from开始找到第一个不小于doc的位置
+         */
+        int seek(int doc, int from) {
+            if (from >= size || docs[from] >= doc) {
+                return from;
+            }
+            int index = Arrays.binarySearch(docs, from, size, doc);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private void grow() {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, docs.length * 2);
+            }
+        }
+    }
+}
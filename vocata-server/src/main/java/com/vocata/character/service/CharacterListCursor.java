@@ -0,0 +1,133 @@
+package com.vocata.character.service;
+
+import com.vocata.common.exception.BizException;
+import com.vocata.common.result.ApiCode;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * 公开角色列表的游标
+ *
+ * 记录上一页最后一条的排序键与角色ID，下一页按 (排序键, id) 行比较继续读取，不再需要OFFSET。
+ * 对客户端不透明：内容为 排序字段:方向:排序键:角色ID 的Base64URL编码，排序字段或方向变化后游标失效
+ */
+public final class CharacterListCursor {
+
+    /**
+     * 支持的排序字段，数值列为空时按0参与排序，与列表SQL及复合索引中的表达式一致
+     */
+    public enum SortField {
+        CHAT_COUNT("chat_count", false),
+        CREATED_AT("created_at", true),
+        UPDATED_AT("updated_at", true),
+        TRENDING_SCORE("trending_score", false),
+        SORT_WEIGHT("sort_weight", false);
+
+        private final String column;
+        private final boolean temporal;
+
+        SortField(String column, boolean temporal) {
+            this.column = column;
+            this.temporal = temporal;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * 按列名解析，未知或为空时与原列表接口一致按对话数排序
+         */
+        public static SortField of(String orderBy) {
+            if (orderBy != null) {
+                for (SortField field : values()) {
+                    if (field.column.equalsIgnoreCase(orderBy)) {
+                        return field;
+                    }
+                }
+            }
+            return CHAT_COUNT;
+        }
+    }
+
+    private static final String SEPARATOR = ":";
+
+    private final SortField field;
+    private final boolean ascending;
+    private final Object value;
+    private final long id;
+
+    private CharacterListCursor(SortField field, boolean ascending, Object value, long id) {
+        this.field = field;
+        this.ascending = ascending;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * 由当前页最后一行生成下一页游标
+     */
+    public static CharacterListCursor fromRow(SortField field, boolean ascending, Map<String, Object> row) {
+        Object raw = row.get(field.column);
+        Object value;
+        if (field.temporal) {
+            value = raw instanceof Timestamp ? ((Timestamp) raw).toLocalDateTime() : (LocalDateTime) raw;
+        } else {
+            value = raw != null ? ((Number) raw).longValue() : 0L;
+        }
+        return new CharacterListCursor(field, ascending, value, Long.parseLong(row.get("id").toString()));
+    }
+
+    /**
+     * 解析客户端传回的游标，并校验与本次请求的排序一致
+     */
+    public static CharacterListCursor decode(String token, SortField field, boolean ascending) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 3);
+            if (parts.length != 3
+                    || SortField.valueOf(parts[0]) != field
+                    || "asc".equals(parts[1]) != ascending) {
+                throw new BizException(ApiCode.PARAM_ERROR, "分页游标与排序条件不匹配");
+            }
+            // 时间值的ISO格式中含冒号，角色ID取最后一个分隔符之后
+            int lastSeparator = parts[2].lastIndexOf(SEPARATOR);
+            String rawValue = parts[2].substring(0, lastSeparator);
+            long id = Long.parseLong(parts[2].substring(lastSeparator + 1));
+            Object value = field.temporal ? LocalDateTime.parse(rawValue) : Long.valueOf(rawValue);
+            return new CharacterListCursor(field, ascending, value, id);
+        } catch (BizException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BizException(ApiCode.PARAM_ERROR, "无效的分页游标");
+        }
+    }
+
+    public String encode() {
+        String raw = field.name() + SEPARATOR + (ascending ? "asc" : "desc") + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public SortField getField() {
+        return field;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * 排序键：数值列为Long，时间列为LocalDateTime
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,280 @@
+package com.vocata.character.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.vocata.character.mapper.CharacterMapper;
+import com.vocata.common.constant.CharacterStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 角色全文搜索服务
+ *
+ * 基于pg_trgm的GIN表达式索引做子串与模糊匹配，按相关度叠加热度排序，并生成高亮片段。
+ * 中文没有可靠的分词器可用（zhparser等扩展需要自行编译），三元组索引对中日韩文本同样有效，
+ * 因此不使用tsvector。关闭开关或查询失败（如数据库缺少pg_trgm扩展）时由调用方回退到LIKE查询。
+ * 开启内存索引（character.search.memory-index.enabled）且已加载完成时，优先使用内存倒排索引。
+ *
+ * 限制：pg_trgm从不足3个字符的关键词（如“张三”）中提取不到三元组，GIN索引无法缩小候选集，
+ * 只能全索引扫描并逐行计算相似度。这类短关键词在内存索引可用时由其二元分词处理，
+ * 否则直接回退LIKE查询，不走相关度排序
+ */
+@Service
+public class CharacterSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CharacterSearchService.class);
+
+    // 查询失败后暂停使用的时长，期间直接回退
+    private static final long FAILURE_BACKOFF_MILLIS = 5 * 60 * 1000L;
+
+    private static final int SNIPPET_MAX_CHARS = 80;
+
+    // pg_trgm能从关键词中提取三元组的最小字符数
+    private static final int TRIGRAM_MIN_CHARS = 3;
+
+    // 部分索引条件，与公开角色查询的过滤条件一致
+    private static final String PUBLIC_CHARACTER_PREDICATE = "WHERE is_private = false AND is_delete = 0";
+
+    // 列表游标分页的排序键表达式，键为索引名后缀
+    private static final Map<String, String> LISTING_SORT_KEYS = Map.of(
+            "chat_count", "(coalesce(chat_count, 0))",
+            "created_at", "created_at",
+            "updated_at", "updated_at",
+            "trending_score", "(coalesce(trending_score, 0))",
+            "sort_weight", "(coalesce(sort_weight, 0))");
+
+    // 多副本同时启动时只有一个节点建索引，其余节点跳过
+    private static final String INDEX_BUILD_LOCK = "hashtext('vocata_character_indexes')";
+
+    @Autowired
+    private CharacterMapper characterMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CharacterIndexService characterIndexService;
+
+    @Value("${character.search.fulltext.enabled:true}")
+    private boolean enabled;
+
+    @Value("${character.search.fulltext.auto-create-index:false}")
+    private boolean autoCreateIndex;
+
+    @Value("${character.search.fulltext.popularity-weight:0.05}")
+    private double popularityWeight;
+
+    @Value("${character.search.tag-filter.auto-create-index:false}")
+    private boolean autoCreateTagIndex;
+
+    @Value("${character.listing.auto-create-index:false}")
+    private boolean autoCreateListingIndex;
+
+    private volatile long disabledUntil;
+
+    /**
+     * 全文搜索是否可用
+     */
+    public boolean isEnabled() {
+        return characterIndexService.isReady() || (enabled && System.currentTimeMillis() >= disabledUntil);
+    }
+
+    /**
+     * 按相关度搜索公开角色
+     *
+     * @return 角色列表（包含creator_name、search_score、highlighted_name、search_snippet），查询失败时返回null
+     */
+    public IPage<Map<String, Object>> search(Page<?> page, String keyword, Integer status) {
+        String trimmed = keyword.trim();
+        try {
+            // 内存索引只收录已发布的公开角色
+            IPage<Map<String, Object>> result = null;
+            if (characterIndexService.isReady() && Integer.valueOf(CharacterStatus.PUBLISHED).equals(status)) {
+                result = searchInMemory(page, trimmed);
+            }
+            if (result == null) {
+                if (!enabled || System.currentTimeMillis() < disabledUntil
+                        || trimmed.codePointCount(0, trimmed.length()) < TRIGRAM_MIN_CHARS) {
+                    return null;
+                }
+                result = characterMapper.searchPublicCharactersByRelevance(
+                        page, trimmed, "%" + escapeLike(trimmed) + "%", status, popularityWeight);
+            }
+            for (Map<String, Object> record : result.getRecords()) {
+                record.put("highlighted_name", SearchHighlighter.highlight((String) record.get("name"), trimmed));
+                record.put("search_snippet", SearchHighlighter.snippet(snippetSource(record, trimmed), trimmed,
+                        SNIPPET_MAX_CHARS));
+            }
+            return result;
+        } catch (DataAccessException e) {
+            disabledUntil = System.currentTimeMillis() + FAILURE_BACKOFF_MILLIS;
+            logger.error("角色全文搜索失败，{}秒内回退LIKE查询，关键词: {}", FAILURE_BACKOFF_MILLIS / 1000, trimmed, e);
+            return null;
+        }
+    }
+
+    /**
+     * 内存索引查询，当前页按主键回表并保持索引给出的顺序
+     */
+    private IPage<Map<String, Object>> searchInMemory(Page<?> page, String keyword) {
+        int offset = (int) ((Math.max(1, page.getCurrent()) - 1) * page.getSize());
+        CharacterInvertedIndex.Result hits = characterIndexService.search(keyword, offset, (int) page.getSize());
+        if (hits == null) {
+            return null;
+        }
+
+        Page<Map<String, Object>> result = new Page<>(page.getCurrent(), page.getSize(), hits.total());
+        if (hits.characterIds().length == 0) {
+            result.setRecords(Collections.emptyList());
+            return result;
+        }
+        List<Long> ids = Arrays.stream(hits.characterIds()).boxed().toList();
+        Map<Long, Map<String, Object>> rows = new HashMap<>();
+        for (Map<String, Object> row : characterMapper.selectCharactersWithCreatorByIds(ids)) {
+            rows.put(Long.valueOf(row.get("id").toString()), row);
+        }
+        List<Map<String, Object>> records = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Map<String, Object> row = rows.get(id);
+            if (row != null) {
+                records.add(row);
+            }
+        }
+        result.setRecords(records);
+        return result;
+    }
+
+    /**
+     * 启动后确保表达式索引、标签数组GIN索引、列表游标分页复合索引存在。
+     * 索引正常由 db/migration/20261017_02_character_search_indexes.sql 创建，开关默认关闭，只用于没有迁移流程的环境。
+     * 不创建pg_trgm扩展（需要超出应用账号的权限），扩展不存在时跳过全文搜索索引。
+     * 整个过程持有PostgreSQL会话级咨询锁，多副本同时启动时只有拿到锁的节点建索引
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSearchIndex() {
+        boolean fulltext = enabled && autoCreateIndex;
+        if (!autoCreateTagIndex && !autoCreateListingIndex && !fulltext) {
+            return;
+        }
+        try {
+            // 咨询锁属于会话，加锁、建索引与解锁必须在同一连接上执行
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                buildIndexesLocked(new JdbcTemplate(new SingleConnectionDataSource(connection, true)), fulltext);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("检查角色索引失败: {}", e.getMessage());
+        }
+    }
+
+    private void buildIndexesLocked(JdbcTemplate connection, boolean fulltext) {
+        if (!Boolean.TRUE.equals(connection.queryForObject(
+                "SELECT pg_try_advisory_lock(" + INDEX_BUILD_LOCK + ")", Boolean.class))) {
+            logger.info("其他节点正在检查或创建角色索引，本节点跳过");
+            return;
+        }
+        try {
+            if (autoCreateTagIndex) {
+                createIndex(connection, "角色标签数组索引", "idx_vocata_character_tag_ids",
+                        "ON vocata_character USING gin (tag_ids) " + PUBLIC_CHARACTER_PREDICATE);
+            }
+            if (autoCreateListingIndex) {
+                // 与CharacterMapper.LISTING_SORT_KEY中的排序键表达式一一对应，btree可双向扫描，升降序共用
+                LISTING_SORT_KEYS.forEach((name, sortKey) -> createIndex(connection,
+                        "角色列表游标分页索引(" + name + ")", "idx_vocata_character_list_" + name,
+                        "ON vocata_character (status, " + sortKey + ", id) " + PUBLIC_CHARACTER_PREDICATE));
+            }
+            if (fulltext) {
+                if (connection.queryForList("SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm'").isEmpty()) {
+                    logger.warn("数据库未安装pg_trgm扩展，跳过角色全文搜索索引，请由DBA执行迁移脚本");
+                } else {
+                    createIndex(connection, "角色全文搜索索引", "idx_vocata_character_search_trgm",
+                            "ON vocata_character USING gin (" +
+                            CharacterMapper.SEARCH_DOCUMENT.replace("c.", "") + " gin_trgm_ops) " +
+                            PUBLIC_CHARACTER_PREDICATE);
+                }
+            }
+        } finally {
+            connection.queryForObject("SELECT pg_advisory_unlock(" + INDEX_BUILD_LOCK + ")", Boolean.class);
+        }
+    }
+
+    /**
+     * 以CONCURRENTLY方式建索引，不阻塞角色表写入（不能在事务中执行，这里不加事务注解）。
+     * 上次创建中断会留下无效索引，IF NOT EXISTS会跳过它，因此先删除无效索引再重建；
+     * 正在创建中的索引同样显示为无效，仍有创建进度（如DBA手动执行迁移）时不删除
+     */
+    private void createIndex(JdbcTemplate connection, String description, String indexName, String definition) {
+        try {
+            Boolean valid = connection.query(
+                    "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                    "WHERE c.relname = ? AND pg_table_is_visible(c.oid)",
+                    rs -> rs.next() ? rs.getBoolean(1) : null, indexName);
+            if (Boolean.TRUE.equals(valid)) {
+                return;
+            }
+            if (valid != null) {
+                if (!connection.queryForList("SELECT 1 FROM pg_stat_progress_create_index " +
+                        "WHERE index_relid = to_regclass(?)", indexName).isEmpty()) {
+                    logger.info("{}正在由其他会话创建，跳过", description);
+                    return;
+                }
+                logger.warn("{}无效（上次创建中断），删除后重建", description);
+                connection.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            }
+            connection.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + indexName + " " + definition);
+            logger.info("{}已就绪", description);
+        } catch (DataAccessException e) {
+            logger.warn("创建{}失败，相关查询将退化为顺序扫描: {}", description, e.getMessage());
+        }
+    }
+
+    /**
+     * 描述命中时截取描述，否则截取搜索关键词字段，都没有命中时取描述开头
+     */
+    private String snippetSource(Map<String, Object> record, String keyword) {
+        String description = (String) record.get("description");
+        String searchKeywords = (String) record.get("search_keywords");
+        if (containsIgnoreCase(description, keyword) || !containsIgnoreCase(searchKeywords, keyword)) {
+            return description;
+        }
+        return searchKeywords;
+    }
+
+    private static boolean containsIgnoreCase(String text, String keyword) {
+        return text != null && text.toLowerCase().contains(keyword.toLowerCase());
+    }
+
+    /**
+     * 转义LIKE通配符，PostgreSQL默认转义字符为反斜杠
+     */
+    static String escapeLike(String keyword) {
+        StringBuilder escaped = new StringBuilder(keyword.length() + 4);
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
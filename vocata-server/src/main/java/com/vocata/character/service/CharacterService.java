@@ -123,6 +123,21 @@ public interface CharacterService {
             Integer status, Integer isFeatured,
             List<String> tags, String orderBy, String orderDirection);
 
+    /**
+     * 按游标查询公开角色列表（包含创建者名称）
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param pageSize 每页数量
+     * @param status 角色状态，null表示不过滤
+     * @param isFeatured 是否精选，null表示不过滤
+     * @param orderBy 排序字段
+     * @param orderDirection 排序方向
+     * @param withTotal 是否统计总数，无限滚动场景可关闭以省去COUNT查询
+     * @return 角色列表与下一页游标
+     */
+    com.vocata.common.result.CursorPageResult<java.util.Map<String, Object>> getPublicCharactersByCursor(
+            String cursor, int pageSize, Integer status, Integer isFeatured,
+            String orderBy, String orderDirection, boolean withTotal);
+
     /**
      * 更新角色状态
      * @param id 角色ID
@@ -166,6 +181,26 @@ public interface CharacterService {
      */
     IPage<Character> getCharactersByTagIds(Page<Character> page, Long[] tagIds, Integer status);
 
+    /**
+     * 根据标签ID查询角色列表
+     * @param page 分页参数
+     * @param tagIds 标签ID数组
+     * @param matchAll true表示需包含全部标签，false表示包含任意一个
+     * @param status 角色状态，null表示不过滤
+     * @return 角色分页列表，按对话数降序
+     */
+    IPage<Character> getCharactersByTagIds(Page<Character> page, Long[] tagIds, boolean matchAll, Integer status);
+
+    /**
+     * 按标签统计公开角色数量（标签分面）
+     * @param tagIds 已选标签ID数组，为空表示统计全部公开角色
+     * @param matchAll true表示已选标签需全部包含，false表示包含任意一个
+     * @param status 角色状态，null表示不过滤
+     * @param limit 返回的标签数量上限
+     * @return 标签统计列表（tag_id、tag_name、character_count）
+     */
+    List<java.util.Map<String, Object>> countCharactersByTag(Long[] tagIds, boolean matchAll, Integer status, int limit);
+
     /**
      * 根据主要标签查询推荐角色
      * @param primaryTagIds 主要标签ID数组
@@ -0,0 +1,99 @@
+package com.vocata.character.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 中日韩二元分词
+ *
+ * 连续的中日韩字符输出每个单字与相邻二字组合，字母数字按单词输出（小写），其余字符作为分隔符。
+ * 建索引与查询使用同一分词：查询词的所有二字组合都命中时，文档中大概率包含该子串，
+ * 单字查询依靠单字词项匹配；索引时单词额外输出前缀，使输入到一半的单词也能命中
+ */
+final class CjkBigramTokenizer {
+
+    // 单词前缀的长度范围，超过上限的单词只能整词命中
+    private static final int MIN_PREFIX = 2;
+    private static final int MAX_PREFIX = 12;
+
+    private CjkBigramTokenizer() {
+    }
+
+    /**
+     * 索引分词：单字与二字组合、单词及其前缀都输出
+     */
+    static Set<String> indexTokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(text, true, tokens);
+        return tokens;
+    }
+
+    /**
+     * 查询分词：中日韩片段长度大于1时只输出二字组合，避免单字词项的长倒排表参与求交
+     */
+    static Set<String> queryTokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(text, false, tokens);
+        return tokens;
+    }
+
+    private static void tokenize(String text, boolean forIndex, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                while (i < length && isCjk(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                cjkRun(text.substring(start, i), forIndex, tokens);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int c = text.codePointAt(i);
+                    if (!Character.isLetterOrDigit(c) || isCjk(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                String word = text.substring(start, i).toLowerCase();
+                if (forIndex) {
+                    for (int end = MIN_PREFIX; end < Math.min(word.length(), MAX_PREFIX + 1); end++) {
+                        tokens.add(word.substring(0, end));
+                    }
+                }
+                tokens.add(word);
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private static void cjkRun(String run, boolean forIndex, Set<String> tokens) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int i = 0; i < codePoints.length; i++) {
+            if (forIndex) {
+                tokens.add(new String(codePoints, i, 1));
+            }
+            if (i + 1 < codePoints.length) {
+                tokens.add(new String(codePoints, i, 2));
+            }
+        }
+    }
+
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
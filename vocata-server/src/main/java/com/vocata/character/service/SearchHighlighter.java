@@ -0,0 +1,95 @@
+package com.vocata.character.service;
+
+/**
+ * 搜索结果高亮
+ *
+ * 输出为HTML片段：原文全部转义，只有命中的关键词以<em>包裹，前端可直接渲染
+ */
+final class SearchHighlighter {
+
+    private static final String OPEN = "<em>";
+    private static final String CLOSE = "</em>";
+    private static final String ELLIPSIS = "…";
+
+    private SearchHighlighter() {
+    }
+
+    /**
+     * 高亮文本中所有关键词出现的位置（忽略大小写）
+     */
+    static String highlight(String text, String keyword) {
+        if (text == null) {
+            return null;
+        }
+        return appendHighlighted(new StringBuilder(text.length() + 16), text, 0, text.length(), keyword).toString();
+    }
+
+    /**
+     * 截取以第一次命中为中心的片段并高亮，没有命中时返回开头的片段
+     *
+     * @param maxChars 片段最大字符数（不含省略号与标签）
+     */
+    static String snippet(String text, String keyword, int maxChars) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        int hit = indexOfIgnoreCase(text, keyword, 0);
+        int start = 0;
+        if (hit >= 0 && text.length() > maxChars) {
+            // 命中位置前保留约三分之一的上下文
+            start = Math.max(0, Math.min(hit - maxChars / 3, text.length() - maxChars));
+        }
+        int end = Math.min(text.length(), start + maxChars);
+
+        StringBuilder snippet = new StringBuilder(end - start + 16);
+        if (start > 0) {
+            snippet.append(ELLIPSIS);
+        }
+        appendHighlighted(snippet, text, start, end, keyword);
+        if (end < text.length()) {
+            snippet.append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    private static StringBuilder appendHighlighted(StringBuilder out, String text, int start, int end, String keyword) {
+        int from = start;
+        int hit = indexOfIgnoreCase(text, keyword, from);
+        while (hit >= 0 && hit + keyword.length() <= end) {
+            escape(out, text, from, hit);
+            out.append(OPEN);
+            escape(out, text, hit, hit + keyword.length());
+            out.append(CLOSE);
+            from = hit + keyword.length();
+            hit = indexOfIgnoreCase(text, keyword, from);
+        }
+        escape(out, text, from, end);
+        return out;
+    }
+
+    private static int indexOfIgnoreCase(String text, String keyword, int from) {
+        if (keyword == null || keyword.isEmpty()) {
+            return -1;
+        }
+        for (int i = from; i + keyword.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, keyword, 0, keyword.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void escape(StringBuilder out, String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vocata.ai.service.AiPromptEnhanceService;
 import com.vocata.character.dto.request.CharacterAiGenerateRequest;
 import com.vocata.character.dto.request.CharacterCreateWithAiRequest;
 import com.vocata.character.dto.response.CharacterAiGenerateResponse;
@@ -14,11 +15,15 @@ import com.vocata.character.dto.response.CharacterCreateWithAiResponse;
 import com.vocata.character.entity.Character;
 import com.vocata.character.mapper.CharacterMapper;
 import com.vocata.character.service.CharacterAiGenerateService;
+import com.vocata.character.service.CharacterCacheService;
 import com.vocata.character.service.CharacterService;
 import com.vocata.character.service.CharacterChatCountService;
+import com.vocata.character.service.CharacterIndexService;
+import com.vocata.character.service.CharacterListCursor;
 import com.vocata.common.constant.CharacterStatus;
 import com.vocata.common.exception.BizException;
 import com.vocata.common.result.ApiCode;
+import com.vocata.common.result.CursorPageResult;
 import com.vocata.common.utils.UserContext;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -34,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -54,6 +60,15 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AiPromptEnhanceService aiPromptEnhanceService;
+
+    @Autowired
+    private CharacterIndexService characterIndexService;
+
+    @Autowired
+    private CharacterCacheService characterCacheService;
+
     @Override
     public Character getById(Long id) {
         if (id == null) {
@@ -143,6 +158,8 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
         character.setUpdateDate(LocalDateTime.now());
 
         this.save(character);
+        characterIndexService.refresh(character.getId());
+        characterCacheService.evict(character.getId());
         return character;
     }
 
@@ -175,6 +192,9 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
 
         character.setUpdateDate(LocalDateTime.now());
         this.updateById(character);
+        aiPromptEnhanceService.evict(character.getId());
+        characterIndexService.refresh(character.getId());
+        characterCacheService.evict(character.getId());
         return this.getById(character.getId());
     }
 
@@ -194,7 +214,11 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
             throw new BizException(ApiCode.ACCESS_DENIED);
         }
 
-        return this.removeById(id);
+        aiPromptEnhanceService.evict(id);
+        boolean removed = this.removeById(id);
+        characterIndexService.refresh(id);
+        characterCacheService.evict(id);
+        return removed;
     }
 
     @Override
@@ -304,6 +328,33 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
         return this.baseMapper.selectPublicCharactersWithCreator(page, status, isFeatured, orderBy, orderDirection);
     }
 
+    @Override
+    public CursorPageResult<Map<String, Object>> getPublicCharactersByCursor(String cursor, int pageSize,
+                                                                          Integer status, Integer isFeatured,
+                                                                          String orderBy, String orderDirection,
+                                                                          boolean withTotal) {
+        CharacterListCursor.SortField field = CharacterListCursor.SortField.of(orderBy);
+        boolean ascending = "asc".equalsIgnoreCase(orderDirection);
+        CharacterListCursor after = StringUtils.isBlank(cursor) ? null
+                : CharacterListCursor.decode(cursor, field, ascending);
+
+        // 多取一条判断是否还有下一页
+        List<Map<String, Object>> rows = this.baseMapper.selectPublicCharactersAfterCursor(
+                status, isFeatured, field.getColumn(), ascending,
+                after != null ? after.getValue() : null,
+                after != null ? after.getId() : null,
+                pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = CharacterListCursor.fromRow(field, ascending, rows.get(pageSize - 1)).encode();
+        }
+
+        Long total = withTotal ? this.baseMapper.countPublicCharacters(status, isFeatured) : null;
+        return CursorPageResult.of(pageSize, total, rows, nextCursor);
+    }
+
     @Override
     public boolean updateStatus(Long id, Integer status) {
         if (id == null || status == null) {
@@ -314,10 +365,13 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
             throw new BizException(ApiCode.PARAM_ERROR.getCode(), "无效的状态值");
         }
 
-        return this.update(new LambdaUpdateWrapper<Character>()
+        boolean updated = this.update(new LambdaUpdateWrapper<Character>()
                 .eq(Character::getId, id)
                 .set(Character::getStatus, status)
                 .set(Character::getUpdateDate, LocalDateTime.now()));
+        characterIndexService.refresh(id);
+        characterCacheService.evict(id);
+        return updated;
     }
 
     @Override
@@ -385,11 +439,16 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
 
     @Override
     public IPage<Character> getCharactersByTagIds(Page<Character> page, Long[] tagIds, Integer status) {
-        if (tagIds == null || tagIds.length == 0) {
+        return getCharactersByTagIds(page, tagIds, false, status);
+    }
+
+    @Override
+    public IPage<Character> getCharactersByTagIds(Page<Character> page, Long[] tagIds, boolean matchAll, Integer status) {
+        Long[] normalized = normalizeTagIds(tagIds);
+        if (normalized.length == 0) {
             return this.getPublicCharacters(page, status, null, null, "chat_count", "desc");
         }
 
-        // 使用QueryWrapper查询包含任意标签的角色
         LambdaQueryWrapper<Character> wrapper = new LambdaQueryWrapper<Character>()
                 .eq(Character::getIsPrivate, false);
 
@@ -397,39 +456,39 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
             wrapper.eq(Character::getStatus, status);
         }
 
-        // 这里需要自定义SQL或者先查询所有再过滤
-        // 暂时使用简化逻辑：通过tagSummary字段进行模糊匹配
-        if (tagIds.length > 0) {
-            wrapper.and(w -> {
-                for (Long tagId : tagIds) {
-                    w.like(Character::getTagSummary, tagId.toString()).or();
-                }
-            });
-        }
+        // 数组包含（@>）要求全部标签，数组重叠（&&）要求任意标签，两者都能走tag_ids的GIN索引
+        applyTagFilter(wrapper, normalized, matchAll);
 
-        wrapper.orderByDesc(Character::getChatCount);
+        wrapper.orderByDesc(Character::getChatCount)
+               .orderByDesc(Character::getId);
         return this.page(page, wrapper);
     }
 
+    @Override
+    public List<Map<String, Object>> countCharactersByTag(Long[] tagIds, boolean matchAll, Integer status, int limit) {
+        Long[] normalized = normalizeTagIds(tagIds);
+        return this.baseMapper.countPublicCharactersByTag(
+                normalized.length > 0 ? arrayToJson(normalized) : null,
+                matchAll, status, Math.max(1, limit));
+    }
+
     @Override
     public List<Character> getRecommendedCharacters(Long[] primaryTagIds, int limit, Long excludeCharacterId) {
-        if (primaryTagIds == null || primaryTagIds.length == 0) {
+        Long[] normalized = normalizeTagIds(primaryTagIds);
+        if (normalized.length == 0) {
             return getTrendingCharacters(limit);
         }
 
-        Page<Character> page = new Page<>(1, limit);
-        IPage<Character> result = getCharactersByTagIds(page, primaryTagIds, CharacterStatus.PUBLISHED);
-
-        List<Character> characters = result.getRecords();
-
-        // 排除指定角色
-        if (excludeCharacterId != null) {
-            characters = characters.stream()
-                    .filter(c -> !excludeCharacterId.equals(c.getId()))
-                    .collect(Collectors.toList());
-        }
+        // 在SQL中排除指定角色，保证返回数量不因排除而少于limit
+        LambdaQueryWrapper<Character> wrapper = new LambdaQueryWrapper<Character>()
+                .eq(Character::getIsPrivate, false)
+                .eq(Character::getStatus, CharacterStatus.PUBLISHED)
+                .ne(excludeCharacterId != null, Character::getId, excludeCharacterId);
+        applyTagFilter(wrapper, normalized, false);
+        wrapper.orderByDesc(Character::getChatCount)
+               .orderByDesc(Character::getId);
 
-        return characters;
+        return this.page(new Page<>(1, limit, false), wrapper).getRecords();
     }
 
     @Override
@@ -445,8 +504,11 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
             String tagNamesJson = arrayToJson(tagNames);
             String primaryTagIdsJson = arrayToJson(primaryTagIds);
 
-            return this.baseMapper.updateCharacterTags(characterId, tagIdsJson, tagNamesJson,
-                                                     primaryTagIdsJson, tagSummary) > 0;
+            boolean updated = this.baseMapper.updateCharacterTags(characterId, tagIdsJson, tagNamesJson,
+                                                                primaryTagIdsJson, tagSummary) > 0;
+            characterIndexService.refresh(characterId);
+            characterCacheService.evict(characterId);
+            return updated;
         } catch (Exception e) {
             return false;
         }
@@ -522,6 +584,26 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
                 .collect(Collectors.joining(",")) + "}";
     }
 
+    /**
+     * 去除空值与重复的标签ID
+     */
+    private Long[] normalizeTagIds(Long[] tagIds) {
+        if (tagIds == null || tagIds.length == 0) {
+            return new Long[0];
+        }
+        return Arrays.stream(tagIds)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(Long[]::new);
+    }
+
+    /**
+     * 按tag_ids数组过滤，标签ID以参数绑定的数组字面量传入
+     */
+    private void applyTagFilter(LambdaQueryWrapper<Character> wrapper, Long[] tagIds, boolean matchAll) {
+        wrapper.apply((matchAll ? "tag_ids @> " : "tag_ids && ") + "{0}::bigint[]", arrayToJson(tagIds));
+    }
+
     /**
      * 应用动态排序
      */
@@ -681,6 +763,10 @@ public class CharacterServiceImpl extends ServiceImpl<CharacterMapper, Character
             // 执行更新
             boolean updated = this.update(updateWrapper);
             if (updated) {
+                // 该路径不修改更新时间，需要主动清除已渲染的提示词
+                aiPromptEnhanceService.evict(characterId);
+                characterIndexService.refresh(characterId);
+                characterCacheService.evict(characterId);
                 logger.info("角色AI生成字段更新成功，角色ID: {}", characterId);
             } else {
                 logger.error("角色AI生成字段更新失败，角色ID: {}", characterId);
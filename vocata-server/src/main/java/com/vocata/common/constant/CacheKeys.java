@@ -14,12 +14,17 @@ public class CacheKeys {
     public static final String CHARACTER_INFO = "character:info:";
     public static final String CHARACTER_LIST = "character:list:";
     public static final String CHARACTER_SEARCH = "character:search:";
+    public static final String CHARACTER_CACHE_INVALIDATE_CHANNEL = "character:cache:invalidate";
 
     // 对话相关缓存键
     public static final String CONVERSATION_INFO = "conversation:info:";
     public static final String CONVERSATION_MESSAGES = "conversation:messages:";
     public static final String CONVERSATION_CONTEXT = "conversation:context:";
 
+    // WebSocket多节点路由相关键
+    public static final String WS_SESSION_OWNER = "ws:session:owner:";
+    public static final String WS_NODE_CHANNEL = "ws:node:";
+
     // 收藏相关缓存键
     public static final String USER_FAVORITES = "favorite:user:";
 
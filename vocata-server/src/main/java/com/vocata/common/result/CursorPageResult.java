@@ -0,0 +1,72 @@
+package com.vocata.common.result;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页查询结果封装类
+ * nextCursor为空表示没有更多数据；total仅在请求统计总数时返回
+ */
+public class CursorPageResult<T> implements Serializable {
+
+    private Integer pageSize;
+    private Long total;
+    private List<T> list;
+    private String nextCursor;
+    private Boolean hasNext;
+
+    public CursorPageResult() {}
+
+    public CursorPageResult(Integer pageSize, Long total, List<T> list, String nextCursor) {
+        this.pageSize = pageSize;
+        this.total = total;
+        this.list = list;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+
+    public static <T> CursorPageResult<T> of(Integer pageSize, Long total, List<T> list, String nextCursor) {
+        return new CursorPageResult<>(pageSize, total, list, nextCursor);
+    }
+
+    // Getters and Setters
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(Boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,88 @@
+package com.vocata.config;
+
+import cn.dev33.satoken.exception.SaTokenException;
+import cn.dev33.satoken.stp.StpUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vocata.common.result.ApiCode;
+import com.vocata.common.result.ApiResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Prometheus抓取端点访问控制
+ *
+ * 监控指标包含接口路径、提供者与内部耗时，不公开：持有抓取令牌或管理员登录后才能访问。
+ * actuator端点由独立的HandlerMapping处理，不经过SaInterceptor，因此在Servlet过滤器层校验
+ */
+public class PrometheusAccessFilter extends OncePerRequestFilter {
+
+    private final byte[] expectedAuthorization;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param scrapeToken 抓取令牌，抓取方以 Authorization: Bearer <令牌> 访问；为空时只允许管理员访问
+     */
+    public PrometheusAccessFilter(String scrapeToken) {
+        this.expectedAuthorization = scrapeToken == null || scrapeToken.isEmpty()
+                ? null
+                : ("Bearer " + scrapeToken).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (hasScrapeToken(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Boolean admin = loggedInAdmin();
+        if (admin == null) {
+            reject(response, ApiCode.UNAUTHORIZED, "请先登录或携带抓取令牌");
+        } else if (!admin) {
+            reject(response, ApiCode.FORBIDDEN, "需要管理员权限");
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * 请求是否携带正确的抓取令牌（定长比较，避免按耗时猜测令牌）
+     */
+    private boolean hasScrapeToken(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        return expectedAuthorization != null && authorization != null
+                && MessageDigest.isEqual(expectedAuthorization, authorization.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 当前登录用户是否为管理员，未登录时返回null
+     */
+    private Boolean loggedInAdmin() {
+        try {
+            if (!StpUtil.isLogin()) {
+                return null;
+            }
+            return Boolean.TRUE.equals(StpUtil.getSession().get("isAdmin"));
+        } catch (SaTokenException e) {
+            // 拿不到登录上下文时按未登录处理
+            return null;
+        }
+    }
+
+    private void reject(HttpServletResponse response, ApiCode apiCode, String message) throws IOException {
+        response.setStatus(apiCode.getCode());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(ApiResponse.error(apiCode.getCode(), message)));
+    }
+}
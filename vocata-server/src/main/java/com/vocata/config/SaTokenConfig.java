@@ -4,6 +4,9 @@ import cn.dev33.satoken.interceptor.SaInterceptor;
 import cn.dev33.satoken.router.SaRouter;
 import cn.dev33.satoken.stp.StpUtil;
 import com.vocata.common.utils.UserContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -16,6 +19,12 @@ import cn.dev33.satoken.context.SaHolder;
 @Configuration
 public class SaTokenConfig implements WebMvcConfigurer {
 
+    /**
+     * Prometheus抓取令牌，抓取方以 Authorization: Bearer <令牌> 访问/actuator/prometheus；为空时只允许管理员访问
+     */
+    @Value("${monitoring.prometheus.scrape-token:}")
+    private String prometheusScrapeToken;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(new SaInterceptor(handler -> {
@@ -69,6 +78,18 @@ public class SaTokenConfig implements WebMvcConfigurer {
         })).addPathPatterns("/**");
     }
 
+    /**
+     * Prometheus抓取端点的访问控制
+     * actuator端点不经过上面的拦截器，在过滤器层校验抓取令牌或管理员登录
+     */
+    @Bean
+    public FilterRegistrationBean<PrometheusAccessFilter> prometheusAccessFilter() {
+        FilterRegistrationBean<PrometheusAccessFilter> registration =
+                new FilterRegistrationBean<>(new PrometheusAccessFilter(prometheusScrapeToken));
+        registration.addUrlPatterns("/actuator/prometheus", "/actuator/prometheus/*");
+        return registration;
+    }
+
     /**
      * 设置用户上下文
      */
@@ -5,6 +5,7 @@ import com.vocata.conversation.entity.Conversation;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 import java.util.UUID;
@@ -44,4 +45,21 @@ public interface ConversationMapper extends BaseMapper<Conversation> {
      */
     @Select("SELECT * FROM vocata_conversations WHERE user_id = #{userId} AND is_delete = 0 ORDER BY create_date DESC")
     List<Conversation> findByUserIdOrderByCreateDateDesc(@Param("userId") Long userId);
+
+    /**
+     * 查询已折叠进滚动摘要的最新消息ID（摘要水位），未生成过摘要时为null
+     */
+    @Select("SELECT summary_until_message_id FROM vocata_conversations WHERE id = #{conversationId}")
+    Long selectSummaryWatermark(@Param("conversationId") Long conversationId);
+
+    /**
+     * 同时更新滚动摘要与摘要水位，水位只能前进：其他节点已折叠到更新的消息时不更新
+     * @return 更新行数，0表示摘要已被其他任务推进
+     */
+    @Update("UPDATE vocata_conversations SET last_message_summary = #{summary}, summary_until_message_id = #{watermark} " +
+            "WHERE id = #{conversationId} " +
+            "AND (summary_until_message_id IS NULL OR summary_until_message_id < #{watermark})")
+    int updateSummaryWithWatermark(@Param("conversationId") Long conversationId,
+                                   @Param("summary") String summary,
+                                   @Param("watermark") Long watermark);
 }
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.vocata.conversation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vocata.common.constant.CacheKeys;
+import com.vocata.conversation.entity.Message;
+import com.vocata.conversation.mapper.MessageMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 对话上下文窗口缓存
+ *
+ * 每个对话保留最近capacity条消息的环形缓冲，新消息保存后追加，
+ * 构建LLM请求时直接读取，只有缓存未命中时才从PostgreSQL加载。
+ * 默认保存在进程内；开启redis-enabled后保存在Redis列表中，多节点共享同一份上下文
+ */
+@Service
+public class ConversationContextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationContextCache.class);
+
+    @Autowired
+    private MessageMapper messageMapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${ai.context.cache.capacity:40}")
+    private int capacity;
+
+    @Value("${ai.context.cache.max-conversations:10000}")
+    private long maxConversations;
+
+    @Value("${ai.context.cache.expire-minutes:30}")
+    private long expireMinutes;
+
+    @Value("${ai.context.cache.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    private Cache<Long, Window> windows;
+
+    /**
+     * 上下文中的一条消息
+     */
+    public record ContextMessage(Long id, int senderType, String text) {
+    }
+
+    @PostConstruct
+    public void init() {
+        // 按写入时间过期：其他途径写入的消息（如另一节点）不会追加到本地窗口，持续读取也不能让窗口无限期存活
+        windows = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterWrite(Duration.ofMinutes(expireMinutes))
+                .build();
+    }
+
+    /**
+     * 获取对话最近的消息
+     *
+     * @param limit 最多返回的条数，超过缓冲容量时按容量截断
+     * @return 消息列表，按时间正序（最早的在前）
+     */
+    public List<ContextMessage> recent(Long conversationId, int limit) {
+        if (redisEnabled) {
+            try {
+                return tail(recentFromRedis(conversationId), limit);
+            } catch (Exception e) {
+                logger.warn("读取Redis对话上下文失败，回退数据库查询，对话ID: {}", conversationId, e);
+                return tail(loadFromDatabase(conversationId), limit);
+            }
+        }
+        // 加载与追加在同一个键上串行，避免加载期间保存的消息丢失
+        return windows.get(conversationId, id -> new Window(capacity, loadFromDatabase(id))).snapshot(limit);
+    }
+
+    /**
+     * 每个对话最多缓存的消息条数
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 消息保存后追加到上下文，缓存中没有该对话时不做处理（下次读取会从数据库加载）
+     */
+    public void append(Message message) {
+        if (message == null || message.getConversationId() == null || message.getTextContent() == null) {
+            return;
+        }
+        ContextMessage contextMessage = toContextMessage(message);
+        if (redisEnabled) {
+            try {
+                String key = CacheKeys.CONVERSATION_CONTEXT + message.getConversationId();
+                Long size = redisTemplate.opsForList().rightPushIfPresent(key, encode(contextMessage));
+                if (size != null && size > capacity) {
+                    redisTemplate.opsForList().trim(key, -capacity, -1);
+                }
+            } catch (Exception e) {
+                // 追加失败时删除整个列表，下次从数据库重新加载，避免上下文缺失消息
+                logger.warn("追加Redis对话上下文失败，对话ID: {}", message.getConversationId(), e);
+                invalidate(message.getConversationId());
+            }
+            return;
+        }
+        windows.asMap().computeIfPresent(message.getConversationId(), (id, window) -> {
+            window.append(contextMessage);
+            return window;
+        });
+    }
+
+    /**
+     * 清除对话的上下文缓存（如对话被删除）
+     */
+    public void invalidate(Long conversationId) {
+        windows.invalidate(conversationId);
+        if (redisEnabled) {
+            try {
+                redisTemplate.delete(CacheKeys.CONVERSATION_CONTEXT + conversationId);
+            } catch (Exception e) {
+                logger.warn("删除Redis对话上下文失败，对话ID: {}", conversationId, e);
+            }
+        }
+    }
+
+    private List<ContextMessage> recentFromRedis(Long conversationId) {
+        String key = CacheKeys.CONVERSATION_CONTEXT + conversationId;
+        List<Object> cached = redisTemplate.opsForList().range(key, 0, -1);
+        if (cached != null && !cached.isEmpty()) {
+            redisTemplate.expire(key, Duration.ofMinutes(expireMinutes));
+            // 加载与追加并发时同一条消息可能写入两次，按消息ID去重
+            Set<Long> seen = new LinkedHashSet<>();
+            List<ContextMessage> messages = new ArrayList<>(cached.size());
+            for (Object value : cached) {
+                ContextMessage message = decode(String.valueOf(value));
+                if (message != null && seen.add(message.id())) {
+                    messages.add(message);
+                }
+            }
+            return messages;
+        }
+
+        List<ContextMessage> loaded = loadFromDatabase(conversationId);
+        if (!loaded.isEmpty()) {
+            List<Object> encoded = new ArrayList<>(loaded.size());
+            for (ContextMessage message : loaded) {
+                encoded.add(encode(message));
+            }
+            redisTemplate.delete(key);
+            redisTemplate.opsForList().rightPushAll(key, encoded);
+            redisTemplate.expire(key, Duration.ofMinutes(expireMinutes));
+        }
+        return loaded;
+    }
+
+    private List<ContextMessage> loadFromDatabase(Long conversationId) {
+        List<Message> recentMessages = messageMapper.findRecentMessagesByConversationId(conversationId, capacity);
+        List<ContextMessage> messages = new ArrayList<>(recentMessages.size());
+        for (int i = recentMessages.size() - 1; i >= 0; i--) {
+            Message message = recentMessages.get(i);
+            if (message.getTextContent() != null) {
+                messages.add(toContextMessage(message));
+            }
+        }
+        logger.debug("从数据库加载对话{}上下文，共{}条消息", conversationId, messages.size());
+        return messages;
+    }
+
+    private static ContextMessage toContextMessage(Message message) {
+        int senderType = message.getSenderType() != null ? message.getSenderType() : 0;
+        return new ContextMessage(message.getId(), senderType, message.getTextContent());
+    }
+
+    private static List<ContextMessage> tail(List<ContextMessage> messages, int limit) {
+        int from = Math.max(0, messages.size() - Math.max(0, limit));
+        return from == 0 ? messages : new ArrayList<>(messages.subList(from, messages.size()));
+    }
+
+    /**
+     * Redis中的编码：消息ID:发送方类型:文本
+     */
+    static String encode(ContextMessage message) {
+        return message.id() + ":" + message.senderType() + ":" + message.text();
+    }
+
+    static ContextMessage decode(String value) {
+        int first = value.indexOf(':');
+        int second = first >= 0 ? value.indexOf(':', first + 1) : -1;
+        if (second < 0) {
+            return null;
+        }
+        try {
+            String id = value.substring(0, first);
+            return new ContextMessage("null".equals(id) ? null : Long.valueOf(id),
+                    Integer.parseInt(value.substring(first + 1, second)), value.substring(second + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个对话的环形缓冲，按消息ID忽略重复追加
+     */
+    static final class Window {
+
+        private final ContextMessage[] buffer;
+        private int head;
+        private int size;
+
+        Window(int capacity, List<ContextMessage> initial) {
+            this.buffer = new ContextMessage[Math.max(1, capacity)];
+            for (ContextMessage message : initial) {
+                append(message);
+            }
+        }
+
+        synchronized void append(ContextMessage message) {
+            if (message.id() != null) {
+                for (int i = 0; i < size; i++) {
+                    if (message.id().equals(buffer[(head + i) % buffer.length].id())) {
+                        return;
+                    }
+                }
+            }
+            buffer[(head + size) % buffer.length] = message;
+            if (size < buffer.length) {
+                size++;
+            } else {
+                head = (head + 1) % buffer.length;
+            }
+        }
+
+        synchronized List<ContextMessage> snapshot(int limit) {
+            int count = Math.min(size, Math.max(0, limit));
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            List<ContextMessage> messages = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                messages.add(buffer[(head + i) % buffer.length]);
+            }
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.vocata.conversation.service;
+
+import com.vocata.ai.dto.UnifiedAiRequest;
+import com.vocata.ai.dto.UnifiedAiStreamChunk;
+import com.vocata.ai.llm.LlmProvider;
+import com.vocata.conversation.constants.SenderType;
+import com.vocata.conversation.entity.Conversation;
+import com.vocata.conversation.mapper.ConversationMapper;
+import com.vocata.conversation.service.ConversationContextCache.ContextMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对话滚动摘要服务
+ *
+ * 历史消息超出上下文预算被丢弃时，把丢弃的轮次与已有摘要合并成新的摘要，
+ * 保存在对话的lastMessageSummary字段，下一轮作为系统提示词的一部分发送，
+ * 使长对话的提示词大小保持稳定。
+ * 已折叠的最新消息ID与摘要一起保存在summary_until_message_id列，重启或换节点后不会重复折叠，
+ * 该列由 db/migration/20261017_01_conversation_summary_watermark.sql 添加
+ */
+@Service
+public class ConversationSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummaryService.class);
+
+    @Autowired
+    private ConversationMapper conversationMapper;
+
+    /**
+     * 与对话共用主LLM提供者，受同样的路由与舱壁保护
+     */
+    @Autowired
+    private LlmProvider summaryLlmProvider;
+
+    /**
+     * 摘要使用的模型，为空时使用提供者的默认模型
+     */
+    @Value("${ai.context.summary.model:}")
+    private String summaryModel;
+
+    @Value("${ai.context.summary.max-chars:300}")
+    private int summaryMaxChars;
+
+    // 正在生成摘要的对话，同一节点上同一对话同时只有一个生成任务
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 异步把被丢弃的历史消息折叠进对话摘要
+     *
+     * @param conversationId 对话ID
+     * @param dropped 本轮被丢弃的消息，按时间正序
+     */
+    @Async
+    public void refreshSummaryAsync(Long conversationId, List<ContextMessage> dropped) {
+        if (conversationId == null || dropped == null || dropped.isEmpty()) {
+            return;
+        }
+        if (!inFlight.add(conversationId)) {
+            logger.debug("对话{}摘要正在生成，跳过本次", conversationId);
+            return;
+        }
+        try {
+            // 只有已持久化（带ID）的消息才能推进水位，未落库的消息留到下一轮再折叠
+            Long watermark = conversationMapper.selectSummaryWatermark(conversationId);
+            List<ContextMessage> pending = dropped.stream()
+                    .filter(message -> message.id() != null && (watermark == null || message.id() > watermark))
+                    .toList();
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Conversation conversation = conversationMapper.selectById(conversationId);
+            if (conversation == null) {
+                return;
+            }
+
+            String summary = generateSummary(conversation.getLastMessageSummary(), pending);
+            if (summary == null) {
+                return;
+            }
+
+            // 只更新摘要与水位，避免覆盖并发生成的标题；其他节点先一步推进了水位时放弃本次结果
+            Long newest = pending.get(pending.size() - 1).id();
+            if (conversationMapper.updateSummaryWithWatermark(conversationId, summary, newest) == 0) {
+                logger.debug("对话{}摘要已被其他任务更新，丢弃本次结果", conversationId);
+                return;
+            }
+            logger.info("对话{}摘要已更新，折叠{}条消息，摘要长度: {}", conversationId, pending.size(), summary.length());
+
+        } catch (Exception e) {
+            logger.error("生成对话摘要失败，对话ID: {}", conversationId, e);
+        } finally {
+            inFlight.remove(conversationId);
+        }
+    }
+
+    /**
+     * 调用LLM合并已有摘要与新丢弃的对话
+     *
+     * @return 新摘要，失败时返回null
+     */
+    private String generateSummary(String previousSummary, List<ContextMessage> messages) {
+        if (!summaryLlmProvider.isAvailable()) {
+            logger.warn("摘要LLM提供者不可用，跳过摘要生成");
+            return null;
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        for (ContextMessage message : messages) {
+            transcript.append(message.senderType() == SenderType.USER.getCode() ? "用户: " : "角色: ")
+                    .append(message.text().trim())
+                    .append('\n');
+        }
+
+        String prompt = String.format(
+                "请把以下内容合并成一段新的对话摘要，不超过%d个中文字符。" +
+                "保留用户的关键信息、偏好、已达成的约定和未完成的话题，省略寒暄。只返回摘要本身。\n\n" +
+                "已有摘要：\n%s\n\n" +
+                "新增对话：\n%s",
+                summaryMaxChars,
+                previousSummary != null && !previousSummary.trim().isEmpty() ? previousSummary.trim() : "无",
+                transcript);
+
+        UnifiedAiRequest request = new UnifiedAiRequest();
+        request.setSystemPrompt("你是一个对话摘要助手，负责把角色扮演对话压缩成简洁的中文摘要。");
+        request.setUserMessage(prompt);
+
+        UnifiedAiRequest.ModelConfig modelConfig = new UnifiedAiRequest.ModelConfig();
+        if (StringUtils.hasText(summaryModel)) {
+            modelConfig.setModelName(summaryModel);
+        }
+        modelConfig.setTemperature(0.3);
+        modelConfig.setMaxTokens(summaryMaxChars * 2);
+        request.setModelConfig(modelConfig);
+
+        UnifiedAiStreamChunk chunk = summaryLlmProvider.chat(request);
+        String summary = chunk != null ? chunk.getAccumulatedContent() : null;
+        if (summary == null || summary.trim().isEmpty()) {
+            logger.warn("LLM返回的摘要为空");
+            return null;
+        }
+        summary = summary.trim();
+        return summary.length() > summaryMaxChars ? summary.substring(0, summaryMaxChars) : summary;
+    }
+}
@@ -13,6 +13,7 @@ import com.vocata.conversation.entity.Conversation;
 import com.vocata.conversation.entity.Message;
 import com.vocata.conversation.mapper.ConversationMapper;
 import com.vocata.conversation.mapper.MessageMapper;
+import com.vocata.conversation.service.ConversationContextCache;
 import com.vocata.conversation.service.ConversationService;
 import com.vocata.conversation.service.ConversationTitleGenerationService;
 import com.vocata.ai.llm.LlmProvider;
@@ -45,6 +46,9 @@ public class ConversationServiceImpl implements ConversationService {
     @Autowired
     private MessageMapper messageMapper;
 
+    @Autowired
+    private ConversationContextCache conversationContextCache;
+
     @Autowired
     private CharacterMapper characterMapper;
 
@@ -224,6 +228,7 @@ public class ConversationServiceImpl implements ConversationService {
 
         // 软删除相关消息
         messageMapper.softDeleteByConversationId(conversation.getId());
+        conversationContextCache.invalidate(conversation.getId());
         logger.info("已软删除对话{}的所有相关消息", conversation.getId());
     }
 
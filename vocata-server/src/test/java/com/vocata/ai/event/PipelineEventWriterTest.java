@@ -0,0 +1,105 @@
+package com.vocata.ai.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 链路事件JSON序列化测试
+ */
+public class PipelineEventWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testSttPartial() throws Exception {
+        JsonNode json = objectMapper.readTree(PipelineEventWriter.write(
+                new PipelineEvent.SttPartial("你好", false, 0.85, 1000L)));
+
+        assertEquals("stt_result", json.get("type").asText());
+        assertEquals("你好", json.get("text").asText());
+        assertFalse(json.get("isFinal").asBoolean());
+        assertEquals(0.85, json.get("confidence").asDouble(), 1e-9);
+        assertEquals(1000L, json.get("timestamp").asLong());
+    }
+
+    @Test
+    public void testLlmDeltaEscaping() throws Exception {
+        String text = "他说：\"你好\"\\\n\t\u0001结束";
+
+        JsonNode json = objectMapper.readTree(PipelineEventWriter.write(new PipelineEvent.LlmDelta(text, true)));
+
+        assertEquals("llm_text_stream", json.get("type").asText());
+        assertEquals(text, json.get("text").asText());
+        assertEquals("AI助手", json.get("characterName").asText());
+        assertTrue(json.get("isComplete").asBoolean());
+    }
+
+    @Test
+    public void testTtsCaptionOnlyOnFirstFrame() throws Exception {
+        PipelineEvent.TtsAudio first = new PipelineEvent.TtsAudio(new byte[4], "第一句。", "mp3", 24000,
+                "voice-1", 3, 1, 0, false, 1000L);
+        PipelineEvent.TtsAudio next = new PipelineEvent.TtsAudio(new byte[4], "第一句。", "mp3", 24000,
+                null, 4, 1, 1, true, 1000L);
+
+        JsonNode firstJson = objectMapper.readTree(PipelineEventWriter.write(first));
+        JsonNode nextJson = objectMapper.readTree(PipelineEventWriter.write(next));
+
+        assertEquals("tts_caption", firstJson.get("type").asText());
+        assertEquals("第一句。", firstJson.get("text").asText());
+        assertEquals(3, firstJson.get("sequence").asLong());
+        assertEquals(1, firstJson.get("segmentIndex").asInt());
+        assertEquals("voice-1", firstJson.get("voiceId").asText());
+        assertEquals("", nextJson.get("text").asText());
+        assertTrue(nextJson.get("lastFrame").asBoolean());
+        assertFalse(nextJson.has("voiceId"));
+    }
+
+    @Test
+    public void testReplyTextIsTheOnlyTtsResult() throws Exception {
+        JsonNode json = objectMapper.readTree(PipelineEventWriter.write(
+                new PipelineEvent.ReplyText("第一句。第二句。", "voice-1", 1000L)));
+
+        assertEquals("tts_result", json.get("type").asText());
+        assertEquals("第一句。第二句。", json.get("text").asText());
+        assertEquals("voice-1", json.get("voiceId").asText());
+    }
+
+    @Test
+    public void testAudioMeta() throws Exception {
+        PipelineEvent.TtsAudio audio = new PipelineEvent.TtsAudio(new byte[1234], null, "pcm", 16000,
+                null, 0, 0, 0, true, 1000L);
+
+        JsonNode json = objectMapper.readTree(PipelineEventWriter.writeAudioMeta(audio));
+
+        assertEquals("tts_audio_meta", json.get("type").asText());
+        assertEquals(1234, json.get("audioSize").asInt());
+        assertEquals("pcm", json.get("format").asText());
+        assertEquals(16000, json.get("sampleRate").asInt());
+    }
+
+    @Test
+    public void testCompleteCarriesTraceId() throws Exception {
+        JsonNode json = objectMapper.readTree(PipelineEventWriter.write(
+                new PipelineEvent.Complete("处理完成", "0123456789abcdef")));
+
+        assertEquals("complete", json.get("type").asText());
+        assertEquals("处理完成", json.get("message").asText());
+        assertEquals("0123456789abcdef", json.get("traceId").asText());
+    }
+
+    @Test
+    public void testErrorAndNonFiniteNumbers() throws Exception {
+        JsonNode error = objectMapper.readTree(PipelineEventWriter.write(new PipelineEvent.Error(null)));
+        JsonNode stt = objectMapper.readTree(PipelineEventWriter.write(
+                new PipelineEvent.SttPartial("x", true, Double.NaN)));
+
+        assertEquals("error", error.get("type").asText());
+        assertTrue(error.get("error").isNull());
+        assertEquals(0.0, stt.get("confidence").asDouble(), 0.0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.vocata.ai.llm.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式JSON数组解码器测试
+ */
+public class JsonArrayStreamDecoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testEmitsEachElementAsSoonAsItCloses() throws Exception {
+        JsonArrayStreamDecoder decoder = new JsonArrayStreamDecoder(objectMapper);
+
+        assertTrue(decoder.feed(bytes("[{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"你")).isEmpty());
+
+        List<JsonNode> first = decoder.feed(bytes("好\"}]}}]}\n,\r\n{\"candidates\":[{\"fin")));
+        assertEquals(1, first.size());
+        assertEquals("你好", first.get(0).at("/candidates/0/content/parts/0/text").asText());
+
+        List<JsonNode> second = decoder.feed(bytes("ishReason\":\"STOP\"}]}]"));
+        assertEquals(1, second.size());
+        assertEquals("STOP", second.get(0).at("/candidates/0/finishReason").asText());
+
+        assertTrue(decoder.endOfInput().isEmpty());
+    }
+
+    @Test
+    public void testMultiByteCharacterSplitAcrossFeeds() throws Exception {
+        byte[] body = bytes("[{\"text\":\"流式解析\"}]");
+        List<JsonNode> elements = new ArrayList<>();
+        JsonArrayStreamDecoder decoder = new JsonArrayStreamDecoder(objectMapper);
+        // 逐字节输入，保证每个中文字符都被拆开
+        for (int i = 0; i < body.length; i++) {
+            elements.addAll(decoder.feed(Arrays.copyOfRange(body, i, i + 1)));
+        }
+        elements.addAll(decoder.endOfInput());
+
+        assertEquals(1, elements.size());
+        assertEquals("流式解析", elements.get(0).get("text").asText());
+    }
+
+    @Test
+    public void testSingleObjectRoot() throws Exception {
+        JsonArrayStreamDecoder decoder = new JsonArrayStreamDecoder(objectMapper);
+
+        List<JsonNode> elements = new ArrayList<>(decoder.feed(bytes("{\"error\":{\"code\":400}}")));
+        elements.addAll(decoder.endOfInput());
+
+        assertEquals(1, elements.size());
+        assertEquals(400, elements.get(0).at("/error/code").asInt());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package com.vocata.ai.llm.support;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE解码分配对比基准测试
+ *
+ * 模拟一次LLM流式回复：按网络包大小切分的SSE字节流，比较
+ * legacy（每个DataBuffer拷贝为byte[]再转String，拼接后split）与SseDataDecoder的单token分配量。
+ *
+ * 运行方式：在IDE中执行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.vocata.ai.llm.support.SseDataDecoderBenchmark
+ * 结果中的 gc.alloc.rate.norm 除以 tokens 即为每个token的分配字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseDataDecoderBenchmark {
+
+    @Param({"200"})
+    public int tokens;
+
+    @Param({"512"})
+    public int packetSize;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private List<byte[]> packets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            body.append("data: {\"id\":\"chatcmpl-1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"你好")
+                    .append(i)
+                    .append("\"},\"finish_reason\":null}]}\n\n");
+        }
+        body.append("data: [DONE]\n\n");
+
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        packets = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += packetSize) {
+            int length = Math.min(packetSize, bytes.length - offset);
+            byte[] packet = new byte[length];
+            System.arraycopy(bytes, offset, packet, 0, length);
+            packets.add(packet);
+        }
+    }
+
+    @Benchmark
+    public void legacyCopyAndSplit(Blackhole blackhole) {
+        List<String> texts = new ArrayList<>(packets.size());
+        for (byte[] packet : packets) {
+            DataBuffer dataBuffer = newBuffer(packet);
+            byte[] bytes = new byte[dataBuffer.readableByteCount()];
+            dataBuffer.read(bytes);
+            DataBufferUtils.release(dataBuffer);
+            texts.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        String combined = String.join("", texts);
+        for (String line : combined.split("\n")) {
+            if (line.startsWith("data: ") && !line.equals("data: [DONE]")) {
+                blackhole.consume(line.substring(6).trim());
+            }
+        }
+    }
+
+    @Benchmark
+    public void sseDataDecoder(Blackhole blackhole) {
+        SseDataDecoder decoder = new SseDataDecoder();
+        for (byte[] packet : packets) {
+            List<String> events = decoder.feed(newBuffer(packet));
+            for (int i = 0; i < events.size(); i++) {
+                blackhole.consume(events.get(i));
+            }
+        }
+        blackhole.consume(decoder.flush());
+    }
+
+    private DataBuffer newBuffer(byte[] packet) {
+        // 模拟Netty直接内存中的入站数据
+        DataBuffer buffer = bufferFactory.allocateBuffer(packet.length);
+        buffer.write(packet);
+        return buffer;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SseDataDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,60 @@
+package com.vocata.ai.llm.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * SSE增量解码器测试
+ */
+public class SseDataDecoderTest {
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    public void testEventsWithinSingleBuffer() {
+        List<String> events = decode(bytes("data: {\"a\":1}\n\ndata: {\"b\":2}\r\n\r\ndata: [DONE]\n\n"));
+
+        assertEquals(List.of("{\"a\":1}", "{\"b\":2}"), events);
+    }
+
+    @Test
+    public void testLineSplitAcrossBuffers() {
+        List<String> events = decode(bytes("da"), bytes("ta: {\"content\":"), bytes("\"hi\"}\n\n"));
+
+        assertEquals(List.of("{\"content\":\"hi\"}"), events);
+    }
+
+    @Test
+    public void testMultiByteCharacterSplitAcrossBuffers() {
+        byte[] line = bytes("data: 你好世界\n\n");
+        // 在“你”的三个字节中间切开
+        int cut = "data: ".length() + 1;
+        List<String> events = decode(Arrays.copyOfRange(line, 0, cut), Arrays.copyOfRange(line, cut, line.length));
+
+        assertEquals(List.of("你好世界"), events);
+    }
+
+    @Test
+    public void testIgnoresNonDataLinesAndFlushesTrailingLine() {
+        List<String> events = decode(bytes(": keep-alive\nevent: message\ndata:x\n\ndata: tail"));
+
+        assertEquals(List.of("x", "tail"), events);
+    }
+
+    private List<String> decode(byte[]... chunks) {
+        Flux<DataBuffer> body = Flux.fromArray(chunks).map(bufferFactory::wrap);
+        return SseDataDecoder.decode(body).collectList().block();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
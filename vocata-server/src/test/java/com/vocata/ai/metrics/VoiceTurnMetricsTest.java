@@ -0,0 +1,87 @@
+package com.vocata.ai.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 语音对话链路耗时指标测试
+ */
+public class VoiceTurnMetricsTest {
+
+    @Test
+    public void testStagesRecordedWithTags() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VoiceTurnMetrics metrics = new VoiceTurnMetrics(registry);
+
+        TurnTrace trace = metrics.startTurn("voice");
+        trace.audioEnded();
+        trace.sttFinal("qiniu-asr");
+        trace.llmStarted();
+        trace.llmToken("qiniu", "x-ai/grok-4-fast");
+        trace.llmToken("qiniu", "x-ai/grok-4-fast");
+        trace.llmCompleted("qiniu", "x-ai/grok-4-fast");
+        trace.ttsStarted();
+        trace.ttsAudio("xunfei");
+        trace.ttsAudio("xunfei");
+        trace.ttsCompleted("xunfei");
+        trace.completed();
+        trace.completed();
+
+        assertEquals(1, stage(registry, VoiceTurnMetrics.STAGE_STT).count());
+        assertEquals("none", stage(registry, VoiceTurnMetrics.STAGE_STT).getId().getTag("model"));
+        assertEquals(1, stage(registry, VoiceTurnMetrics.STAGE_LLM_FIRST_TOKEN).count());
+        assertEquals("x-ai/grok-4-fast", stage(registry, VoiceTurnMetrics.STAGE_LLM_COMPLETE).getId().getTag("model"));
+        assertEquals(1, stage(registry, VoiceTurnMetrics.STAGE_TTS_FIRST_BYTE).count());
+        assertEquals("xunfei", stage(registry, VoiceTurnMetrics.STAGE_TTS_COMPLETE).getId().getTag("provider"));
+        assertEquals(1, registry.get(VoiceTurnMetrics.TURN_TIMER).tag("mode", "voice").timer().count());
+    }
+
+    @Test
+    public void testFirstTokenIgnoredBeforeRequestStarts() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VoiceTurnMetrics metrics = new VoiceTurnMetrics(registry);
+
+        TurnTrace trace = metrics.startTurn("text");
+        trace.llmToken("qiniu", "model");
+        trace.ttsAudio("xunfei");
+
+        assertNull(registry.find(VoiceTurnMetrics.STAGE_TIMER).timer());
+    }
+
+    @Test
+    public void testExplicitLlmTimestamps() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VoiceTurnMetrics metrics = new VoiceTurnMetrics(registry);
+
+        // 复用推测请求：链路订阅与回放都晚于实际生成，按生成时刻计时
+        long issued = System.nanoTime() - TimeUnit.SECONDS.toNanos(2);
+        TurnTrace trace = metrics.startTurn("voice");
+        trace.llmStarted(issued);
+        trace.llmToken("qiniu", "model", issued + TimeUnit.MILLISECONDS.toNanos(300));
+        trace.llmCompleted("qiniu", "model", issued + TimeUnit.MILLISECONDS.toNanos(900));
+
+        assertEquals(300, stage(registry, VoiceTurnMetrics.STAGE_LLM_FIRST_TOKEN).totalTime(TimeUnit.MILLISECONDS), 1);
+        assertEquals(900, stage(registry, VoiceTurnMetrics.STAGE_LLM_COMPLETE).totalTime(TimeUnit.MILLISECONDS), 1);
+    }
+
+    @Test
+    public void testTraceIdsAreUnique() {
+        VoiceTurnMetrics metrics = new VoiceTurnMetrics(new SimpleMeterRegistry());
+
+        String first = metrics.startTurn("voice").getTraceId();
+
+        assertEquals(16, first.length());
+        assertNotEquals(first, metrics.startTurn("voice").getTraceId());
+    }
+
+    private Timer stage(SimpleMeterRegistry registry, String stage) {
+        return registry.get(VoiceTurnMetrics.STAGE_TIMER).tag("stage", stage).timer();
+    }
+}
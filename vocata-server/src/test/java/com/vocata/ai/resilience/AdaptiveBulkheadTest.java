@@ -0,0 +1,131 @@
+package com.vocata.ai.resilience;
+
+import com.vocata.common.exception.BizException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 响应式舱壁测试
+ */
+public class AdaptiveBulkheadTest {
+
+    @Test
+    public void testQueuedRequestGetsPermitWhenRunningOneCompletes() {
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("test", properties(1, 1, 10_000));
+
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+        Disposable first = bulkhead.execute(running.asFlux(), null).subscribe();
+        assertEquals(1, bulkhead.snapshot().inFlight());
+
+        List<String> result = new ArrayList<>();
+        bulkhead.execute(Flux.just("queued"), null).subscribe(result::add);
+        assertEquals(1, bulkhead.snapshot().queued());
+        assertEquals(0, result.size());
+
+        running.tryEmitComplete();
+        assertEquals(List.of("queued"), result);
+        assertEquals(0, bulkhead.snapshot().inFlight());
+        assertEquals(0, bulkhead.snapshot().queued());
+        first.dispose();
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() {
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("test", properties(1, 0, 10_000));
+
+        Disposable running = bulkhead.execute(Flux.never(), null).subscribe();
+
+        assertThrows(BizException.class,
+                () -> bulkhead.execute(Flux.just("x"), null).blockLast());
+        assertEquals(1, bulkhead.snapshot().rejectedQueueFull());
+        running.dispose();
+        assertEquals(0, bulkhead.snapshot().inFlight());
+    }
+
+    @Test
+    public void testQueuedRequestFailsAfterDeadline() {
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("test", properties(1, 1, 50));
+
+        Disposable running = bulkhead.execute(Flux.never(), null).subscribe();
+
+        assertThrows(BizException.class, () -> bulkhead.execute(Flux.just("x"), null).blockLast());
+        assertEquals(1, bulkhead.snapshot().rejectedQueueTimeout());
+        assertEquals(0, bulkhead.snapshot().queued());
+        running.dispose();
+    }
+
+    @Test
+    public void testCircuitOpensOnFailuresAndRecoversAfterProbes() throws Exception {
+        AdaptiveBulkhead.BulkheadProperties properties = properties(4, 4, 1000);
+        properties.setWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(0.5);
+        properties.setOpenDurationMs(100);
+        properties.setHalfOpenProbes(1);
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("test", properties);
+
+        for (int i = 0; i < 2; i++) {
+            bulkhead.execute(Flux.just("ok"), null).blockLast();
+        }
+        // 错误元素与异常都计为失败
+        bulkhead.execute(Flux.just("error"), "error"::equals).blockLast();
+        assertThrows(IllegalStateException.class,
+                () -> bulkhead.execute(Flux.<String>error(new IllegalStateException("boom")), null).blockLast());
+        assertEquals(AdaptiveBulkhead.CircuitState.OPEN, bulkhead.snapshot().circuitState());
+
+        assertThrows(BizException.class, () -> bulkhead.execute(Flux.just("x"), null).blockLast());
+        assertEquals(1, bulkhead.snapshot().rejectedCircuitOpen());
+
+        Thread.sleep(150);
+        assertEquals("probe", bulkhead.execute(Flux.just("probe"), null).blockLast());
+        assertEquals(AdaptiveBulkhead.CircuitState.CLOSED, bulkhead.snapshot().circuitState());
+    }
+
+    @Test
+    public void testLimitBacksOffOnFailureAndGrowsOnSuccess() {
+        AdaptiveBulkhead.BulkheadProperties properties = properties(10, 0, 1000);
+        properties.setMinimumCalls(1000);
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("test", properties);
+
+        assertThrows(IllegalStateException.class,
+                () -> bulkhead.execute(Flux.<String>error(new IllegalStateException("boom")), null).blockLast());
+        assertEquals(7, bulkhead.snapshot().limit());
+
+        // 利用率不足时成功不会推高上限
+        for (int i = 0; i < 20; i++) {
+            bulkhead.execute(Flux.just("ok"), null).blockLast();
+        }
+        assertEquals(7, bulkhead.snapshot().limit());
+    }
+
+    @Test
+    public void testLatencyInsensitiveCallsDoNotAdjustLimit() {
+        AdaptiveBulkhead.BulkheadProperties properties = properties(10, 0, 1000);
+        properties.setMinimumCalls(1000);
+        AdaptiveBulkhead bulkhead = new AdaptiveBulkhead("test", properties);
+
+        // 长连接的失败只计入熔断统计，不收缩并发上限
+        assertThrows(IllegalStateException.class,
+                () -> bulkhead.execute(Flux.<String>error(new IllegalStateException("boom")), null, false).blockLast());
+        assertEquals(10, bulkhead.snapshot().limit());
+        assertEquals(1, bulkhead.snapshot().failureCount());
+    }
+
+    private AdaptiveBulkhead.BulkheadProperties properties(int limit, int queueSize, long queueTimeoutMs) {
+        AdaptiveBulkhead.BulkheadProperties properties = new AdaptiveBulkhead.BulkheadProperties();
+        properties.setInitialLimit(limit);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(64);
+        properties.setMaxQueueSize(queueSize);
+        properties.setQueueTimeoutMs(queueTimeoutMs);
+        return properties;
+    }
+}
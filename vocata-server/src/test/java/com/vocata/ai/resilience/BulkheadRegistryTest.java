@@ -0,0 +1,41 @@
+package com.vocata.ai.resilience;
+
+import com.vocata.common.exception.BizException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 舱壁指标注册测试
+ */
+public class BulkheadRegistryTest {
+
+    @Test
+    public void testMetersFollowBulkheadState() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveBulkhead.BulkheadProperties properties = new AdaptiveBulkhead.BulkheadProperties();
+        properties.setInitialLimit(1);
+        properties.setMaxQueueSize(0);
+        AdaptiveBulkhead bulkhead = BulkheadRegistry.registerMeters(registry,
+                new AdaptiveBulkhead("llm:test", properties));
+
+        bulkhead.execute(Flux.just("ok"), null).blockLast();
+        Disposable running = bulkhead.execute(Flux.never(), null).subscribe();
+        assertThrows(BizException.class, () -> bulkhead.execute(Flux.just("x"), null).blockLast());
+
+        assertEquals(1.0, registry.get(BulkheadRegistry.LIMIT_GAUGE).tag("bulkhead", "llm:test").gauge().value());
+        assertEquals(1.0, registry.get(BulkheadRegistry.IN_FLIGHT_GAUGE).tag("bulkhead", "llm:test").gauge().value());
+        assertEquals(0.0, registry.get(BulkheadRegistry.CIRCUIT_GAUGE).tag("bulkhead", "llm:test").gauge().value());
+        assertEquals(1.0, registry.get(BulkheadRegistry.CALLS_COUNTER)
+                .tags("bulkhead", "llm:test", "outcome", "success").functionCounter().count());
+        assertEquals(1.0, registry.get(BulkheadRegistry.REJECTED_COUNTER)
+                .tags("bulkhead", "llm:test", "reason", "queue_full").functionCounter().count());
+
+        running.dispose();
+        assertEquals(0.0, registry.get(BulkheadRegistry.IN_FLIGHT_GAUGE).tag("bulkhead", "llm:test").gauge().value());
+    }
+}
@@ -0,0 +1,59 @@
+package com.vocata.ai.service;
+
+import com.vocata.conversation.service.ConversationContextCache.ContextMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按token预算组装历史上下文测试
+ */
+public class ContextAssemblerTest {
+
+    private static final List<ContextMessage> HISTORY = List.of(
+            new ContextMessage(1L, 1, "很长很长很长很长很长很长的第一条"),
+            new ContextMessage(2L, 2, "第二条"),
+            new ContextMessage(3L, 1, "第三条"),
+            new ContextMessage(4L, 2, "第四条"));
+
+    @Test
+    public void testFillsNewestFirstWithinBudget() {
+        // 每条消息token数 = 字符数 + 固定开销
+        int budget = 3 * (3 + ContextAssembler.MESSAGE_OVERHEAD_TOKENS);
+
+        ContextAssembler.Assembly assembly = ContextAssembler.assemble(HISTORY, budget, 10, String::length);
+
+        assertEquals(List.of(2L, 3L, 4L), ids(assembly.kept()));
+        assertEquals(List.of(1L), ids(assembly.dropped()));
+        assertEquals(budget, assembly.usedTokens());
+    }
+
+    @Test
+    public void testStopsAtFirstMessageThatDoesNotFit() {
+        List<ContextMessage> history = List.of(
+                new ContextMessage(1L, 1, "短"),
+                new ContextMessage(2L, 2, "很长很长很长很长很长"),
+                new ContextMessage(3L, 1, "短"));
+
+        ContextAssembler.Assembly assembly = ContextAssembler.assemble(history, 8, 10, String::length);
+
+        assertEquals(List.of(3L), ids(assembly.kept()));
+        assertEquals(List.of(1L, 2L), ids(assembly.dropped()));
+    }
+
+    @Test
+    public void testMaxMessagesAndNegativeBudget() {
+        assertEquals(List.of(3L, 4L), ids(ContextAssembler.assemble(HISTORY, 1000, 2, String::length).kept()));
+
+        ContextAssembler.Assembly none = ContextAssembler.assemble(HISTORY, -5, 10, String::length);
+        assertTrue(none.kept().isEmpty());
+        assertEquals(4, none.dropped().size());
+    }
+
+    private List<Long> ids(List<ContextMessage> messages) {
+        return messages.stream().map(ContextMessage::id).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.vocata.ai.service;
+
+import com.vocata.ai.dto.UnifiedAiRequest;
+import com.vocata.ai.dto.UnifiedAiStreamChunk;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推测LLM请求测试
+ */
+public class LlmSpeculationTest {
+
+    @Test
+    public void testMatchesIgnoresPunctuationAndCase() {
+        LlmSpeculation speculation = new LlmSpeculation("今天 天气怎么样", new UnifiedAiRequest(), Flux.empty());
+
+        assertTrue(speculation.matches("今天天气怎么样？"));
+        assertFalse(speculation.matches("今天天气怎么样啊"));
+        assertEquals("hello2you", LlmSpeculation.normalize(" Hello, 2 You! "));
+        assertEquals("", LlmSpeculation.normalize(null));
+    }
+
+    @Test
+    public void testOutputReplayedWithoutResubscribing() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<UnifiedAiStreamChunk> source = Flux.just(chunk("你好"), chunk("，很高兴"), chunk(null))
+                .doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+        LlmSpeculation speculation = new LlmSpeculation("你好", new UnifiedAiRequest(), source);
+        List<UnifiedAiStreamChunk> replayed = speculation.getOutput().collectList().block();
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(3, replayed.size());
+        assertEquals(6, speculation.getGeneratedChars());
+        assertEquals(6, speculation.cancel());
+    }
+
+    @Test
+    public void testRecordsGenerationTimesBeforeReplay() {
+        long beforeIssue = System.nanoTime();
+        LlmSpeculation speculation = new LlmSpeculation("你好", new UnifiedAiRequest(),
+                Flux.just(chunk(""), chunk("你好"), chunk("呀")));
+        long afterGeneration = System.nanoTime();
+
+        // 输出尚未被链路订阅，发起、首个token与结束时刻都已确定
+        assertTrue(speculation.getIssuedNanos() >= beforeIssue);
+        assertTrue(speculation.getFirstTokenNanos() >= speculation.getIssuedNanos());
+        assertTrue(speculation.getCompletedNanos() >= speculation.getFirstTokenNanos());
+        assertTrue(speculation.getCompletedNanos() <= afterGeneration);
+
+        long firstToken = speculation.getFirstTokenNanos();
+        speculation.getOutput().blockLast();
+        assertEquals(firstToken, speculation.getFirstTokenNanos());
+    }
+
+    private UnifiedAiStreamChunk chunk(String content) {
+        UnifiedAiStreamChunk chunk = new UnifiedAiStreamChunk();
+        chunk.setContent(content);
+        return chunk;
+    }
+}
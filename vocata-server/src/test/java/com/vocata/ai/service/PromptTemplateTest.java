@@ -0,0 +1,39 @@
+package com.vocata.ai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 预编译提示词模板测试
+ */
+public class PromptTemplateTest {
+
+    @Test
+    public void testRenderMatchesReplace() {
+        String template = "姓名:{NAME}\n性格:{TRAITS}\n再次:{NAME}";
+        Map<String, String> values = Map.of("NAME", "小明", "TRAITS", "友好、耐心");
+
+        String rendered = PromptTemplate.compile(template).render(values);
+
+        assertEquals(template.replace("{NAME}", "小明").replace("{TRAITS}", "友好、耐心"), rendered);
+    }
+
+    @Test
+    public void testOnlyUppercasePlaceholders() {
+        PromptTemplate template = PromptTemplate.compile("{A_1}{}{lower}{ {B}");
+
+        assertEquals(List.of("A_1", "B"), template.getPlaceholders());
+        assertEquals("x{}{lower}{ {B}", template.render(Map.of("A_1", "x")));
+    }
+
+    @Test
+    public void testValueContainingPlaceholderIsNotExpanded() {
+        PromptTemplate template = PromptTemplate.compile("{A}-{B}");
+
+        assertEquals("{B}-b", template.render(Map.of("A", "{B}", "B", "b")));
+    }
+}
@@ -0,0 +1,57 @@
+package com.vocata.ai.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 共享上游测试
+ */
+public class SharedUpstreamTest {
+
+    @Test
+    public void testFinalTranscriptReachesLlmOnceWithSingleUpstreamSubscription() {
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+        AtomicInteger llmCalls = new AtomicInteger();
+        Flux<String> recognition = Flux.just("今天", "今天天气", "final:今天天气怎么样")
+                .doOnSubscribe(s -> upstreamSubscriptions.incrementAndGet());
+
+        SharedUpstream<String> shared = new SharedUpstream<>(recognition);
+        // 与语音链路相同的组合：部分结果流结束后才订阅最终结果处理
+        Flux<String> partials = shared.flux().map(text -> "stt:" + text);
+        Flux<String> llm = shared.flux()
+                .filter(text -> text.startsWith("final:"))
+                .take(1)
+                .flatMap(text -> Mono.fromCallable(() -> {
+                    llmCalls.incrementAndGet();
+                    return "llm:" + text.substring("final:".length());
+                }));
+
+        List<String> events = shared.bind(partials.concatWith(llm)).collectList().block();
+
+        assertEquals(1, upstreamSubscriptions.get());
+        assertEquals(1, llmCalls.get());
+        assertEquals("llm:今天天气怎么样", events.get(events.size() - 1));
+        assertEquals(4, events.size());
+    }
+
+    @Test
+    public void testCancellingPipelineDisconnectsUpstream() {
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        SharedUpstream<String> shared = new SharedUpstream<>(
+                Flux.<String>never().doOnCancel(() -> upstreamCancelled.set(true)));
+
+        Disposable turn = shared.bind(shared.flux().concatWith(shared.flux().take(1))).subscribe();
+        turn.dispose();
+
+        assertTrue(upstreamCancelled.get());
+    }
+}
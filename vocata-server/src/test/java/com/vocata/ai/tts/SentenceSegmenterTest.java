@@ -0,0 +1,64 @@
+package com.vocata.ai.tts;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 流式分句器测试
+ */
+public class SentenceSegmenterTest {
+
+    @Test
+    public void testChineseBoundariesAcrossTokens() {
+        List<String> sentences = SentenceSegmenter.segment(
+                Flux.just("你好", "呀。今天", "天气不错！", "要出去", "玩吗？"), 80)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("你好呀。", "今天天气不错！", "要出去玩吗？"), sentences);
+    }
+
+    @Test
+    public void testEnglishPeriodWaitsForWhitespace() {
+        List<String> sentences = SentenceSegmenter.segment(
+                Flux.just("Pi is 3.", "14. It is ", "famous"), 80)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("Pi is 3.14.", "It is famous"), sentences);
+    }
+
+    @Test
+    public void testClosingQuoteStaysWithSentence() {
+        List<String> sentences = SentenceSegmenter.segment(
+                Flux.just("他说：“走吧。”然后离开了。"), 80)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("他说：“走吧。”", "然后离开了。"), sentences);
+    }
+
+    @Test
+    public void testMaxCharsPrefersSoftBreak() {
+        List<String> sentences = SentenceSegmenter.segment(
+                Flux.just("一二三四五六，七八九十"), 8)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("一二三四五六，", "七八九十"), sentences);
+    }
+
+    @Test
+    public void testPunctuationOnlySegmentsAreDropped() {
+        List<String> sentences = SentenceSegmenter.segment(
+                Flux.just("好的。", "\n\n", "……\n", "再见"), 80)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("好的。", "再见"), sentences);
+    }
+}
@@ -0,0 +1,167 @@
+package com.vocata.ai.vad;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 语音活动检测测试，使用合成的16kHz 16位PCM
+ */
+public class VoiceActivityDetectorTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private VoiceActivityDetector newDetector() {
+        return new VoiceActivityDetector(SAMPLE_RATE, 20, 400, 3.0, 0.35, 200, 600);
+    }
+
+    @Test
+    public void testSpeechFollowedBySilenceEnds() {
+        byte[] audio = concat(silence(300), voiced(6000, 1000), silence(800));
+
+        VoiceActivityDetector detector = newDetector();
+        List<VoiceActivityDetector.Event> events = feed(detector, audio, 640);
+
+        assertEquals(List.of(VoiceActivityDetector.Event.SPEECH_START, VoiceActivityDetector.Event.SPEECH_END), events);
+        assertTrue(detector.hasEnded());
+    }
+
+    @Test
+    public void testPauseShorterThanHangoverDoesNotEnd() {
+        byte[] audio = concat(voiced(6000, 600), silence(400), voiced(6000, 600), silence(300));
+
+        VoiceActivityDetector detector = newDetector();
+        List<VoiceActivityDetector.Event> events = feed(detector, audio, 640);
+
+        assertEquals(List.of(VoiceActivityDetector.Event.SPEECH_START), events);
+        assertTrue(detector.isSpeaking());
+        assertFalse(detector.hasEnded());
+    }
+
+    @Test
+    public void testShortClickIsNotSpeech() {
+        byte[] audio = concat(silence(200), voiced(8000, 100), silence(1000));
+
+        List<VoiceActivityDetector.Event> events = feed(newDetector(), audio, 640);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testLoudNoiseWithHighZeroCrossingRateIsNotSpeech() {
+        byte[] audio = concat(noise(4000, 1500, 1L), silence(800));
+
+        List<VoiceActivityDetector.Event> events = feed(newDetector(), audio, 640);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testNoiseFloorRaisesThreshold() {
+        // 背景噪声接近固定下限时，阈值随噪声基底抬高，弱信号不再被判为语音
+        byte[] background = noise(300, 1000, 2L);
+        byte[] weak = voiced(1000, 600);
+        byte[] strong = voiced(8000, 600);
+
+        VoiceActivityDetector detector = newDetector();
+        assertTrue(feed(detector, concat(background, weak), 640).isEmpty());
+        assertTrue(detector.getNoiseFloor() > 200);
+
+        assertEquals(List.of(VoiceActivityDetector.Event.SPEECH_START), feed(detector, strong, 640));
+    }
+
+    @Test
+    public void testChunkBoundariesDoNotChangeResult() {
+        byte[] audio = concat(silence(200), voiced(6000, 500), silence(200), voiced(5000, 300), silence(700));
+
+        for (int chunkSize : new int[] {1, 7, 333, 640, 4096}) {
+            List<VoiceActivityDetector.Event> events = feed(newDetector(), audio, chunkSize);
+            assertEquals(List.of(VoiceActivityDetector.Event.SPEECH_START, VoiceActivityDetector.Event.SPEECH_END),
+                    events, "chunkSize=" + chunkSize);
+        }
+
+        // 同一数据块内先开始后结束时只报告结束
+        assertEquals(VoiceActivityDetector.Event.SPEECH_END, newDetector().accept(audio));
+    }
+
+    @Test
+    public void testNoEventsAfterEndUntilReset() {
+        VoiceActivityDetector detector = newDetector();
+        feed(detector, concat(voiced(6000, 400), silence(700)), 640);
+        assertTrue(detector.hasEnded());
+
+        assertTrue(feed(detector, voiced(6000, 400), 640).isEmpty());
+
+        detector.reset();
+        assertEquals(List.of(VoiceActivityDetector.Event.SPEECH_START), feed(detector, voiced(6000, 400), 640));
+    }
+
+    private static List<VoiceActivityDetector.Event> feed(VoiceActivityDetector detector, byte[] audio, int chunkSize) {
+        List<VoiceActivityDetector.Event> events = new ArrayList<>();
+        for (int offset = 0; offset < audio.length; offset += chunkSize) {
+            VoiceActivityDetector.Event event = detector.accept(audio, offset, Math.min(chunkSize, audio.length - offset));
+            if (event != VoiceActivityDetector.Event.NONE) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static byte[] silence(int ms) {
+        return new byte[samples(ms) * 2];
+    }
+
+    /**
+     * 类似浊音的周期信号：基频150Hz加两个谐波
+     */
+    private static byte[] voiced(double amplitude, int ms) {
+        int count = samples(ms);
+        short[] pcm = new short[count];
+        for (int i = 0; i < count; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double value = 0.6 * Math.sin(2 * Math.PI * 150 * t)
+                    + 0.3 * Math.sin(2 * Math.PI * 300 * t)
+                    + 0.1 * Math.sin(2 * Math.PI * 450 * t);
+            pcm[i] = (short) (amplitude * value);
+        }
+        return toBytes(pcm);
+    }
+
+    private static byte[] noise(double sigma, int ms, long seed) {
+        Random random = new Random(seed);
+        int count = samples(ms);
+        short[] pcm = new short[count];
+        for (int i = 0; i < count; i++) {
+            pcm[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, random.nextGaussian() * sigma));
+        }
+        return toBytes(pcm);
+    }
+
+    private static int samples(int ms) {
+        return SAMPLE_RATE * ms / 1000;
+    }
+
+    private static byte[] toBytes(short[] pcm) {
+        byte[] bytes = new byte[pcm.length * 2];
+        for (int i = 0; i < pcm.length; i++) {
+            bytes[i * 2] = (byte) pcm[i];
+            bytes[i * 2 + 1] = (byte) (pcm[i] >> 8);
+        }
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
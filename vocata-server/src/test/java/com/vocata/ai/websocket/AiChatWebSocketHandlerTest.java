@@ -0,0 +1,181 @@
+package com.vocata.ai.websocket;
+
+import com.vocata.ai.event.PipelineEvent;
+import com.vocata.ai.metrics.VoiceTurnMetrics;
+import com.vocata.ai.service.AiStreamingService;
+import com.vocata.ai.vad.VoiceActivityDetectorFactory;
+import com.vocata.conversation.service.ConversationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * WebSocket处理器跨连接转发的归属校验测试
+ */
+public class AiChatWebSocketHandlerTest {
+
+    private static final UUID CONVERSATION = UUID.fromString("c0a80101-0000-0000-0000-000000000001");
+
+    private static final String OWNER_USER = "1";
+
+    private static final String OTHER_USER = "2";
+
+    private AiChatWebSocketHandler handler;
+    private AiStreamingService aiStreamingService;
+    private ClusterSessionRouter clusterSessionRouter;
+    private Consumer<SessionRoutingMessage> routedHandler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        aiStreamingService = mock(AiStreamingService.class);
+        clusterSessionRouter = mock(ClusterSessionRouter.class);
+        ConversationService conversationService = mock(ConversationService.class);
+        when(conversationService.validateConversationOwnership(CONVERSATION, Long.parseLong(OWNER_USER))).thenReturn(true);
+        when(clusterSessionRouter.isEnabled()).thenReturn(true);
+
+        handler = new AiChatWebSocketHandler();
+        ReflectionTestUtils.setField(handler, "aiStreamingService", aiStreamingService);
+        ReflectionTestUtils.setField(handler, "conversationService", conversationService);
+        ReflectionTestUtils.setField(handler, "voiceActivityDetectorFactory", mock(VoiceActivityDetectorFactory.class));
+        ReflectionTestUtils.setField(handler, "clusterSessionRouter", clusterSessionRouter);
+        ReflectionTestUtils.setField(handler, "voiceTurnMetrics", mock(VoiceTurnMetrics.class));
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMs", 10000);
+        ReflectionTestUtils.setField(handler, "bufferSizeLimit", 2097152);
+        ReflectionTestUtils.setField(handler, "slowConsumerPolicy", "drop-audio");
+        ReflectionTestUtils.setField(handler, "maxFrameBytes", 32768);
+
+        handler.init();
+        ArgumentCaptor<Consumer<SessionRoutingMessage>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(clusterSessionRouter).setInboundHandler(captor.capture());
+        routedHandler = captor.getValue();
+    }
+
+    @Test
+    public void testNonOwnerCannotClaimConversation() throws Exception {
+        WebSocketSession intruder = session("s-intruder", OTHER_USER);
+
+        handler.handleMessage(intruder, new TextMessage("{\"type\":\"audio_start\"}"));
+        handler.handleMessage(intruder, new TextMessage(
+                "{\"type\":\"text_message\",\"data\":{\"message\":\"你好\"}}"));
+
+        verify(clusterSessionRouter, never()).claim(anyString(), anyString());
+        verify(clusterSessionRouter, times(2)).release("s-intruder");
+        verify(aiStreamingService, never()).processVoiceMessage(anyString(), anyString(), any());
+        verify(aiStreamingService, never()).processTextMessage(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testAudioFromOtherUserIsNotForwarded() throws Exception {
+        List<byte[]> received = startOwnerRecording("s-owner");
+
+        handler.handleMessage(session("s-intruder", OTHER_USER), new BinaryMessage(new byte[]{9, 9}));
+        assertTrue(received.isEmpty());
+
+        // 同一用户的另一条连接仍可把音频交给归属连接
+        handler.handleMessage(session("s-owner-2", OWNER_USER), new BinaryMessage(new byte[]{1, 2}));
+        assertEquals(1, received.size());
+        verify(clusterSessionRouter, never()).forward(anyString(), anyByte(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void testInterruptFromOtherUserDoesNotCancelOwnerTurn() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(aiStreamingService.processTextMessage(eq(CONVERSATION.toString()), eq(OWNER_USER), anyString()))
+                .thenReturn(Flux.<PipelineEvent>never().doOnCancel(() -> cancelled.set(true)));
+        WebSocketSession owner = session("s-owner", OWNER_USER);
+        handler.handleMessage(owner, new TextMessage("{\"type\":\"text_message\",\"data\":{\"message\":\"你好\"}}"));
+        verify(clusterSessionRouter).claim(CONVERSATION.toString(), "s-owner");
+        when(clusterSessionRouter.localSession(CONVERSATION.toString())).thenReturn("s-owner");
+
+        handler.handleMessage(session("s-intruder", OTHER_USER), new TextMessage("{\"type\":\"interrupt\"}"));
+        assertFalse(cancelled.get());
+
+        handler.handleMessage(session("s-owner-2", OWNER_USER), new TextMessage("{\"type\":\"interrupt\"}"));
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    public void testRoutedMessageFromOtherUserIsDropped() throws Exception {
+        List<byte[]> received = startOwnerRecording("s-owner");
+
+        routedHandler.accept(new SessionRoutingMessage(SessionRoutingMessage.KIND_BINARY,
+                CONVERSATION.toString(), "node-b", OTHER_USER, new byte[]{9}));
+        assertTrue(received.isEmpty());
+
+        routedHandler.accept(new SessionRoutingMessage(SessionRoutingMessage.KIND_BINARY,
+                CONVERSATION.toString(), "node-b", OWNER_USER, new byte[]{1}));
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testRemoteForwardCarriesSenderUserId() throws Exception {
+        when(clusterSessionRouter.remoteOwner(CONVERSATION.toString())).thenReturn("node-a");
+        when(clusterSessionRouter.forward(eq("node-a"), anyByte(), anyString(), anyString(), any())).thenReturn(true);
+
+        handler.handleMessage(session("s-intruder", OTHER_USER), new TextMessage("{\"type\":\"interrupt\"}"));
+        verify(clusterSessionRouter, never()).forward(anyString(), anyByte(), anyString(), anyString(), any());
+
+        byte[] interrupt = "{\"type\":\"interrupt\"}".getBytes(StandardCharsets.UTF_8);
+        handler.handleMessage(session("s-owner-2", OWNER_USER), new TextMessage(interrupt));
+        verify(clusterSessionRouter).forward("node-a", SessionRoutingMessage.KIND_TEXT,
+                CONVERSATION.toString(), OWNER_USER, interrupt);
+    }
+
+    /**
+     * 归属用户在本节点开始录音，返回归属连接收到的音频
+     */
+    @SuppressWarnings("unchecked")
+    private List<byte[]> startOwnerRecording(String sessionId) throws Exception {
+        when(aiStreamingService.processVoiceMessage(eq(CONVERSATION.toString()), eq(OWNER_USER), any()))
+                .thenReturn(Flux.never());
+        handler.handleMessage(session(sessionId, OWNER_USER), new TextMessage("{\"type\":\"audio_start\"}"));
+        verify(clusterSessionRouter).claim(CONVERSATION.toString(), sessionId);
+        when(clusterSessionRouter.localSession(CONVERSATION.toString())).thenReturn(sessionId);
+
+        ArgumentCaptor<Flux<byte[]>> audio = ArgumentCaptor.forClass(Flux.class);
+        verify(aiStreamingService).processVoiceMessage(eq(CONVERSATION.toString()), eq(OWNER_USER), audio.capture());
+        List<byte[]> received = new CopyOnWriteArrayList<>();
+        audio.getValue().subscribe(received::add);
+        return received;
+    }
+
+    private static WebSocketSession session(String id, String userId) {
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        attributes.put("authenticatedUserId", userId);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/chat/" + CONVERSATION));
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
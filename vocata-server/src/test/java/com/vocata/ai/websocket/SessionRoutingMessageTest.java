@@ -0,0 +1,55 @@
+package com.vocata.ai.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 跨节点转发消息编码测试
+ */
+public class SessionRoutingMessageTest {
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        byte[] audio = {0, 1, 2, (byte) 0xff, 127};
+
+        SessionRoutingMessage decoded = SessionRoutingMessage.decode(new SessionRoutingMessage(
+                SessionRoutingMessage.KIND_BINARY, "c0a80101-0000-0000-0000-000000000001", "node-a", "42", audio).encode());
+
+        assertFalse(decoded.isText());
+        assertEquals("c0a80101-0000-0000-0000-000000000001", decoded.getConversationUuid());
+        assertEquals("node-a", decoded.getSourceNode());
+        assertEquals("42", decoded.getUserId());
+        assertArrayEquals(audio, decoded.getPayload());
+    }
+
+    @Test
+    public void testTextRoundTrip() throws IOException {
+        byte[] payload = "{\"type\":\"interrupt\",\"note\":\"打断\"}".getBytes(StandardCharsets.UTF_8);
+
+        SessionRoutingMessage decoded = SessionRoutingMessage.decode(new SessionRoutingMessage(
+                SessionRoutingMessage.KIND_TEXT, "conv", "节点-1", "7", payload).encode());
+
+        assertTrue(decoded.isText());
+        assertEquals("节点-1", decoded.getSourceNode());
+        assertEquals("{\"type\":\"interrupt\",\"note\":\"打断\"}", new String(decoded.getPayload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRejectsCorruptMessage() {
+        byte[] encoded = new SessionRoutingMessage(SessionRoutingMessage.KIND_BINARY, "conv", "node", "7", new byte[8]).encode();
+        byte[] truncated = new byte[encoded.length - 3];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        encoded[0] = 9;
+
+        assertThrows(IOException.class, () -> SessionRoutingMessage.decode(truncated));
+        assertThrows(IOException.class, () -> SessionRoutingMessage.decode(encoded));
+    }
+}
@@ -0,0 +1,54 @@
+package com.vocata.ai.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * TTS音频二进制帧编码测试
+ */
+public class TtsAudioFrameTest {
+
+    @Test
+    public void testHeaderLayout() {
+        byte[] audio = {10, 20, 30, 40, 50};
+
+        ByteBuffer frame = TtsAudioFrame.encode(7, 42, TtsAudioFrame.CODEC_MP3, 24000, true, audio, 1, 3);
+
+        assertEquals(TtsAudioFrame.HEADER_BYTES + 3, frame.remaining());
+        assertEquals('V', frame.get(0));
+        assertEquals(1, frame.get(1));
+        assertEquals(TtsAudioFrame.FLAG_SEGMENT_END, frame.get(2));
+        assertEquals(TtsAudioFrame.CODEC_MP3, frame.get(3));
+        assertEquals(7, frame.getInt(4));
+        assertEquals(42, frame.getInt(8));
+        assertEquals(24000, frame.getInt(12));
+
+        byte[] payload = new byte[3];
+        frame.position(TtsAudioFrame.HEADER_BYTES);
+        frame.get(payload);
+        assertArrayEquals(new byte[] {20, 30, 40}, payload);
+    }
+
+    @Test
+    public void testSegmentEndFlagCleared() {
+        ByteBuffer frame = TtsAudioFrame.encode(1, 0, TtsAudioFrame.CODEC_PCM, 16000, false, new byte[0], 0, 0);
+
+        assertEquals(TtsAudioFrame.HEADER_BYTES, frame.remaining());
+        assertEquals(0, frame.get(2));
+    }
+
+    @Test
+    public void testCodecMapping() {
+        assertEquals(TtsAudioFrame.CODEC_MP3, TtsAudioFrame.codecOf("MP3"));
+        assertEquals(TtsAudioFrame.CODEC_MP3, TtsAudioFrame.codecOf("lame"));
+        assertEquals(TtsAudioFrame.CODEC_PCM, TtsAudioFrame.codecOf("raw"));
+        assertEquals(TtsAudioFrame.CODEC_WAV, TtsAudioFrame.codecOf("wav"));
+        assertEquals(TtsAudioFrame.CODEC_OPUS, TtsAudioFrame.codecOf("ogg_opus"));
+        assertEquals(TtsAudioFrame.CODEC_UNKNOWN, TtsAudioFrame.codecOf("flac"));
+        assertEquals(TtsAudioFrame.CODEC_UNKNOWN, TtsAudioFrame.codecOf(null));
+    }
+}
@@ -0,0 +1,184 @@
+package com.vocata.character.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vocata.common.constant.CacheKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 角色两级缓存测试，Redis由内存中的简易实现代替
+ */
+public class CharacterCacheServiceTest {
+
+    private static final TypeReference<String> STRING = new TypeReference<>() {};
+
+    private static final String GENERATION_KEY = CacheKeys.CHARACTER_INFO + "generation";
+
+    private static final String LIST_KEY_SET = CacheKeys.CHARACTER_LIST + "keys";
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Map<String, Set<Object>> sets = new ConcurrentHashMap<>();
+
+    private CharacterCacheService cacheService;
+
+    @BeforeEach
+    public void setUp() {
+        cacheService = new CharacterCacheService();
+        ReflectionTestUtils.setField(cacheService, "redisTemplate", fakeRedisTemplate());
+        ReflectionTestUtils.setField(cacheService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(cacheService, "enabled", true);
+        ReflectionTestUtils.setField(cacheService, "localTtlSeconds", 60L);
+        ReflectionTestUtils.setField(cacheService, "localMaxSize", 100L);
+        ReflectionTestUtils.setField(cacheService, "redisTtlSeconds", 300L);
+        // 没有连接工厂时订阅失败，只记录警告
+        cacheService.init();
+    }
+
+    @Test
+    public void testMissLoadsOnceAndWritesRedis() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cacheService.getDetail(1L, STRING, () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cacheService.getDetail(1L, STRING, () -> "v" + loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+        assertEquals("\"v1\"", values.get(CacheKeys.getCharacterInfoKey(1L)));
+    }
+
+    @Test
+    public void testRedisHitSkipsLoader() {
+        values.put(CacheKeys.getCharacterInfoKey(2L), "\"cached\"");
+
+        assertEquals("cached", cacheService.getDetail(2L, STRING, () -> {
+            throw new AssertionError("命中Redis时不应查询数据库");
+        }));
+    }
+
+    @Test
+    public void testNullIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cacheService.getDetail(3L, STRING, () -> { loads.incrementAndGet(); return null; }));
+        assertNull(cacheService.getDetail(3L, STRING, () -> { loads.incrementAndGet(); return null; }));
+
+        assertEquals(2, loads.get());
+        assertFalse(values.containsKey(CacheKeys.getCharacterInfoKey(3L)));
+    }
+
+    @Test
+    public void testEvictClearsDetailAndLists() {
+        AtomicInteger loads = new AtomicInteger();
+        cacheService.getDetail(1L, STRING, () -> "detail" + loads.incrementAndGet());
+        cacheService.getList("hot", STRING, () -> "list" + loads.incrementAndGet());
+        assertEquals(Set.of(CacheKeys.CHARACTER_LIST + "hot"), sets.get(LIST_KEY_SET));
+
+        cacheService.evict(1L);
+
+        assertFalse(values.containsKey(CacheKeys.getCharacterInfoKey(1L)));
+        assertFalse(values.containsKey(CacheKeys.CHARACTER_LIST + "hot"));
+        assertFalse(sets.containsKey(LIST_KEY_SET));
+        assertEquals(1L, values.get(GENERATION_KEY));
+        assertEquals("detail3", cacheService.getDetail(1L, STRING, () -> "detail" + loads.incrementAndGet()));
+        assertEquals("list4", cacheService.getList("hot", STRING, () -> "list" + loads.incrementAndGet()));
+    }
+
+    @Test
+    public void testEvictDuringLoadDoesNotWriteBackStaleValue() {
+        AtomicInteger loads = new AtomicInteger();
+
+        // 加载读到旧数据后、写回缓存前，另一个线程更新了角色并失效缓存
+        String stale = cacheService.getList("hot", STRING, () -> {
+            loads.incrementAndGet();
+            CompletableFuture.runAsync(() -> cacheService.evict(7L)).join();
+            return "stale";
+        });
+
+        assertEquals("stale", stale);
+        assertFalse(values.containsKey(CacheKeys.CHARACTER_LIST + "hot"));
+        assertFalse(sets.containsKey(LIST_KEY_SET));
+        // 本地缓存同样没有保留旧值
+        assertEquals("fresh", cacheService.getList("hot", STRING, () -> {
+            loads.incrementAndGet();
+            return "fresh";
+        }));
+        assertEquals(2, loads.get());
+        assertEquals("\"fresh\"", values.get(CacheKeys.CHARACTER_LIST + "hot"));
+    }
+
+    /**
+     * 只实现缓存服务用到的命令，保存的是经值序列化器往返后的对象（缓存值本身是JSON字符串）
+     */
+    @SuppressWarnings("unchecked")
+    private RedisTemplate<String, Object> fakeRedisTemplate() {
+        ValueOperations<String, Object> valueOps = mock(ValueOperations.class, this::valueCommand);
+        SetOperations<String, Object> setOps = mock(SetOperations.class, invocation ->
+                "members".equals(invocation.getMethod().getName())
+                        ? copyOf(sets.get((String) invocation.getArgument(0))) : null);
+        return mock(RedisTemplate.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "opsForValue" -> valueOps;
+            case "opsForSet" -> setOps;
+            case "delete" -> {
+                long deleted = 0;
+                for (Object key : (Collection<Object>) invocation.getArgument(0)) {
+                    deleted += values.remove((String) key) != null || sets.remove((String) key) != null ? 1 : 0;
+                }
+                yield deleted;
+            }
+            case "execute" -> invocation.getArgument(0) instanceof RedisScript ? writeIfCurrent(invocation) : 0L;
+            default -> null;
+        });
+    }
+
+    private Object valueCommand(InvocationOnMock invocation) {
+        String key = invocation.getArgument(0);
+        return switch (invocation.getMethod().getName()) {
+            case "get" -> values.get(key);
+            case "increment" -> values.merge(key, 1L, (a, b) -> ((Number) a).longValue() + 1);
+            default -> null;
+        };
+    }
+
+    /**
+     * 与WRITE_IF_CURRENT_SCRIPT相同的逻辑
+     */
+    @SuppressWarnings("unchecked")
+    private Long writeIfCurrent(InvocationOnMock invocation) {
+        List<String> keys = invocation.getArgument(1);
+        Object[] args = Arrays.copyOfRange(invocation.getArguments(), 2, invocation.getArguments().length);
+        Object generation = values.getOrDefault(keys.get(0), 0L);
+        if (((Number) generation).longValue() != ((Number) args[0]).longValue()) {
+            return 0L;
+        }
+        values.put(keys.get(1), args[1]);
+        if (keys.size() > 2) {
+            sets.computeIfAbsent(keys.get(2), k -> ConcurrentHashMap.newKeySet()).add(args[3]);
+        }
+        return 1L;
+    }
+
+    private static Set<Object> copyOf(Set<Object> set) {
+        return set != null ? new HashSet<>(set) : null;
+    }
+}
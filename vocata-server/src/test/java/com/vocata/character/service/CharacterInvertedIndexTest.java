@@ -0,0 +1,64 @@
+package com.vocata.character.service;
+
+import com.vocata.character.entity.Character;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 角色倒排索引测试
+ */
+public class CharacterInvertedIndexTest {
+
+    @Test
+    public void testNameHitRanksAbovePopularity() {
+        CharacterInvertedIndex index = new CharacterInvertedIndex(0.05);
+        index.upsert(character(1L, "赫敏", "哈利波特的好朋友", 5000L));
+        index.upsert(character(2L, "哈利波特", "霍格沃茨的学生", 10L));
+        index.upsert(character(3L, "孙悟空", "齐天大圣", 100000L));
+
+        CharacterInvertedIndex.Result result = index.search("哈利", 0, 10);
+
+        assertEquals(2, result.total());
+        assertArrayEquals(new long[]{2L, 1L}, result.characterIds());
+    }
+
+    @Test
+    public void testTagsAndPagination() {
+        CharacterInvertedIndex index = new CharacterInvertedIndex(0.05);
+        for (long id = 1; id <= 5; id++) {
+            Character character = character(id, "角色" + id, "描述", id);
+            character.setTagNames(new String[]{"动漫"});
+            index.upsert(character);
+        }
+
+        CharacterInvertedIndex.Result page = index.search("动漫", 2, 2);
+
+        assertEquals(5, page.total());
+        assertArrayEquals(new long[]{3L, 2L}, page.characterIds());
+    }
+
+    @Test
+    public void testIncrementalUpdateAndRemove() {
+        CharacterInvertedIndex index = new CharacterInvertedIndex(0.05);
+        index.upsert(character(1L, "赫敏", "魔法", 0L));
+        index.upsert(character(2L, "罗恩", "魔法", 0L));
+
+        index.upsert(character(1L, "赫敏格兰杰", "学霸", 0L));
+        index.remove(2L);
+
+        assertEquals(0, index.search("魔法", 0, 10).total());
+        assertArrayEquals(new long[]{1L}, index.search("学霸", 0, 10).characterIds());
+        assertEquals(1, index.size());
+    }
+
+    private Character character(Long id, String name, String description, Long chatCount) {
+        Character character = new Character();
+        character.setId(id);
+        character.setName(name);
+        character.setDescription(description);
+        character.setChatCount(chatCount);
+        return character;
+    }
+}
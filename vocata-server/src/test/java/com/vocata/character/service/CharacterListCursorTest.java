@@ -0,0 +1,62 @@
+package com.vocata.character.service;
+
+import com.vocata.common.exception.BizException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 角色列表游标测试
+ */
+public class CharacterListCursorTest {
+
+    @Test
+    public void testRoundTripNumericAndTemporalKeys() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 1234567890123L);
+        row.put("trending_score", null);
+        row.put("created_at", Timestamp.valueOf(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000)));
+
+        CharacterListCursor numeric = CharacterListCursor.fromRow(
+                CharacterListCursor.SortField.TRENDING_SCORE, false, row);
+        CharacterListCursor decodedNumeric = CharacterListCursor.decode(
+                numeric.encode(), CharacterListCursor.SortField.TRENDING_SCORE, false);
+        assertEquals(0L, decodedNumeric.getValue());
+        assertEquals(1234567890123L, decodedNumeric.getId());
+
+        CharacterListCursor temporal = CharacterListCursor.fromRow(
+                CharacterListCursor.SortField.CREATED_AT, true, row);
+        CharacterListCursor decodedTemporal = CharacterListCursor.decode(
+                temporal.encode(), CharacterListCursor.SortField.CREATED_AT, true);
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000), decodedTemporal.getValue());
+        assertEquals(1234567890123L, decodedTemporal.getId());
+    }
+
+    @Test
+    public void testRejectsCursorFromDifferentOrdering() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 7L);
+        row.put("chat_count", 42L);
+        String token = CharacterListCursor.fromRow(CharacterListCursor.SortField.CHAT_COUNT, false, row).encode();
+
+        assertThrows(BizException.class,
+                () -> CharacterListCursor.decode(token, CharacterListCursor.SortField.CHAT_COUNT, true));
+        assertThrows(BizException.class,
+                () -> CharacterListCursor.decode(token, CharacterListCursor.SortField.SORT_WEIGHT, false));
+        assertThrows(BizException.class,
+                () -> CharacterListCursor.decode("not-a-cursor", CharacterListCursor.SortField.CHAT_COUNT, false));
+    }
+
+    @Test
+    public void testUnknownOrderByFallsBackToChatCount() {
+        assertEquals(CharacterListCursor.SortField.CHAT_COUNT, CharacterListCursor.SortField.of(null));
+        assertEquals(CharacterListCursor.SortField.CHAT_COUNT, CharacterListCursor.SortField.of("name; drop"));
+        assertEquals(CharacterListCursor.SortField.UPDATED_AT, CharacterListCursor.SortField.of("UPDATED_AT"));
+    }
+}
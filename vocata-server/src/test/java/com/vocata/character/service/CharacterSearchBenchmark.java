@@ -0,0 +1,116 @@
+package com.vocata.character.service;
+
+import com.vocata.character.entity.Character;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角色搜索对比基准测试
+ *
+ * 随机生成中文角色库，比较：
+ * likeScan 模拟原LIKE路径（对名称、描述、搜索关键词逐条做子串匹配后按对话数排序取一页，
+ * 即数据库顺序扫描的计算量，不含网络与解析开销）；
+ * invertedIndex 内存倒排索引求交、打分并取一页。
+ *
+ * 运行方式：在IDE中执行main方法，或
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.vocata.character.service.CharacterSearchBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharacterSearchBenchmark {
+
+    private static final String HAN = "天地玄黄宇宙洪荒日月盈昃辰宿列张寒来暑往秋收冬藏闰余成岁律吕调阳云腾致雨露结为霜"
+            + "金生丽水玉出昆冈剑号巨阙珠称夜光果珍李柰菜重芥姜海咸河淡鳞潜羽翔龙师火帝鸟官人皇魔法学院骑士公主";
+
+    private static final int PAGE_SIZE = 15;
+
+    @Param({"10000", "50000"})
+    public int characters;
+
+    @Param({"魔法", "骑士公主"})
+    public String keyword;
+
+    private List<Character> catalog;
+
+    private CharacterInvertedIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        catalog = new ArrayList<>(characters);
+        index = new CharacterInvertedIndex(0.05);
+        for (int i = 0; i < characters; i++) {
+            Character character = new Character();
+            character.setId((long) i + 1);
+            character.setName(randomText(random, 2 + random.nextInt(4)));
+            character.setDescription(randomText(random, 60 + random.nextInt(140)));
+            character.setSearchKeywords(randomText(random, 10));
+            character.setTagNames(new String[]{randomText(random, 2), randomText(random, 2)});
+            character.setChatCount((long) random.nextInt(100000));
+            catalog.add(character);
+            index.upsert(character);
+        }
+    }
+
+    @Benchmark
+    public void likeScan(Blackhole blackhole) {
+        List<Character> hits = new ArrayList<>();
+        for (Character character : catalog) {
+            if (character.getName().contains(keyword)
+                    || character.getDescription().contains(keyword)
+                    || character.getSearchKeywords().contains(keyword)) {
+                hits.add(character);
+            }
+        }
+        hits.sort(Comparator.comparing(Character::getChatCount).reversed());
+        blackhole.consume(hits.size());
+        blackhole.consume(hits.subList(0, Math.min(PAGE_SIZE, hits.size())));
+    }
+
+    @Benchmark
+    public void invertedIndex(Blackhole blackhole) {
+        CharacterInvertedIndex.Result result = index.search(keyword, 0, PAGE_SIZE);
+        blackhole.consume(result.total());
+        blackhole.consume(result.characterIds());
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(HAN.charAt(random.nextInt(HAN.length())));
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CharacterSearchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,38 @@
+package com.vocata.character.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CJK二元分词测试
+ */
+public class CjkBigramTokenizerTest {
+
+    @Test
+    public void testCjkUnigramsAndBigrams() {
+        assertEquals(List.of("哈", "哈利", "利", "利波", "波", "波特", "特"),
+                List.copyOf(CjkBigramTokenizer.indexTokens("哈利波特")));
+        assertEquals(List.of("哈利", "利波", "波特"), List.copyOf(CjkBigramTokenizer.queryTokens("哈利波特")));
+        assertEquals(List.of("魔"), List.copyOf(CjkBigramTokenizer.queryTokens("魔")));
+    }
+
+    @Test
+    public void testMixedTextSplitsOnScriptAndPunctuation() {
+        Set<String> tokens = CjkBigramTokenizer.queryTokens("Harry的魔杖，Wand-2");
+
+        assertEquals(List.of("harry", "的魔", "魔杖", "wand", "2"), List.copyOf(tokens));
+    }
+
+    @Test
+    public void testIndexWordPrefixes() {
+        Set<String> tokens = CjkBigramTokenizer.indexTokens("Hermione");
+
+        assertTrue(tokens.containsAll(List.of("he", "her", "herm", "hermione")));
+        assertTrue(CjkBigramTokenizer.queryTokens(null).isEmpty());
+    }
+}
@@ -0,0 +1,34 @@
+package com.vocata.character.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 搜索结果高亮测试
+ */
+public class SearchHighlighterTest {
+
+    @Test
+    public void testHighlightEscapesAndIgnoresCase() {
+        assertEquals("<em>Harry</em> &amp; <em>harry</em>&lt;b&gt;",
+                SearchHighlighter.highlight("Harry & harry<b>", "harry"));
+        assertEquals("哈利波特", SearchHighlighter.highlight("哈利波特", "赫敏"));
+        assertNull(SearchHighlighter.highlight(null, "x"));
+    }
+
+    @Test
+    public void testSnippetCentersOnFirstHit() {
+        String text = "一二三四五六七八九十魔法学校的学生一二三四五六七八九十";
+
+        assertEquals("…八九十<em>魔法</em>学校的学生…", SearchHighlighter.snippet(text, "魔法", 10));
+        assertEquals("一二三四五…", SearchHighlighter.snippet(text, "不存在", 5));
+        assertEquals("短<em>文本</em>", SearchHighlighter.snippet("短文本", "文本", 80));
+    }
+
+    @Test
+    public void testEscapeLike() {
+        assertEquals("100\\%\\_a\\\\b", CharacterSearchService.escapeLike("100%_a\\b"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.vocata.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Prometheus抓取端点访问控制测试
+ */
+public class PrometheusAccessFilterTest {
+
+    @RestController
+    static class StubPrometheusEndpoint {
+
+        @GetMapping("/actuator/prometheus")
+        public String scrape() {
+            return "vocata_voice_turn_seconds_count 1";
+        }
+    }
+
+    private static MockMvc mockMvc(String scrapeToken) {
+        return MockMvcBuilders.standaloneSetup(new StubPrometheusEndpoint())
+                .addFilter(new PrometheusAccessFilter(scrapeToken), "/actuator/prometheus")
+                .build();
+    }
+
+    @Test
+    public void testRejectsRequestWithoutToken() throws Exception {
+        mockMvc("secret").perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRejectsWrongToken() throws Exception {
+        mockMvc("secret").perform(get("/actuator/prometheus").header("Authorization", "Bearer secreT"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testAllowsScrapeToken() throws Exception {
+        mockMvc("secret").perform(get("/actuator/prometheus").header("Authorization", "Bearer secret"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("vocata_voice_turn_seconds_count 1"));
+    }
+
+    @Test
+    public void testEmptyTokenNeverMatches() throws Exception {
+        mockMvc("").perform(get("/actuator/prometheus").header("Authorization", "Bearer "))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,54 @@
+package com.vocata.conversation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 对话上下文窗口缓存测试
+ */
+public class ConversationContextCacheTest {
+
+    @Test
+    public void testWindowKeepsNewestInOrder() {
+        ConversationContextCache.Window window = new ConversationContextCache.Window(3, List.of(
+                message(1L, "一"), message(2L, "二")));
+
+        window.append(message(3L, "三"));
+        window.append(message(4L, "四"));
+
+        assertEquals(List.of("二", "三", "四"), texts(window.snapshot(10)));
+        assertEquals(List.of("三", "四"), texts(window.snapshot(2)));
+        assertEquals(List.of(), texts(window.snapshot(0)));
+    }
+
+    @Test
+    public void testWindowIgnoresDuplicateIds() {
+        ConversationContextCache.Window window = new ConversationContextCache.Window(3, List.of(message(1L, "一")));
+
+        window.append(message(1L, "一"));
+        window.append(message(2L, "二"));
+
+        assertEquals(List.of("一", "二"), texts(window.snapshot(3)));
+    }
+
+    @Test
+    public void testEncodeDecodeKeepsColonsInText() {
+        ConversationContextCache.ContextMessage message = new ConversationContextCache.ContextMessage(
+                42L, 2, "时间是 10:30：好的");
+
+        assertEquals(message, ConversationContextCache.decode(ConversationContextCache.encode(message)));
+        assertNull(ConversationContextCache.decode("broken"));
+    }
+
+    private ConversationContextCache.ContextMessage message(Long id, String text) {
+        return new ConversationContextCache.ContextMessage(id, 1, text);
+    }
+
+    private List<String> texts(List<ConversationContextCache.ContextMessage> messages) {
+        return messages.stream().map(ConversationContextCache.ContextMessage::text).toList();
+    }
+}
@@ -37,9 +37,22 @@ interface TTSAudioMetaMessage extends WebSocketMessage {
   timestamp: number
 }
 
+// 整轮回复的完整文字，每轮语音对话只下发一次
 interface TTSResultMessage extends WebSocketMessage {
   type: 'tts_result'
   text: string
+  voiceId?: string
+  timestamp: number
+}
+
+// 逐句字幕，紧跟在对应句子的音频之前，不是完整回复
+interface TTSCaptionMessage extends WebSocketMessage {
+  type: 'tts_caption'
+  text: string
+  sequence: number
+  segmentIndex: number
+  frameIndex: number
+  lastFrame: boolean
   format: string
   sampleRate: number
   voiceId?: string
@@ -762,6 +775,10 @@ export class VocaTaAIChat {
         this.handleTTSResult(message as TTSResultMessage)
         break
 
+      case 'tts_caption':
+        this.handleTTSCaption(message as TTSCaptionMessage)
+        break
+
       case 'tts_audio_meta':
         this.handleTTSAudioMeta(message as TTSAudioMetaMessage)
         break
@@ -806,13 +823,20 @@ export class VocaTaAIChat {
   }
 
   private handleTTSResult(message: TTSResultMessage): void {
-    console.log(`🗣️ TTS最终文字: ${message.text} (格式: ${message.format}, 采样率: ${message.sampleRate})`)
+    console.log(`🗣️ TTS最终文字: ${message.text}`)
 
     if (message.text) {
       this.onLLMStreamCallback?.(message.text, true, message.voiceId)
     }
   }
 
+  private handleTTSCaption(message: TTSCaptionMessage): void {
+    // 回复气泡由llm_text_stream与最终的tts_result驱动，逐句字幕不覆盖气泡内容
+    if (message.text) {
+      console.log(`💬 TTS字幕(第${message.segmentIndex}句): ${message.text}`)
+    }
+  }
+
   private handleTTSAudioMeta(message: TTSAudioMetaMessage): void {
     console.log(`🔊 TTS音频元数据: ${message.audioSize} bytes, ${message.format}`)
   }